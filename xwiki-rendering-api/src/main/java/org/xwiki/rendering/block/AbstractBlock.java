@@ -22,7 +22,6 @@
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +29,7 @@
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.xwiki.rendering.block.match.BlockMatcher;
 import org.xwiki.rendering.block.match.BlockNavigator;
+import org.xwiki.rendering.internal.block.CompactParametersMap;
 import org.xwiki.rendering.listener.Listener;
 
 /**
@@ -42,9 +42,10 @@
 public abstract class AbstractBlock implements Block
 {
     /**
-     * Store parameters, see {@link #getParameter(String)} for more explanations on what parameters are.
+     * Store parameters, see {@link #getParameter(String)} for more explanations on what parameters are. The map is
+     * immutable (it's replaced when a parameter is modified) so that it can be returned as is and shared with clones.
      */
-    private Map<String, String> parameters;
+    private Map<String, String> parameters = Collections.emptyMap();
 
     /**
      * The Blocks this Block contains.
@@ -351,35 +352,25 @@ public Block getParent()
     @Override
     public Map<String, String> getParameters()
     {
-        return this.parameters == null ? Collections.<String, String>emptyMap() : Collections
-            .unmodifiableMap(this.parameters);
+        return this.parameters;
     }
 
     @Override
     public String getParameter(String name)
     {
-        return this.parameters == null ? null : this.parameters.get(name);
+        return this.parameters.get(name);
     }
 
     @Override
     public void setParameter(String name, String value)
     {
-        if (this.parameters == null) {
-            this.parameters = new LinkedHashMap<>(1);
-        }
-
-        this.parameters.put(name, value);
+        this.parameters = CompactParametersMap.with(this.parameters, name, value);
     }
 
     @Override
     public void setParameters(Map<String, String> parameters)
     {
-        if (this.parameters == null) {
-            this.parameters = new LinkedHashMap<>(parameters);
-        } else {
-            this.parameters.clear();
-            this.parameters.putAll(parameters);
-        }
+        this.parameters = CompactParametersMap.of(parameters);
     }
 
     @Override
@@ -490,10 +481,6 @@ public Block clone(BlockFilter blockFilter)
             throw new RuntimeException("Failed to clone object", e);
         }
 
-        if (this.parameters != null) {
-            ((AbstractBlock) block).parameters = new LinkedHashMap<>(this.parameters);
-        }
-
         if (this.childrenBlocks != null) {
             ((AbstractBlock) block).childrenBlocks = new ArrayList<Block>(this.childrenBlocks.size());
             for (Block childBlock : this.childrenBlocks) {
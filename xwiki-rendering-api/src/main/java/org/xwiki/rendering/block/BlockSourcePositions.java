@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Positions in the parsed content of some blocks of a {@link XDOM}, produced by the parsers supporting it when
+ * {@link org.xwiki.rendering.configuration.RenderingConfiguration#isSourcePositionEnabled()} is enabled.
+ * <p>
+ * The positions are stored in the {@link XDOM} (see {@link XDOM#getSourcePositions()}), outside of its metadata so that
+ * they are not sent to the listeners, and are associated with the block instances: they are not kept for a clone of
+ * the XDOM nor for the blocks produced by transformations. Positions are offsets of characters in the parsed content, the end offset being the one following
+ * the last character of the block.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class BlockSourcePositions
+{
+    private final Map<Block, int[]> positions = new IdentityHashMap<>();
+
+    /**
+     * @param xdom the parsed document
+     * @return the positions of the blocks of the passed document, {@code null} if they have not been collected
+     */
+    public static BlockSourcePositions get(XDOM xdom)
+    {
+        return xdom.getSourcePositions();
+    }
+
+    /**
+     * @param block the block
+     * @param beginOffset the offset of the first character of the block in the parsed content
+     * @param endOffset the offset following the last character of the block in the parsed content
+     */
+    public void setPosition(Block block, int beginOffset, int endOffset)
+    {
+        if (beginOffset < 0 || endOffset < beginOffset) {
+            throw new IllegalArgumentException(
+                String.format("Invalid source position [%d, %d]", beginOffset, endOffset));
+        }
+
+        this.positions.put(block, new int[] { beginOffset, endOffset });
+    }
+
+    /**
+     * @param block the block
+     * @return {@code true} if the position of the passed block is known
+     */
+    public boolean contains(Block block)
+    {
+        return this.positions.containsKey(block);
+    }
+
+    /**
+     * @param block the block
+     * @return the offset of the first character of the block in the parsed content, -1 if unknown
+     */
+    public int getBeginOffset(Block block)
+    {
+        int[] position = this.positions.get(block);
+
+        return position != null ? position[0] : -1;
+    }
+
+    /**
+     * @param block the block
+     * @return the offset following the last character of the block in the parsed content, -1 if unknown
+     */
+    public int getEndOffset(Block block)
+    {
+        int[] position = this.positions.get(block);
+
+        return position != null ? position[1] : -1;
+    }
+
+    /**
+     * @return the number of blocks having a position
+     */
+    public int size()
+    {
+        return this.positions.size();
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Compact read-only representation of a {@link XDOM}, for documents kept in memory and only rendered.
+ * <p>
+ * Instead of one object per block (with parent, siblings, children list and parameters references) each node of the
+ * tree is an index in a few arrays: the type of the event it produces, the index of its parent and the index following
+ * its last descendant (nodes are stored in document order so the first child of a node is the node following it).
+ * Words and identifiers are indexes in a table of distinct strings and the other event parameters are shared arrays.
+ * Navigation goes through {@link Node} views created on demand.
+ * <p>
+ * A flat XDOM is created from an existing block with {@link #of(Block)} or directly from parser events with a
+ * {@link FlatXDOMGeneratorListener}, and can be converted back to a modifiable {@link XDOM} with {@link #toXDOM()}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public final class FlatXDOM
+{
+    private static final EventType[] TYPES = EventType.values();
+
+    private static final Map<EventType, EventType> END_TYPES = new EnumMap<>(EventType.class);
+
+    static {
+        for (EventType type : TYPES) {
+            if (type.name().startsWith("BEGIN_")) {
+                END_TYPES.put(type, EventType.valueOf("END_" + type.name().substring("BEGIN_".length())));
+            }
+        }
+    }
+
+    private final byte[] types;
+
+    private final int[] parents;
+
+    private final int[] ends;
+
+    /**
+     * The index of the string for words and ids, the value for special symbols and empty lines, the index of the
+     * event parameters for other nodes with parameters and -1 for nodes without parameters.
+     */
+    private final int[] data;
+
+    private final String[] strings;
+
+    private final Object[][] eventParameters;
+
+    /**
+     * A node of a {@link FlatXDOM}. Views are cheap, stateless and equal when they point to the same node.
+     *
+     * @version $Id$
+     */
+    public final class Node
+    {
+        private final int index;
+
+        private Node(int index)
+        {
+            this.index = index;
+        }
+
+        /**
+         * @return the position of the node in the document order
+         */
+        public int getIndex()
+        {
+            return this.index;
+        }
+
+        /**
+         * @return the type of the event produced by the node: a {@code BEGIN_} type for nodes which can have children
+         *         and an {@code ON_} type for the others
+         */
+        public EventType getType()
+        {
+            return TYPES[FlatXDOM.this.types[this.index]];
+        }
+
+        /**
+         * @return the parent node or {@code null} for the root
+         */
+        public Node getParent()
+        {
+            int parent = FlatXDOM.this.parents[this.index];
+
+            return parent >= 0 ? new Node(parent) : null;
+        }
+
+        /**
+         * @return the first child node or {@code null} if the node doesn't have any child
+         */
+        public Node getFirstChild()
+        {
+            return hasChildren(this.index) ? new Node(this.index + 1) : null;
+        }
+
+        /**
+         * @return the next sibling node or {@code null} if the node is the last child of its parent
+         */
+        public Node getNextSibling()
+        {
+            int next = FlatXDOM.this.ends[this.index];
+            int parent = FlatXDOM.this.parents[this.index];
+            int end = parent >= 0 ? FlatXDOM.this.ends[parent] : FlatXDOM.this.types.length;
+
+            return next < end ? new Node(next) : null;
+        }
+
+        /**
+         * Note that this goes through the previous siblings of the node.
+         *
+         * @return the previous sibling node or {@code null} if the node is the first child of its parent
+         */
+        public Node getPreviousSibling()
+        {
+            // Top level nodes are siblings without parent
+            int previous = FlatXDOM.this.parents[this.index] + 1;
+            if (previous == this.index) {
+                return null;
+            }
+
+            while (FlatXDOM.this.ends[previous] != this.index) {
+                previous = FlatXDOM.this.ends[previous];
+            }
+
+            return new Node(previous);
+        }
+
+        /**
+         * @return the children nodes
+         */
+        public List<Node> getChildren()
+        {
+            if (!hasChildren(this.index)) {
+                return Collections.emptyList();
+            }
+
+            int end = FlatXDOM.this.ends[this.index];
+            int count = 0;
+            for (int child = this.index + 1; child < end; child = FlatXDOM.this.ends[child]) {
+                ++count;
+            }
+
+            final int[] children = new int[count];
+            int child = this.index + 1;
+            for (int i = 0; i < count; ++i) {
+                children[i] = child;
+                child = FlatXDOM.this.ends[child];
+            }
+
+            return new AbstractList<Node>()
+            {
+                @Override
+                public Node get(int childIndex)
+                {
+                    return new Node(children[childIndex]);
+                }
+
+                @Override
+                public int size()
+                {
+                    return children.length;
+                }
+            };
+        }
+
+        /**
+         * @return the parameters of the event produced by the node, in the order of the corresponding
+         *         {@link Listener} method
+         */
+        public Object[] getEventParameters()
+        {
+            return FlatXDOM.this.getEventParameters(this.index).clone();
+        }
+
+        /**
+         * @return the generic parameters of the node (as returned by {@link Block#getParameters()}), empty if the node
+         *         doesn't support parameters
+         */
+        @SuppressWarnings("unchecked")
+        public Map<String, String> getParameters()
+        {
+            for (Object parameter : FlatXDOM.this.getEventParameters(this.index)) {
+                if (parameter instanceof Map) {
+                    return (Map<String, String>) parameter;
+                }
+            }
+
+            return Listener.EMPTY_PARAMETERS;
+        }
+
+        /**
+         * Send the events of the node and its descendants to the passed listener.
+         *
+         * @param listener the listener receiving the events
+         */
+        public void traverse(Listener listener)
+        {
+            FlatXDOM.this.traverse(this.index, listener);
+        }
+
+        /**
+         * @return a new modifiable block for this node and its descendants
+         */
+        public Block toBlock()
+        {
+            XDOMGeneratorListener listener = new XDOMGeneratorListener();
+            if (this.index == 0 && getType() == EventType.BEGIN_DOCUMENT) {
+                traverse(listener);
+
+                return listener.getXDOM();
+            }
+
+            listener.beginDocument(MetaData.EMPTY);
+            traverse(listener);
+            listener.endDocument(MetaData.EMPTY);
+
+            Block block = listener.getXDOM().getChildren().get(0);
+            block.setParent(null);
+
+            return block;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Node && ((Node) obj).index == this.index
+                && ((Node) obj).getFlatXDOM() == getFlatXDOM();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.index;
+        }
+
+        private FlatXDOM getFlatXDOM()
+        {
+            return FlatXDOM.this;
+        }
+    }
+
+    FlatXDOM(byte[] types, int[] parents, int[] ends, int[] data, String[] strings, Object[][] eventParameters)
+    {
+        this.types = types;
+        this.parents = parents;
+        this.ends = ends;
+        this.data = data;
+        this.strings = strings;
+        this.eventParameters = eventParameters;
+    }
+
+    /**
+     * @param block the block to convert
+     * @return the flat representation of the passed block and its descendants
+     */
+    public static FlatXDOM of(Block block)
+    {
+        FlatXDOMGeneratorListener listener = new FlatXDOMGeneratorListener();
+        block.traverse(listener);
+
+        return listener.getFlatXDOM();
+    }
+
+    /**
+     * @return the first node (usually the document), {@code null} if the flat XDOM is empty
+     */
+    public Node getRoot()
+    {
+        return this.types.length > 0 ? new Node(0) : null;
+    }
+
+    /**
+     * @param index the position of the node in the document order
+     * @return the node at the passed position
+     */
+    public Node getNode(int index)
+    {
+        if (index < 0 || index >= this.types.length) {
+            throw new IndexOutOfBoundsException("Invalid node index [" + index + "]");
+        }
+
+        return new Node(index);
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int size()
+    {
+        return this.types.length;
+    }
+
+    /**
+     * Send the events of the whole document to the passed listener, in the same order as {@link Block#traverse}.
+     *
+     * @param listener the listener receiving the events
+     */
+    public void traverse(Listener listener)
+    {
+        // Top level nodes are siblings without parent
+        for (int index = 0; index < this.types.length; index = this.ends[index]) {
+            traverse(index, listener);
+        }
+    }
+
+    /**
+     * @return a new modifiable {@link XDOM} equivalent to this flat XDOM
+     */
+    public XDOM toXDOM()
+    {
+        Node root = getRoot();
+        if (root != null && root.getType() == EventType.BEGIN_DOCUMENT && this.ends[0] == this.types.length) {
+            return (XDOM) root.toBlock();
+        }
+
+        XDOMGeneratorListener listener = new XDOMGeneratorListener();
+        listener.beginDocument(MetaData.EMPTY);
+        traverse(listener);
+        listener.endDocument(MetaData.EMPTY);
+
+        return listener.getXDOM();
+    }
+
+    private boolean hasChildren(int index)
+    {
+        return this.ends[index] > index + 1;
+    }
+
+    private Object[] getEventParameters(int index)
+    {
+        EventType type = TYPES[this.types[index]];
+        int value = this.data[index];
+
+        switch (type) {
+            case ON_WORD:
+            case ON_ID:
+                return new Object[] { this.strings[value] };
+            case ON_SPECIAL_SYMBOL:
+                return new Object[] { (char) value };
+            case ON_EMPTY_LINES:
+                return new Object[] { value };
+            default:
+                return value >= 0 ? this.eventParameters[value] : new Object[0];
+        }
+    }
+
+    private void traverse(int index, Listener listener)
+    {
+        EventType type = TYPES[this.types[index]];
+
+        switch (type) {
+            case ON_WORD:
+                listener.onWord(this.strings[this.data[index]]);
+                break;
+            case ON_SPACE:
+                listener.onSpace();
+                break;
+            case ON_NEW_LINE:
+                listener.onNewLine();
+                break;
+            case ON_SPECIAL_SYMBOL:
+                listener.onSpecialSymbol((char) this.data[index]);
+                break;
+            default:
+                Object[] parameters = getEventParameters(index);
+                type.fireEvent(listener, parameters);
+
+                EventType endType = END_TYPES.get(type);
+                if (endType != null) {
+                    for (int child = index + 1; child < this.ends[index]; child = this.ends[child]) {
+                        traverse(child, listener);
+                    }
+
+                    endType.fireEvent(listener, parameters);
+                }
+        }
+    }
+}
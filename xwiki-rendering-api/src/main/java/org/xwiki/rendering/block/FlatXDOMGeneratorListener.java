@@ -0,0 +1,463 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.internal.block.CompactParametersMap;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Produce a {@link FlatXDOM} based on events, without creating the blocks of a {@link XDOM}.
+ * <p>
+ * The parameters of end events are ignored, the ones of the matching begin event are used instead.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class FlatXDOMGeneratorListener implements Listener
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    private int[] parents = new int[INITIAL_CAPACITY];
+
+    private int[] ends = new int[INITIAL_CAPACITY];
+
+    private int[] data = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    private int[] openNodes = new int[16];
+
+    private int depth;
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final List<Object[]> eventParameters = new ArrayList<>();
+
+    /**
+     * @return the generated {@link FlatXDOM}
+     */
+    public FlatXDOM getFlatXDOM()
+    {
+        if (this.depth > 0) {
+            throw new IllegalStateException("The [" + this.depth + "] last begin events have not been closed");
+        }
+
+        return new FlatXDOM(Arrays.copyOf(this.types, this.size), Arrays.copyOf(this.parents, this.size),
+            Arrays.copyOf(this.ends, this.size), Arrays.copyOf(this.data, this.size),
+            this.strings.toArray(new String[this.strings.size()]),
+            this.eventParameters.toArray(new Object[this.eventParameters.size()][]));
+    }
+
+    private int addNode(EventType type, int value)
+    {
+        if (this.size == this.types.length) {
+            int capacity = this.size * 2;
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.parents = Arrays.copyOf(this.parents, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.data = Arrays.copyOf(this.data, capacity);
+        }
+
+        int index = this.size++;
+        this.types[index] = (byte) type.ordinal();
+        this.parents[index] = this.depth > 0 ? this.openNodes[this.depth - 1] : -1;
+        this.ends[index] = index + 1;
+        this.data[index] = value;
+
+        return index;
+    }
+
+    private int addEventParameters(Object... parameters)
+    {
+        if (parameters.length == 0) {
+            return -1;
+        }
+
+        this.eventParameters.add(parameters);
+
+        return this.eventParameters.size() - 1;
+    }
+
+    private int addString(String value)
+    {
+        Integer index = this.stringIndexes.get(value);
+        if (index == null) {
+            index = this.strings.size();
+            this.strings.add(value);
+            this.stringIndexes.put(value, index);
+        }
+
+        return index;
+    }
+
+    private Map<String, String> parameters(Map<String, String> parameters)
+    {
+        return CompactParametersMap.of(parameters);
+    }
+
+    private void begin(EventType type, Object... parameters)
+    {
+        int index = addNode(type, addEventParameters(parameters));
+
+        if (this.depth == this.openNodes.length) {
+            this.openNodes = Arrays.copyOf(this.openNodes, this.depth * 2);
+        }
+        this.openNodes[this.depth++] = index;
+    }
+
+    private void end()
+    {
+        if (this.depth == 0) {
+            throw new IllegalStateException("End event without matching begin event");
+        }
+
+        this.ends[this.openNodes[--this.depth]] = this.size;
+    }
+
+    private void on(EventType type, Object... parameters)
+    {
+        addNode(type, addEventParameters(parameters));
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        begin(EventType.BEGIN_DOCUMENT, metadata != null ? metadata : MetaData.EMPTY);
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        end();
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        begin(EventType.BEGIN_METADATA, metadata != null ? metadata : MetaData.EMPTY);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        end();
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_GROUP, parameters(parameters));
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_FORMAT, format != null ? format : Format.NONE, parameters(parameters));
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_PARAGRAPH, parameters(parameters));
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_LIST, type, parameters(parameters));
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_DEFINITION_LIST, parameters(parameters));
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        begin(EventType.BEGIN_LIST_ITEM);
+    }
+
+    @Override
+    public void endListItem()
+    {
+        end();
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        begin(EventType.BEGIN_DEFINITION_TERM);
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        end();
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        begin(EventType.BEGIN_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        end();
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_TABLE, parameters(parameters));
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_TABLE_ROW, parameters(parameters));
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_TABLE_CELL, parameters(parameters));
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_TABLE_HEAD_CELL, parameters(parameters));
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_SECTION, parameters(parameters));
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_HEADER, level, id, parameters(parameters));
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> parameters, String content, boolean inline)
+    {
+        begin(EventType.BEGIN_MACRO_MARKER, name, parameters(parameters), content, inline);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> parameters, String content, boolean inline)
+    {
+        end();
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_QUOTATION, parameters(parameters));
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        begin(EventType.BEGIN_QUOTATION_LINE);
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        end();
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        begin(EventType.BEGIN_LINK, reference, freestanding, parameters(parameters));
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        end();
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        addNode(EventType.ON_NEW_LINE, -1);
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        on(EventType.ON_MACRO, id, parameters(parameters), content, inline);
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        addNode(EventType.ON_WORD, addString(word));
+    }
+
+    @Override
+    public void onSpace()
+    {
+        addNode(EventType.ON_SPACE, -1);
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        addNode(EventType.ON_SPECIAL_SYMBOL, symbol);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        addNode(EventType.ON_ID, addString(name));
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        on(EventType.ON_HORIZONTAL_LINE, parameters(parameters));
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        addNode(EventType.ON_EMPTY_LINES, count);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        on(EventType.ON_VERBATIM, content, inline, parameters(parameters));
+    }
+
+    @Override
+    public void onRawText(String content, Syntax syntax)
+    {
+        on(EventType.ON_RAW_TEXT, content, syntax);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        on(EventType.ON_IMAGE, reference, freestanding, parameters(parameters));
+    }
+}
@@ -25,6 +25,7 @@
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.stability.Unstable;
 
 /**
  * Contains the full tree of {@link Block} that represent a XWiki Document's content.
@@ -47,6 +48,11 @@ public class XDOM extends MetaDataBlock
      */
     private transient IdGenerator idGenerator;
 
+    /**
+     * @see #getSourcePositions()
+     */
+    private transient BlockSourcePositions sourcePositions;
+
     /**
      * @param childBlocks the list of children blocks of the block to construct
      * @see AbstractBlock#AbstractBlock(List)
@@ -104,6 +110,27 @@ public void setIdGenerator(IdGenerator idGenerator)
         this.idGenerator = idGenerator;
     }
 
+    /**
+     * @return the positions of the blocks of this document in the parsed content, {@code null} if they have not been
+     *         collected
+     * @since 10.0RC1
+     */
+    @Unstable
+    public BlockSourcePositions getSourcePositions()
+    {
+        return this.sourcePositions;
+    }
+
+    /**
+     * @param sourcePositions the positions of the blocks of this document in the parsed content
+     * @since 10.0RC1
+     */
+    @Unstable
+    public void setSourcePositions(BlockSourcePositions sourcePositions)
+    {
+        this.sourcePositions = sourcePositions;
+    }
+
     @Override
     public void before(Listener listener)
     {
@@ -121,4 +148,15 @@ public XDOM clone()
     {
         return (XDOM) super.clone();
     }
+
+    @Override
+    public Block clone(BlockFilter blockFilter)
+    {
+        XDOM xdom = (XDOM) super.clone(blockFilter);
+
+        // The positions are associated with the blocks of this document
+        xdom.sourcePositions = null;
+
+        return xdom;
+    }
 }
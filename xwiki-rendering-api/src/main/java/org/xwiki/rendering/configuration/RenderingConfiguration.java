@@ -23,6 +23,8 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.util.StringPool;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration properties for the Rendering module.
@@ -70,4 +72,27 @@
      * @since 3.3M1
      */
     List<String> getTransformationNames();
+
+    /**
+     * @return the pool used by parsers to share the strings (words, parameters, etc.) of the XDOMs they produce or
+     *         {@code null} if strings should not be pooled (the default)
+     * @since 10.0RC1
+     */
+    @Unstable
+    default StringPool getStringPool()
+    {
+        return null;
+    }
+
+    /**
+     * @return {@code true} if the parsers supporting it should record the position in the parsed content of the top
+     *         level blocks and of the macros (see {@link org.xwiki.rendering.block.BlockSourcePositions}),
+     *         {@code false} by default
+     * @since 10.0RC1
+     */
+    @Unstable
+    default boolean isSourcePositionEnabled()
+    {
+        return false;
+    }
 }
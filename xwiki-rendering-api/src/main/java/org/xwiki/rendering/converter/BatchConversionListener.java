@@ -0,0 +1,49 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.converter;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Receive the result of each document converted by a {@link BatchConverter}. The methods are called from the threads
+ * converting the documents so implementations must be thread safe.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public interface BatchConversionListener
+{
+    /**
+     * Called when a document has been converted.
+     *
+     * @param input the converted document
+     * @param result the content in the target syntax
+     */
+    void onSuccess(ConversionInput input, String result);
+
+    /**
+     * Called when the conversion of a document failed. The other documents are still converted.
+     *
+     * @param input the document which could not be converted
+     * @param error the conversion error
+     */
+    void onFailure(ConversionInput input, ConversionException error);
+}
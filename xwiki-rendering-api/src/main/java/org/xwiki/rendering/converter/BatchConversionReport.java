@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.converter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Statistics about a batch conversion executed by a {@link BatchConverter}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class BatchConversionReport
+{
+    private final long documentCount;
+
+    private final long failureCount;
+
+    private final long duration;
+
+    /**
+     * @param documentCount the number of documents which have been converted or failed
+     * @param failureCount the number of documents which failed to be converted
+     * @param duration the duration of the whole batch in nanoseconds
+     */
+    public BatchConversionReport(long documentCount, long failureCount, long duration)
+    {
+        this.documentCount = documentCount;
+        this.failureCount = failureCount;
+        this.duration = duration;
+    }
+
+    /**
+     * @return the number of documents which have been converted or failed
+     */
+    public long getDocumentCount()
+    {
+        return this.documentCount;
+    }
+
+    /**
+     * @return the number of documents which failed to be converted
+     */
+    public long getFailureCount()
+    {
+        return this.failureCount;
+    }
+
+    /**
+     * @return the duration of the whole batch in nanoseconds
+     */
+    public long getDuration()
+    {
+        return this.duration;
+    }
+
+    /**
+     * @return the number of documents converted per second, 0 if the batch was empty
+     */
+    public double getThroughput()
+    {
+        return this.duration > 0 ? (double) this.documentCount * TimeUnit.SECONDS.toNanos(1) / this.duration : 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d documents (%d failures) in %d ms (%.1f documents/s)", this.documentCount,
+            this.failureCount, TimeUnit.NANOSECONDS.toMillis(this.duration), getThroughput());
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.converter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Convert many documents to another Syntax in parallel, executing all registered Transformations on each of them
+ * like {@link Converter} does.
+ * <p>
+ * Each worker thread looks up the parsers and renderer only once for the whole batch (the instances are generally
+ * singleton components, shared between the workers). Each document is converted with an execution context (a new one
+ * when the worker thread doesn't have any) and the failure of a document doesn't prevent the conversion of the
+ * others.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Role
+@Unstable
+public interface BatchConverter
+{
+    /**
+     * Convert the passed documents using the passed executor. The inputs are consumed on the calling thread as the
+     * workers become available and the method returns once all the documents have been converted.
+     *
+     * @param inputs the documents to convert
+     * @param targetSyntax the Syntax to which to convert to
+     * @param listener receive the result of each document
+     * @param executor the executor running the conversions
+     * @return statistics about the conversion
+     * @throws ConversionException when no renderer can be found for the target syntax
+     * @throws InterruptedException when the calling thread is interrupted while waiting for the conversions
+     */
+    BatchConversionReport convert(Stream<ConversionInput> inputs, Syntax targetSyntax,
+        BatchConversionListener listener, Executor executor) throws ConversionException, InterruptedException;
+
+    /**
+     * Convert the passed documents using a dedicated fork-join pool.
+     *
+     * @param inputs the documents to convert
+     * @param targetSyntax the Syntax to which to convert to
+     * @param listener receive the result of each document
+     * @param parallelism the number of documents converted in parallel
+     * @return statistics about the conversion
+     * @throws ConversionException when no renderer can be found for the target syntax
+     * @throws InterruptedException when the calling thread is interrupted while waiting for the conversions
+     */
+    default BatchConversionReport convert(Stream<ConversionInput> inputs, Syntax targetSyntax,
+        BatchConversionListener listener, int parallelism) throws ConversionException, InterruptedException
+    {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            return convert(inputs, targetSyntax, listener, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.block;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable block parameters map storing keys and values in a single array, in insertion order.
+ * <p>
+ * Most blocks have no parameter or only a few of them so a lookup in a small array is as fast as a hash lookup while
+ * taking a lot less memory than a {@link LinkedHashMap}. Bigger maps are stored as an unmodifiable
+ * {@link LinkedHashMap} and empty maps are always the shared {@link Collections#emptyMap()} instance.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public final class CompactParametersMap extends AbstractMap<String, String>
+{
+    /**
+     * Maximum number of entries stored in an array.
+     */
+    private static final int MAX_COMPACT_SIZE = 8;
+
+    /**
+     * Keys at even indexes and values at odd indexes.
+     */
+    private final String[] entries;
+
+    private Set<Map.Entry<String, String>> entrySet;
+
+    private CompactParametersMap(String[] entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * @param parameters the parameters to copy
+     * @return an immutable map containing the passed parameters, the passed map itself when it's already immutable
+     */
+    public static Map<String, String> of(Map<String, String> parameters)
+    {
+        if (parameters == null || parameters.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        if (isImmutable(parameters)) {
+            return parameters;
+        }
+
+        int size = parameters.size();
+        if (size > MAX_COMPACT_SIZE) {
+            return new UnmodifiableParametersMap(new LinkedHashMap<>(parameters));
+        }
+
+        String[] entries = new String[size * 2];
+        int index = 0;
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            entries[index++] = entry.getKey();
+            entries[index++] = entry.getValue();
+        }
+
+        return new CompactParametersMap(entries);
+    }
+
+    /**
+     * @param parameters an immutable map returned by {@link #of(Map)}
+     * @param name the name of the parameter to set
+     * @param value the value of the parameter to set
+     * @return a new immutable map with the passed parameter added or replaced
+     */
+    public static Map<String, String> with(Map<String, String> parameters, String name, String value)
+    {
+        if (parameters instanceof CompactParametersMap) {
+            String[] currentEntries = ((CompactParametersMap) parameters).entries;
+
+            int index = ((CompactParametersMap) parameters).indexOf(name);
+            if (index >= 0) {
+                String[] entries = currentEntries.clone();
+                entries[index + 1] = value;
+
+                return new CompactParametersMap(entries);
+            } else if (currentEntries.length < MAX_COMPACT_SIZE * 2) {
+                String[] entries = new String[currentEntries.length + 2];
+                System.arraycopy(currentEntries, 0, entries, 0, currentEntries.length);
+                entries[currentEntries.length] = name;
+                entries[currentEntries.length + 1] = value;
+
+                return new CompactParametersMap(entries);
+            }
+        } else if (parameters.isEmpty()) {
+            return new CompactParametersMap(new String[] { name, value });
+        }
+
+        Map<String, String> newParameters = new LinkedHashMap<>(parameters);
+        newParameters.put(name, value);
+
+        return new UnmodifiableParametersMap(newParameters);
+    }
+
+    private static boolean isImmutable(Map<String, String> parameters)
+    {
+        return parameters instanceof CompactParametersMap || parameters instanceof UnmodifiableParametersMap;
+    }
+
+    private int indexOf(Object key)
+    {
+        for (int i = 0; i < this.entries.length; i += 2) {
+            if (Objects.equals(this.entries[i], key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.entries.length / 2;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.entries.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key)
+    {
+        int index = indexOf(key);
+
+        return index >= 0 ? this.entries[index + 1] : null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet()
+    {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<Map.Entry<String, String>>()
+            {
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator()
+                {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return CompactParametersMap.this.size();
+                }
+            };
+        }
+
+        return this.entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, String>>
+    {
+        private int index;
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < CompactParametersMap.this.entries.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<String, String> entry = new AbstractMap.SimpleImmutableEntry<>(
+                CompactParametersMap.this.entries[this.index], CompactParametersMap.this.entries[this.index + 1]);
+            this.index += 2;
+
+            return entry;
+        }
+    }
+
+    /**
+     * Immutable map too big to be stored in an array, the wrapped map is never modified once created.
+     */
+    private static final class UnmodifiableParametersMap extends AbstractMap<String, String>
+    {
+        private final Map<String, String> parameters;
+
+        UnmodifiableParametersMap(Map<String, String> parameters)
+        {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public int size()
+        {
+            return this.parameters.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return this.parameters.containsKey(key);
+        }
+
+        @Override
+        public String get(Object key)
+        {
+            return this.parameters.get(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet()
+        {
+            return Collections.unmodifiableMap(this.parameters).entrySet();
+        }
+    }
+}
@@ -35,6 +35,7 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.rendering.configuration.RenderingConfiguration;
 import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.util.StringPool;
 
 /**
  * Basic default implementation to be used when using the XWiki Rendering system standalone.
@@ -74,6 +75,16 @@ public class DefaultRenderingConfiguration implements RenderingConfiguration, In
      */
     private Properties interWikiDefinitions = new Properties();
 
+    /**
+     * @see #getStringPool()
+     */
+    private StringPool stringPool;
+
+    /**
+     * @see #isSourcePositionEnabled()
+     */
+    private boolean sourcePositionEnabled;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -131,4 +142,40 @@ public List<String> getTransformationNames()
     {
         return this.transformationNames;
     }
+
+    @Override
+    public StringPool getStringPool()
+    {
+        return this.stringPool;
+    }
+
+    /**
+     * @param stringPool the pool used by parsers to share the strings of the XDOMs they produce, {@code null} to
+     *            disable pooling
+     * @since 10.0RC1
+     */
+    public void setStringPool(StringPool stringPool)
+    {
+        // This method is useful for those using the XWiki Rendering in standalone mode since it allows the rendering
+        // to work even without a configuration store.
+        this.stringPool = stringPool;
+    }
+
+    @Override
+    public boolean isSourcePositionEnabled()
+    {
+        return this.sourcePositionEnabled;
+    }
+
+    /**
+     * @param sourcePositionEnabled {@code true} if parsers should record the position in the parsed content of the top
+     *            level blocks and of the macros
+     * @since 10.0RC1
+     */
+    public void setSourcePositionEnabled(boolean sourcePositionEnabled)
+    {
+        // This method is useful for those using the XWiki Rendering in standalone mode since it allows the rendering
+        // to work even without a configuration store.
+        this.sourcePositionEnabled = sourcePositionEnabled;
+    }
 }
@@ -0,0 +1,288 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.converter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.converter.BatchConversionListener;
+import org.xwiki.rendering.converter.BatchConversionReport;
+import org.xwiki.rendering.converter.BatchConverter;
+import org.xwiki.rendering.converter.ConversionException;
+import org.xwiki.rendering.converter.ConversionInput;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+import org.xwiki.rendering.transformation.TransformationManager;
+
+/**
+ * Default implementation for {@link BatchConverter}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Component
+@Singleton
+public class DefaultBatchConverter implements BatchConverter
+{
+    /**
+     * The number of documents waiting for a worker for each worker, so that workers don't wait for the inputs.
+     */
+    private static final int PENDING_DOCUMENTS_PER_WORKER = 2;
+
+    /**
+     * Used to lookup parsers and renderers.
+     */
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    /**
+     * Used to execute transformations.
+     */
+    @Inject
+    private TransformationManager transformationManager;
+
+    /**
+     * Used to give each conversion an execution context (where the rendering context is stored for example).
+     */
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    /**
+     * The parsers and renderer used by a worker thread during a batch. They are looked up only once per worker but
+     * note that they are generally singleton components, shared with the other workers.
+     */
+    private final class Worker
+    {
+        private final ComponentManager componentManager;
+
+        private final Syntax targetSyntax;
+
+        private final Map<Syntax, Parser> parsers = new HashMap<>();
+
+        private BlockRenderer renderer;
+
+        Worker(ComponentManager componentManager, Syntax targetSyntax)
+        {
+            this.componentManager = componentManager;
+            this.targetSyntax = targetSyntax;
+        }
+
+        String convert(ConversionInput input) throws ConversionException
+        {
+            // Step 1: Find the parser and generate a XDOM
+            XDOM xdom;
+            try {
+                xdom = getParser(input.getSyntax()).parse(input.getSource());
+            } catch (ParseException e) {
+                throw new ConversionException("Failed to parse input source", e);
+            }
+
+            // Step 2: Run transformations
+            try {
+                TransformationContext context = new TransformationContext(xdom, input.getSyntax());
+                context.setId(input.getId());
+                context.setTargetSyntax(this.targetSyntax);
+                transformationManager.performTransformations(xdom, context);
+            } catch (TransformationException e) {
+                throw new ConversionException("Failed to execute some transformations", e);
+            }
+
+            // Step 3: Render the content
+            DefaultWikiPrinter printer = new DefaultWikiPrinter();
+            getRenderer().render(xdom, printer);
+
+            return printer.toString();
+        }
+
+        private Parser getParser(Syntax syntax) throws ConversionException
+        {
+            Parser parser = this.parsers.get(syntax);
+
+            if (parser == null) {
+                try {
+                    parser = this.componentManager.getInstance(Parser.class, syntax.toIdString());
+                } catch (ComponentLookupException e) {
+                    throw new ConversionException("Failed to locate Parser for syntax [" + syntax + "]", e);
+                }
+                this.parsers.put(syntax, parser);
+            }
+
+            return parser;
+        }
+
+        private BlockRenderer getRenderer() throws ConversionException
+        {
+            if (this.renderer == null) {
+                try {
+                    this.renderer =
+                        this.componentManager.getInstance(BlockRenderer.class, this.targetSyntax.toIdString());
+                } catch (ComponentLookupException e) {
+                    throw new ConversionException("Failed to locate Renderer for syntax [" + this.targetSyntax + "]",
+                        e);
+                }
+            }
+
+            return this.renderer;
+        }
+    }
+
+    @Override
+    public BatchConversionReport convert(Stream<ConversionInput> inputs, Syntax targetSyntax,
+        BatchConversionListener listener, Executor executor) throws ConversionException, InterruptedException
+    {
+        // Resolve the component manager on the calling thread since the context is not available in the workers
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (!componentManager.hasComponent(BlockRenderer.class, targetSyntax.toIdString())) {
+            throw new ConversionException("Failed to locate Renderer for syntax [" + targetSyntax + "]");
+        }
+
+        ConcurrentMap<Thread, Worker> workers = new ConcurrentHashMap<>();
+        LongAdder documentCount = new LongAdder();
+        LongAdder failureCount = new LongAdder();
+
+        // Limit the number of documents waiting for a worker so that the inputs are consumed progressively
+        int maxPendingDocuments = getParallelism(executor) * PENDING_DOCUMENTS_PER_WORKER;
+        Semaphore pendingDocuments = new Semaphore(maxPendingDocuments);
+
+        long start = System.nanoTime();
+
+        try {
+            Iterator<ConversionInput> iterator = inputs.iterator();
+            while (iterator.hasNext()) {
+                ConversionInput input = iterator.next();
+
+                pendingDocuments.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            Worker worker = workers.computeIfAbsent(Thread.currentThread(),
+                                thread -> new Worker(componentManager, targetSyntax));
+                            convertInExecutionContext(input, worker, listener, failureCount);
+                        } finally {
+                            documentCount.increment();
+                            pendingDocuments.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pendingDocuments.release();
+
+                    throw e;
+                }
+            }
+        } finally {
+            // Wait for the documents being converted
+            pendingDocuments.acquire(maxPendingDocuments);
+        }
+
+        return new BatchConversionReport(documentCount.sum(), failureCount.sum(), System.nanoTime() - start);
+    }
+
+    private void convertInExecutionContext(ConversionInput input, Worker worker, BatchConversionListener listener,
+        LongAdder failureCount)
+    {
+        // The worker threads don't have an execution context, unless the executor runs the task in the calling thread
+        boolean initializeContext = this.execution.getContext() == null;
+        if (initializeContext) {
+            try {
+                this.executionContextManager.initialize(new ExecutionContext());
+            } catch (ExecutionContextException e) {
+                failureCount.increment();
+                listener.onFailure(input, new ConversionException(
+                    "Failed to initialize the execution context to convert document [" + input.getId() + "]", e));
+
+                return;
+            }
+        }
+
+        try {
+            convert(input, worker, listener, failureCount);
+        } finally {
+            if (initializeContext) {
+                this.execution.removeContext();
+            }
+        }
+    }
+
+    private void convert(ConversionInput input, Worker worker, BatchConversionListener listener,
+        LongAdder failureCount)
+    {
+        String result;
+        try {
+            result = worker.convert(input);
+        } catch (ConversionException e) {
+            failureCount.increment();
+            listener.onFailure(input, e);
+
+            return;
+        } catch (VirtualMachineError e) {
+            // Don't try to go on with the batch when the JVM is in trouble (out of memory, etc.)
+            throw e;
+        } catch (Throwable e) {
+            // Report anything else (e.g. a LinkageError in a macro) as a failure of this document only
+            failureCount.increment();
+            listener.onFailure(input,
+                new ConversionException("Unexpected error when converting document [" + input.getId() + "]", e));
+
+            return;
+        }
+
+        listener.onSuccess(input, result);
+    }
+
+    private int getParallelism(Executor executor)
+    {
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
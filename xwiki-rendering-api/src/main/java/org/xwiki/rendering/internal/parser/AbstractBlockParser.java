@@ -26,6 +26,8 @@
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.Parser;
 import org.xwiki.rendering.parser.StreamParser;
@@ -44,6 +46,18 @@ public abstract class AbstractBlockParser implements Parser
     @Inject
     private ComponentManager componentManager;
 
+    /**
+     * Used to get the pool used to share the strings of the produced XDOM.
+     */
+    @Inject
+    private RenderingConfiguration renderingConfiguration;
+
+    /**
+     * Used to report the duration of parsings.
+     */
+    @Inject
+    private RenderingMetrics metrics;
+
     /**
      * @return the {@link StreamParser} to use to parser the input content
      */
@@ -62,7 +76,27 @@ protected StreamParser getStreamParser()
     @Override
     public XDOM parse(Reader source) throws ParseException
     {
-        XDOMGeneratorListener listener = new XDOMGeneratorListener();
+        long start = this.metrics != null && this.metrics.isEnabled() ? System.nanoTime() : 0;
+        XDOM xdom = null;
+        Throwable error = null;
+
+        try {
+            xdom = parseXDOM(source);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            if (start != 0) {
+                this.metrics.onParse(getSyntax(), xdom, System.nanoTime() - start, error);
+            }
+        }
+
+        return xdom;
+    }
+
+    private XDOM parseXDOM(Reader source) throws ParseException
+    {
+        XDOMGeneratorListener listener = new XDOMGeneratorListener(this.renderingConfiguration.getStringPool());
 
         getStreamParser().parse(source, listener);
 
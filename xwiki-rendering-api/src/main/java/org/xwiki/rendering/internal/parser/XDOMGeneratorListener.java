@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.parser;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.xwiki.rendering.block.BulletedListBlock;
@@ -60,6 +61,7 @@
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.StringPool;
 
 /**
  * Produce a {@link XDOM} based on events.
@@ -71,6 +73,29 @@ public class XDOMGeneratorListener implements Listener
 {
     private XDOMBuilder builder = new XDOMBuilder();
 
+    /**
+     * Used to share the strings of the produced blocks, {@code null} if strings should not be pooled.
+     */
+    private final StringPool stringPool;
+
+    /**
+     * Produce a {@link XDOM} without pooling its strings.
+     */
+    public XDOMGeneratorListener()
+    {
+        this(null);
+    }
+
+    /**
+     * @param stringPool the pool used to share the words, macro identifiers and parameters of the produced blocks,
+     *            {@code null} if strings should not be pooled
+     * @since 10.0RC1
+     */
+    public XDOMGeneratorListener(StringPool stringPool)
+    {
+        this.stringPool = stringPool;
+    }
+
     /**
      * @return the generated {@link XDOM}.
      */
@@ -218,8 +243,7 @@ public void endDefinitionDescription()
     @Override
     public void endDefinitionList(Map<String, String> parameters)
     {
-        this.builder.addBlock(new DefinitionListBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new DefinitionListBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
@@ -243,32 +267,28 @@ public void endDocument(MetaData metadata)
     public void endFormat(Format format, Map<String, String> parameters)
     {
         this.builder.addBlock(new FormatBlock(this.builder.endBlockList(), format != null ? format : Format.NONE,
-            parameters != null ? parameters : Listener.EMPTY_PARAMETERS));
+            pool(parameters)));
     }
 
     @Override
     public void endGroup(Map<String, String> parameters)
     {
-        this.builder.addBlock(new GroupBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new GroupBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
     {
-        this.builder.addBlock(new HeaderBlock(this.builder.endBlockList(), level, parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS, id));
+        this.builder.addBlock(new HeaderBlock(this.builder.endBlockList(), level, pool(parameters), id));
     }
 
     @Override
     public void endList(ListType type, Map<String, String> parameters)
     {
         if (type == ListType.BULLETED) {
-            this.builder.addBlock(new BulletedListBlock(this.builder.endBlockList(), parameters != null ? parameters
-                : Listener.EMPTY_PARAMETERS));
+            this.builder.addBlock(new BulletedListBlock(this.builder.endBlockList(), pool(parameters)));
         } else {
-            this.builder.addBlock(new NumberedListBlock(this.builder.endBlockList(), parameters != null ? parameters
-                : Listener.EMPTY_PARAMETERS));
+            this.builder.addBlock(new NumberedListBlock(this.builder.endBlockList(), pool(parameters)));
         }
     }
 
@@ -281,22 +301,20 @@ public void endListItem()
     @Override
     public void endMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
     {
-        this.builder.addBlock(new MacroMarkerBlock(name, macroParameters != null ? macroParameters
-            : Listener.EMPTY_PARAMETERS, content, this.builder.endBlockList(), isInline));
+        this.builder.addBlock(new MacroMarkerBlock(pool(name), pool(macroParameters), content,
+            this.builder.endBlockList(), isInline));
     }
 
     @Override
     public void endParagraph(Map<String, String> parameters)
     {
-        this.builder.addBlock(new ParagraphBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new ParagraphBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endQuotation(Map<String, String> parameters)
     {
-        this.builder.addBlock(new QuotationBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new QuotationBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
@@ -308,44 +326,37 @@ public void endQuotationLine()
     @Override
     public void endSection(Map<String, String> parameters)
     {
-        this.builder.addBlock(new SectionBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new SectionBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endTable(Map<String, String> parameters)
     {
-        this.builder.addBlock(new TableBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new TableBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endTableCell(Map<String, String> parameters)
     {
-        this.builder.addBlock(new TableCellBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new TableCellBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endTableHeadCell(Map<String, String> parameters)
     {
-        this.builder.addBlock(new TableHeadCellBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new TableHeadCellBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endTableRow(Map<String, String> parameters)
     {
-        this.builder.addBlock(new TableRowBlock(this.builder.endBlockList(), parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new TableRowBlock(this.builder.endBlockList(), pool(parameters)));
     }
 
     @Override
     public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
-        this.builder.addBlock(new LinkBlock(this.builder.endBlockList(), reference, freestanding,
-            parameters != null
-            ? parameters : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new LinkBlock(this.builder.endBlockList(), reference, freestanding, pool(parameters)));
     }
 
     /**
@@ -368,7 +379,7 @@ public void onEmptyLines(int count)
     @Override
     public void onHorizontalLine(Map<String, String> parameters)
     {
-        this.builder.addBlock(new HorizontalLineBlock(parameters != null ? parameters : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new HorizontalLineBlock(pool(parameters)));
     }
 
     @Override
@@ -380,8 +391,7 @@ public void onId(String name)
     @Override
     public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
     {
-        this.builder.addBlock(new MacroBlock(id, parameters != null ? parameters : Listener.EMPTY_PARAMETERS,
-            content, inline));
+        this.builder.addBlock(new MacroBlock(pool(id), pool(parameters), content, inline));
     }
 
     @Override
@@ -411,21 +421,41 @@ public void onSpecialSymbol(char symbol)
     @Override
     public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
     {
-        this.builder.addBlock(new VerbatimBlock(content,
-            parameters != null ? parameters : Listener.EMPTY_PARAMETERS,
-            inline));
+        this.builder.addBlock(new VerbatimBlock(content, pool(parameters), inline));
     }
 
     @Override
     public void onWord(String word)
     {
-        this.builder.addBlock(new WordBlock(word));
+        this.builder.addBlock(new WordBlock(pool(word)));
     }
 
     @Override
     public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
-        this.builder.addBlock(new ImageBlock(reference, freestanding, parameters != null ? parameters
-            : Listener.EMPTY_PARAMETERS));
+        this.builder.addBlock(new ImageBlock(reference, freestanding, pool(parameters)));
+    }
+
+    private String pool(String value)
+    {
+        return this.stringPool != null ? this.stringPool.intern(value) : value;
+    }
+
+    private Map<String, String> pool(Map<String, String> parameters)
+    {
+        if (parameters == null) {
+            return Listener.EMPTY_PARAMETERS;
+        }
+
+        if (this.stringPool == null || parameters.isEmpty()) {
+            return parameters;
+        }
+
+        Map<String, String> pooledParameters = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            pooledParameters.put(this.stringPool.intern(entry.getKey()), this.stringPool.intern(entry.getValue()));
+        }
+
+        return pooledParameters;
     }
 }
@@ -28,6 +28,7 @@
 
 import org.slf4j.Logger;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
@@ -44,6 +45,12 @@ public abstract class AbstractBlockRenderer implements BlockRenderer
     @Inject
     protected Logger logger;
 
+    /**
+     * Used to report the duration of renderings.
+     */
+    @Inject
+    private RenderingMetrics metrics;
+
     /**
      * @return provide the factory to use to create a new {@link PrintRenderer}.
      */
@@ -58,7 +65,27 @@ public void render(Block block, WikiPrinter printer)
     @Override
     public void render(Collection<Block> blocks, WikiPrinter printer)
     {
-        PrintRenderer renderer = getPrintRendererFactory().createRenderer(printer);
+        long start = this.metrics != null && this.metrics.isEnabled() ? System.nanoTime() : 0;
+        Throwable error = null;
+
+        try {
+            render(blocks, getPrintRendererFactory().createRenderer(printer));
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            if (start != 0) {
+                this.metrics.onRender(getPrintRendererFactory().getSyntax(), blocks, System.nanoTime() - start, error);
+            }
+        }
+    }
+
+    private void render(Collection<Block> blocks, PrintRenderer renderer)
+    {
+        if (renderer instanceof PrefetchingRenderer) {
+            ((PrefetchingRenderer) renderer).prefetch(blocks);
+        }
+
         for (Block block : blocks) {
             block.traverse(renderer);
         }
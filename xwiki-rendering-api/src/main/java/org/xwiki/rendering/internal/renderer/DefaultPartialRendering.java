@@ -0,0 +1,260 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.CompositeBlock;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PartialRendering;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+import org.xwiki.rendering.transformation.TransformationManager;
+
+/**
+ * Default implementation of {@link PartialRendering}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class DefaultPartialRendering implements PartialRendering
+{
+    private final XDOM xdom;
+
+    private final TransformationContext context;
+
+    private final TransformationManager transformationManager;
+
+    /**
+     * The roots of the parts which have already been transformed.
+     */
+    private final Set<Block> transformedBlocks = Collections.newSetFromMap(new IdentityHashMap<Block, Boolean>());
+
+    /**
+     * @param xdom the document to render by parts
+     * @param context the context of the transformations
+     * @param transformationManager used to execute the transformations of the parts
+     */
+    public DefaultPartialRendering(XDOM xdom, TransformationContext context,
+        TransformationManager transformationManager)
+    {
+        this.xdom = xdom.clone();
+        this.context = context.clone();
+        this.context.setXDOM(this.xdom);
+        this.transformationManager = transformationManager;
+    }
+
+    @Override
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    @Override
+    public SectionBlock getSection(String headerId)
+    {
+        List<HeaderBlock> headers =
+            this.xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+        for (HeaderBlock header : headers) {
+            if (headerId.equals(header.getId())) {
+                return header.getSection();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<Block> transform(Block first, Block last) throws TransformationException
+    {
+        List<Block> result = new ArrayList<>();
+        TransformationException error = transform(first, last, result);
+        if (error != null) {
+            throw error;
+        }
+
+        return result;
+    }
+
+    @Override
+    public void render(Block first, Block last, BlockRenderer renderer, WikiPrinter printer)
+        throws TransformationException
+    {
+        List<Block> blocks = new ArrayList<>();
+        TransformationException error = transform(first, last, blocks);
+
+        render(first.getParent(), blocks, renderer, printer);
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Render the passed blocks in the metadata they have in the document (the metadata of the document and of the
+     * enclosing {@link MetaDataBlock}s), since renderers depend on them (e.g. to resolve the references of the links
+     * and images relatively to the {@link MetaData#BASE} reference).
+     *
+     * @param parent the parent of the blocks to render
+     * @param blocks the blocks to render
+     * @param renderer the renderer to use
+     * @param printer the printer receiving the rendered content
+     */
+    private void render(Block parent, List<Block> blocks, BlockRenderer renderer, WikiPrinter printer)
+    {
+        // Outermost first
+        Deque<MetaData> metaDatas = new ArrayDeque<>();
+        for (Block block = parent; block != null; block = block.getParent()) {
+            if (block instanceof MetaDataBlock) {
+                addMetaData(((MetaDataBlock) block).getMetaData(), metaDatas);
+            } else if (block instanceof XDOM) {
+                addMetaData(((XDOM) block).getMetaData(), metaDatas);
+            }
+        }
+
+        if (metaDatas.isEmpty()) {
+            renderer.render(blocks, printer);
+            return;
+        }
+
+        // Temporarily move the blocks to the metadata blocks, a placeholder standing in their place in the document
+        CompositeBlock placeholder = new CompositeBlock();
+        parent.insertChildBefore(placeholder, blocks.get(0));
+        for (Block block : blocks) {
+            parent.removeBlock(block);
+        }
+
+        try {
+            List<Block> children = blocks;
+            for (Iterator<MetaData> it = metaDatas.descendingIterator(); it.hasNext();) {
+                children = Collections.<Block>singletonList(new MetaDataBlock(children, it.next()));
+            }
+
+            renderer.render(children, printer);
+        } finally {
+            for (Block block : blocks) {
+                parent.insertChildBefore(block, placeholder);
+            }
+            parent.removeBlock(placeholder);
+        }
+    }
+
+    private void addMetaData(MetaData metaData, Deque<MetaData> metaDatas)
+    {
+        if (!metaData.getMetaData().isEmpty()) {
+            metaDatas.addFirst(metaData);
+        }
+    }
+
+    private TransformationException transform(Block first, Block last, List<Block> result)
+    {
+        Block parent = first.getParent();
+        List<Block> range = getRange(parent, first, last);
+
+        if (isTransformed(parent) || this.transformedBlocks.containsAll(range)) {
+            result.addAll(range);
+
+            return null;
+        }
+
+        // Move the range to a container standing in its place in the document: the transformations still see the
+        // whole document and the blocks replacing the ones of the range (e.g. macros) stay in the container
+        CompositeBlock container = new CompositeBlock();
+        parent.insertChildBefore(container, first);
+        for (Block block : range) {
+            parent.removeBlock(block);
+        }
+        container.addChildren(range);
+
+        TransformationException error = null;
+        try {
+            this.transformationManager.performTransformations(container, this.context);
+        } catch (TransformationException e) {
+            error = e;
+        } finally {
+            for (Block block : container.getChildren()) {
+                parent.insertChildBefore(block, container);
+                result.add(block);
+            }
+            parent.removeBlock(container);
+            this.transformedBlocks.addAll(result);
+        }
+
+        return error;
+    }
+
+    private List<Block> getRange(Block parent, Block first, Block last)
+    {
+        if (parent == null || last.getParent() != parent || getRoot(parent) != this.xdom) {
+            throw new IllegalArgumentException(
+                "The blocks to render must be siblings taken from the document of the partial rendering");
+        }
+
+        List<Block> range = new ArrayList<>();
+        boolean inRange = false;
+        for (Block child : parent.getChildren()) {
+            inRange |= child == first;
+            if (inRange) {
+                range.add(child);
+                if (child == last) {
+                    return range;
+                }
+            }
+        }
+
+        throw new IllegalArgumentException("The last block to render is before the first one");
+    }
+
+    private Block getRoot(Block block)
+    {
+        Block root = block;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        return root;
+    }
+
+    private boolean isTransformed(Block block)
+    {
+        for (Block current = block; current != null; current = current.getParent()) {
+            if (this.transformedBlocks.contains(current)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.PartialRendering;
+import org.xwiki.rendering.renderer.PartialRenderingManager;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationManager;
+
+/**
+ * Default implementation of {@link PartialRenderingManager}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Component
+@Singleton
+public class DefaultPartialRenderingManager implements PartialRenderingManager
+{
+    /**
+     * Used to execute the transformations of the parts.
+     */
+    @Inject
+    private TransformationManager transformationManager;
+
+    @Override
+    public PartialRendering createRendering(XDOM xdom, TransformationContext context)
+    {
+        return new DefaultPartialRendering(xdom, context, this.transformationManager);
+    }
+}
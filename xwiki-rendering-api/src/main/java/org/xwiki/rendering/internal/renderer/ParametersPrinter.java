@@ -20,6 +20,7 @@
 package org.xwiki.rendering.internal.renderer;
 
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +37,8 @@
      */
     private static final String QUOTE = "\"";
 
+    private static final String EQUALS_QUOTE = "=" + QUOTE;
+
     private final String escapedStrings;
 
     private char escapeChar;
@@ -116,19 +119,38 @@ public String print(Map<String, String> parameters)
     {
         StringBuilder builder = new StringBuilder();
 
+        print(parameters, builder::append);
+
+        return builder.toString();
+    }
+
+    /**
+     * Print the parameters part by part into the passed output, without building the whole printed String.
+     *
+     * @param parameters the parameters to print
+     * @param output receive the successive parts of the printed parameters
+     * @since 10.0RC1
+     */
+    public void print(Map<String, String> parameters, Consumer<String> output)
+    {
+        boolean first = true;
+
         for (Map.Entry<String, String> entry : parameters.entrySet()) {
             String value = entry.getValue();
             String key = entry.getKey();
 
             if (key != null && value != null) {
-                if (builder.length() > 0) {
-                    builder.append(' ');
+                if (first) {
+                    first = false;
+                } else {
+                    output.accept(" ");
                 }
-                builder.append(print(key, value));
+                output.accept(key);
+                output.accept(EQUALS_QUOTE);
+                output.accept(escape(value));
+                output.accept(QUOTE);
             }
         }
-
-        return builder.toString();
     }
 
     /**
@@ -158,10 +180,16 @@ public String print(String parameterName, String parameterValue, char escapeChar
      * @since 8.2RC1
      */
     public String print(String parameterName, String parameterValue)
+    {
+        return parameterName + EQUALS_QUOTE + escape(parameterValue) + QUOTE;
+    }
+
+    private String escape(String value)
     {
         // escape meaningfull strings
-        String value = this.escaped.matcher(parameterValue).replaceAll(this.replacement);
+        Matcher matcher = this.escaped.matcher(value);
 
-        return parameterName + "=" + QUOTE + value + QUOTE;
+        // Avoid copying the value when there is nothing to escape (which is the most common case)
+        return matcher.find() ? matcher.replaceAll(this.replacement) : value;
     }
 }
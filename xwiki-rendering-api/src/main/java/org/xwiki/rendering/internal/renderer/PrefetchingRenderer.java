@@ -0,0 +1,40 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer;
+
+import java.util.Collection;
+
+import org.xwiki.rendering.block.Block;
+
+/**
+ * Implemented by renderers which can fetch in one go, before receiving the events of some blocks, the data they will
+ * need to render them (for example the existence of the documents targeted by links) instead of fetching it for each
+ * event.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public interface PrefetchingRenderer
+{
+    /**
+     * @param blocks the blocks which are about to be rendered
+     */
+    void prefetch(Collection<Block> blocks);
+}
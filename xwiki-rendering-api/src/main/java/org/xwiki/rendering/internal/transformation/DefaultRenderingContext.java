@@ -31,6 +31,7 @@
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
@@ -62,6 +63,12 @@ public class DefaultRenderingContext implements MutableRenderingContext
     @Inject
     private Execution execution;
 
+    /**
+     * Used to report the duration of transformations.
+     */
+    @Inject
+    private RenderingMetrics metrics;
+
     protected static final class Context implements Cloneable
     {
         /**
@@ -178,11 +185,21 @@ public void pop()
     public void transformInContext(Transformation transformation, TransformationContext context, Block block)
         throws TransformationException
     {
+        long start = this.metrics != null && this.metrics.isEnabled() ? System.nanoTime() : 0;
+        Throwable error = null;
+
         try {
             push(transformation, context);
             transformation.transform(block, context);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
         } finally {
             pop();
+
+            if (start != 0) {
+                this.metrics.onTransformation(transformation, context, System.nanoTime() - start, error);
+            }
         }
     }
 
@@ -39,6 +39,7 @@
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.RenderingContext;
 import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationBudget;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
 import org.xwiki.rendering.transformation.TransformationManager;
@@ -54,6 +55,11 @@
 @Singleton
 public class DefaultTransformationManager implements TransformationManager
 {
+    /**
+     * The hint of the transformation executing the macros.
+     */
+    private static final String MACRO_TRANSFORMATION = "macro";
+
     /**
      * Used to updated the rendering context.
      */
@@ -96,7 +102,20 @@ public void performTransformations(XDOM dom, Syntax syntax) throws Transformatio
     public void performTransformations(Block block, TransformationContext context) throws TransformationException
     {
         boolean error = false;
+        boolean skipping = false;
         for (Transformation transformation : getTransformations()) {
+            TransformationBudget budget = context.getBudget();
+            // The macro transformation is still executed so that it replaces the pending macros by errors
+            if (budget != null && budget.isExceeded() && !isMacroTransformation(transformation)) {
+                // Skip the remaining transformations, the content is rendered as it is
+                if (!skipping) {
+                    this.logger.warn("Skipping the remaining transformations of [{}]: {}", context.getId(),
+                        budget.getExceededMessage());
+                    skipping = true;
+                }
+                continue;
+            }
+
             try {
                 ((MutableRenderingContext) this.renderingContext).transformInContext(transformation, context, block);
             } catch (Exception e) {
@@ -111,6 +130,21 @@ public void performTransformations(Block block, TransformationContext context) t
         }
     }
 
+    /**
+     * @param transformation the transformation to check
+     * @return true if the passed transformation is the one executing the macros
+     */
+    private boolean isMacroTransformation(Transformation transformation)
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        try {
+            return componentManager.hasComponent(Transformation.class, MACRO_TRANSFORMATION)
+                && componentManager.getInstance(Transformation.class, MACRO_TRANSFORMATION) == transformation;
+        } catch (ComponentLookupException e) {
+            return false;
+        }
+    }
+
     /**
      * @return the ordered list of Transformations to execute
      */
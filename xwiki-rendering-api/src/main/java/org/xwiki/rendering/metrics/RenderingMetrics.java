@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.metrics;
+
+import java.util.Collection;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Receive the duration and outcome of the various phases of the rendering: parsing, transformations, macro executions
+ * and rendering. Used to find where time goes when converting some content without using a profiler.
+ * <p>
+ * The default implementation is disabled and does nothing: the rendering doesn't even measure durations in that
+ * case. To collect metrics register another implementation of this role as the default one, implementing only the
+ * methods for the metrics you are interested in. Note that implementations are called from all the threads performing
+ * renderings, synchronously, and thus need to be thread safe and fast.
+ * <p>
+ * Durations are in nanoseconds and errors are {@code null} when the phase succeeded.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Role
+@Unstable
+public interface RenderingMetrics
+{
+    /**
+     * @return true if the metrics should be measured and sent to this component, false to not measure anything
+     */
+    default boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Called when a parser finished generating a {@link XDOM}.
+     *
+     * @param syntax the syntax of the parsed content
+     * @param xdom the generated XDOM, {@code null} when the parsing failed
+     * @param duration the duration of the parsing
+     * @param error the error which made the parsing fail
+     */
+    default void onParse(Syntax syntax, XDOM xdom, long duration, Throwable error)
+    {
+        // Do nothing by default
+    }
+
+    /**
+     * Called when a transformation has been executed.
+     *
+     * @param transformation the executed transformation
+     * @param context the transformation context, giving the identifier of the transformed content
+     * @param duration the duration of the transformation
+     * @param error the error which made the transformation fail
+     */
+    default void onTransformation(Transformation transformation, TransformationContext context, long duration,
+        Throwable error)
+    {
+        // Do nothing by default
+    }
+
+    /**
+     * Called when a macro has been executed by the macro transformation.
+     *
+     * @param macroId the identifier of the executed macro
+     * @param context the context of the macro transformation, giving the identifier of the transformed content
+     * @param duration the duration of the macro execution
+     * @param error the error which made the macro execution fail
+     */
+    default void onMacroExecution(String macroId, TransformationContext context, long duration, Throwable error)
+    {
+        // Do nothing by default
+    }
+
+    /**
+     * Called when a block renderer finished rendering some blocks.
+     *
+     * @param syntax the syntax of the renderer
+     * @param blocks the rendered blocks
+     * @param duration the duration of the rendering
+     * @param error the error which made the rendering fail
+     */
+    default void onRender(Syntax syntax, Collection<Block> blocks, long duration, Throwable error)
+    {
+        // Do nothing by default
+    }
+}
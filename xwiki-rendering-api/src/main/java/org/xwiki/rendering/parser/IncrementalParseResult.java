@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.parser;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.stability.Unstable;
+
+/**
+ * The result of a parsing made by an {@link IncrementalParser}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public interface IncrementalParseResult
+{
+    /**
+     * @return the parsed source
+     */
+    String getSource();
+
+    /**
+     * @return the XDOM produced from the source; it's not used by the next incremental parsings so it can be modified
+     */
+    XDOM getXDOM();
+
+    /**
+     * @return the offsets in the source of the top level blocks which have been parsed independently, the first one
+     *         always being 0
+     */
+    int[] getBlockOffsets();
+
+    /**
+     * @return the number of characters of the source which had to be parsed, the rest of the source having been
+     *         reused from the previous parsing
+     */
+    int getParsedLength();
+}
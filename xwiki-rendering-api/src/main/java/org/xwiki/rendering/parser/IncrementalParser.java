@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.parser;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Parser able to update the result of a previous parsing after the source has been edited, by parsing again only the
+ * top level blocks affected by the edit and reusing the others. Useful for large documents which are modified often
+ * (when saving each change made in an editor for example).
+ * <p>
+ * The result of an incremental parsing is always the same as the one of a full parsing of the edited source.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Role
+@Unstable
+public interface IncrementalParser
+{
+    /**
+     * @return the wiki syntax the parser is implementing
+     */
+    Syntax getSyntax();
+
+    /**
+     * Parse the whole passed source.
+     *
+     * @param source the content to parse
+     * @return the result of the parsing, to pass to {@link #parse(IncrementalParseResult, int, int, String)} after the
+     *         source is modified
+     * @throws ParseException if the source cannot be parsed
+     */
+    IncrementalParseResult parse(String source) throws ParseException;
+
+    /**
+     * Parse the source of a previous parsing modified by replacing {@code removedLength} characters at {@code offset}
+     * with {@code insertedText}.
+     *
+     * @param previous the result of the parsing of the source before the modification, produced by this parser
+     * @param offset the position in the previous source where the modification starts
+     * @param removedLength the number of characters removed from the previous source
+     * @param insertedText the text inserted at {@code offset}
+     * @return the result of the parsing of the modified source
+     * @throws ParseException if the modified source cannot be parsed
+     */
+    IncrementalParseResult parse(IncrementalParseResult previous, int offset, int removedLength, String insertedText)
+        throws ParseException;
+}
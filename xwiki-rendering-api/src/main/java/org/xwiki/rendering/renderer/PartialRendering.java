@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer;
+
+import java.util.List;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.transformation.TransformationException;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Transform and render the parts of a document on demand, for example to display a single section or to load the
+ * sections of a long document lazily.
+ * <p>
+ * The parts are transformed in place in a copy of the document (see {@link #getXDOM()}) the first time they are
+ * requested, only the transformations of the blocks of the part being executed. Since the document is complete, the
+ * macros depending on the whole document (e.g. the table of contents) find everything they need in it, and since the
+ * transformed parts are kept, each part is transformed only once whatever the number of times it's rendered. Note that
+ * blocks added by a transformation outside of the part (e.g. the footnotes added at the end of the document) are
+ * transformed and rendered with the part containing them.
+ * <p>
+ * A partial rendering is not thread safe.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public interface PartialRendering
+{
+    /**
+     * @return the copy of the document in which the parts are transformed, the parts to transform and render must be
+     *         taken from it
+     */
+    XDOM getXDOM();
+
+    /**
+     * @param headerId the identifier of the header of the section (i.e. the anchor of the section)
+     * @return the section with the passed header identifier or {@code null} if there is none
+     */
+    SectionBlock getSection(String headerId);
+
+    /**
+     * Execute the transformations of a range of sibling blocks, unless they have already been transformed.
+     *
+     * @param first the first block of the range
+     * @param last the last block of the range, sibling of the first one
+     * @return the blocks replacing the range in the document once transformed
+     * @throws TransformationException when one of the transformations fails
+     */
+    List<Block> transform(Block first, Block last) throws TransformationException;
+
+    /**
+     * Transform (see {@link #transform(Block, Block)}) and render a range of sibling blocks.
+     *
+     * @param first the first block of the range
+     * @param last the last block of the range, sibling of the first one
+     * @param renderer the renderer to use
+     * @param printer the printer receiving the result of the rendering
+     * @throws TransformationException when one of the transformations fails (the transformed blocks are still
+     *             rendered)
+     */
+    void render(Block first, Block last, BlockRenderer renderer, WikiPrinter printer) throws TransformationException;
+
+    /**
+     * Transform (see {@link #transform(Block, Block)}) and render a block, typically a {@link SectionBlock}.
+     *
+     * @param block the block to render
+     * @param renderer the renderer to use
+     * @param printer the printer receiving the result of the rendering
+     * @throws TransformationException when one of the transformations fails (the transformed blocks are still
+     *             rendered)
+     */
+    default void render(Block block, BlockRenderer renderer, WikiPrinter printer) throws TransformationException
+    {
+        render(block, block, renderer, printer);
+    }
+}
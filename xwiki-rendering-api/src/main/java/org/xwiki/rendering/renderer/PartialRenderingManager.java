@@ -0,0 +1,44 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Create {@link PartialRendering}s to transform and render parts of a document (a section, a range of blocks) on
+ * demand instead of transforming and rendering the whole document.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Role
+@Unstable
+public interface PartialRenderingManager
+{
+    /**
+     * @param xdom the document to render by parts, it's not modified (the parts are transformed in a copy of it)
+     * @param context the context of the transformations, its XDOM is replaced by the copy of the document
+     * @return the partial rendering of the passed document
+     */
+    PartialRendering createRendering(XDOM xdom, TransformationContext context);
+}
@@ -0,0 +1,318 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Printer storing the provided {@link String}s in a list of {@code char} arrays (chunks). Contrary to
+ * {@link DefaultWikiPrinter} it's not synchronized and it never copies what has already been printed when it grows:
+ * a new chunk is allocated instead, larger than the previous one. The content can be written directly to a
+ * {@link Writer}, read through a {@link Reader} or encoded to a {@link ByteBuffer} without building an intermediate
+ * {@link String}.
+ * <p>
+ * This printer is not thread safe.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class ChunkedWikiPrinter implements WikiPrinter
+{
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The full chunks.
+     */
+    private final List<char[]> chunks = new ArrayList<>();
+
+    /**
+     * The chunk currently being filled.
+     */
+    private char[] current;
+
+    /**
+     * The number of characters used in the current chunk.
+     */
+    private int position;
+
+    /**
+     * The total number of characters printed.
+     */
+    private int length;
+
+    /**
+     * This method is protected to allow classes extending this one to override what a new line is.
+     *
+     * @return a new line symbols
+     */
+    protected String getEOL()
+    {
+        return "\n";
+    }
+
+    @Override
+    public void print(String text)
+    {
+        int textLength = text.length();
+        int offset = 0;
+        while (offset < textLength) {
+            if (this.current == null || this.position == this.current.length) {
+                newChunk(textLength - offset);
+            }
+            int count = Math.min(textLength - offset, this.current.length - this.position);
+            text.getChars(offset, offset + count, this.current, this.position);
+            this.position += count;
+            offset += count;
+        }
+        this.length += textLength;
+    }
+
+    @Override
+    public void println(String text)
+    {
+        print(text);
+        print(getEOL());
+    }
+
+    /**
+     * @return the number of printed characters
+     */
+    public int length()
+    {
+        return this.length;
+    }
+
+    /**
+     * @param index the index of the character to return
+     * @return the printed character at the passed index
+     */
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(String.format("Index [%d] is out of range [0, %d[", index,
+                this.length));
+        }
+
+        int offset = index;
+        for (char[] chunk : this.chunks) {
+            if (offset < chunk.length) {
+                return chunk[offset];
+            }
+            offset -= chunk.length;
+        }
+        return this.current[offset];
+    }
+
+    /**
+     * Write the printed characters to the passed writer.
+     *
+     * @param writer the writer to write to
+     * @throws IOException when failing to write
+     */
+    public void writeTo(Writer writer) throws IOException
+    {
+        for (char[] chunk : this.chunks) {
+            writer.write(chunk);
+        }
+        if (this.current != null) {
+            writer.write(this.current, 0, this.position);
+        }
+    }
+
+    /**
+     * The returned reader reads the chunks of the printer, the printer should not be modified while it's used.
+     *
+     * @return a reader of the printed characters
+     */
+    public Reader toReader()
+    {
+        final List<char[]> readChunks = new ArrayList<>(this.chunks);
+        if (this.current != null) {
+            readChunks.add(this.current);
+        }
+        final int readLength = this.length;
+
+        return new Reader()
+        {
+            private int chunkIndex;
+
+            private int chunkPosition;
+
+            private int remaining = readLength;
+
+            @Override
+            public int read(char[] cbuf, int off, int len)
+            {
+                if (len == 0) {
+                    return 0;
+                }
+                if (this.remaining == 0) {
+                    return -1;
+                }
+
+                char[] chunk = readChunks.get(this.chunkIndex);
+                int count = Math.min(len, Math.min(chunk.length - this.chunkPosition, this.remaining));
+                System.arraycopy(chunk, this.chunkPosition, cbuf, off, count);
+                this.chunkPosition += count;
+                this.remaining -= count;
+                if (this.chunkPosition == chunk.length) {
+                    this.chunkIndex++;
+                    this.chunkPosition = 0;
+                }
+
+                return count;
+            }
+
+            @Override
+            public void close()
+            {
+                // Nothing to release
+            }
+        };
+    }
+
+    /**
+     * @param charset the charset to use to encode the printed characters
+     * @return a buffer containing the encoded printed characters, ready to be read
+     * @throws CharacterCodingException when the printed characters can't be encoded with the passed charset
+     */
+    public ByteBuffer encode(Charset charset) throws CharacterCodingException
+    {
+        CharsetEncoder encoder = charset.newEncoder();
+        ByteBuffer output = ByteBuffer.allocate((int) (this.length * encoder.averageBytesPerChar()) + 16);
+
+        List<CharBuffer> segments = new ArrayList<>(this.chunks.size() + 1);
+        for (char[] chunk : this.chunks) {
+            segments.add(CharBuffer.wrap(chunk));
+        }
+        if (this.current != null) {
+            segments.add(CharBuffer.wrap(this.current, 0, this.position));
+        }
+
+        CharBuffer previous = null;
+        for (int i = 0; i < segments.size(); i++) {
+            CharBuffer input = segments.get(i);
+            // A surrogate pair may have been split between two chunks, in which case the encoder didn't consume the
+            // end of the previous chunk.
+            if (previous != null && previous.hasRemaining()) {
+                CharBuffer joined = CharBuffer.allocate(previous.remaining() + input.remaining());
+                joined.put(previous).put(input).flip();
+                input = joined;
+            }
+            output = encode(encoder, input, i == segments.size() - 1, output);
+            previous = input;
+        }
+        if (segments.isEmpty()) {
+            output = encode(encoder, CharBuffer.allocate(0), true, output);
+        }
+        while (true) {
+            CoderResult result = encoder.flush(output);
+            if (result.isUnderflow()) {
+                break;
+            }
+            output = grow(output);
+        }
+
+        output.flip();
+        return output;
+    }
+
+    /**
+     * Removes the printed content which allows the printer to be reused.
+     */
+    public void clear()
+    {
+        this.chunks.clear();
+        // Keep the current chunk to reuse it
+        this.position = 0;
+        this.length = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        char[] result = new char[this.length];
+        int offset = 0;
+        for (char[] chunk : this.chunks) {
+            System.arraycopy(chunk, 0, result, offset, chunk.length);
+            offset += chunk.length;
+        }
+        if (this.current != null) {
+            System.arraycopy(this.current, 0, result, offset, this.position);
+        }
+        return new String(result);
+    }
+
+    /**
+     * Allocate a new chunk. Chunks grow with the printed content (to limit their number) but are bounded so that a
+     * large content doesn't require a large contiguous array.
+     *
+     * @param minimumSize the number of characters that remain to be printed
+     */
+    private void newChunk(int minimumSize)
+    {
+        if (this.current != null) {
+            this.chunks.add(this.current);
+        }
+        int size = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, Math.max(this.length, minimumSize)));
+        this.current = new char[size];
+        this.position = 0;
+    }
+
+    private ByteBuffer encode(CharsetEncoder encoder, CharBuffer input, boolean endOfInput, ByteBuffer output)
+        throws CharacterCodingException
+    {
+        ByteBuffer result = output;
+        while (true) {
+            CoderResult coderResult = encoder.encode(input, result, endOfInput);
+            if (coderResult.isUnderflow()) {
+                break;
+            } else if (coderResult.isOverflow()) {
+                result = grow(result);
+            } else {
+                coderResult.throwException();
+            }
+        }
+        return result;
+    }
+
+    private ByteBuffer grow(ByteBuffer buffer)
+    {
+        ByteBuffer result = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        result.put(buffer);
+        return result;
+    }
+}
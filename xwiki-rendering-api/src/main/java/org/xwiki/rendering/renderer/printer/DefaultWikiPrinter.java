@@ -21,6 +21,9 @@
 
 /**
  * Printer using a {@link StringBuffer} as the underlying output target.
+ * <p>
+ * Prefer {@link ChunkedWikiPrinter} when the buffer doesn't need to be accessed directly and the printer is not shared
+ * between threads.
  *
  * @version $Id$
  * @since 1.6M1
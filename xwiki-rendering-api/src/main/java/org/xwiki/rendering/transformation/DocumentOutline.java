@@ -0,0 +1,285 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.IdBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.BlockMatcher;
+import org.xwiki.stability.Unstable;
+
+/**
+ * The outline of the {@link XDOM} being transformed: its headers, anchors ({@link IdBlock}s) and executed macros
+ * ({@link MacroMarkerBlock}s), in document order. Macros which work on the whole document (table of contents,
+ * footnotes, etc.) use it instead of each searching the complete XDOM.
+ * <p>
+ * The outline is collected in a single traversal of the XDOM the first time it's needed. After that the macro
+ * transformation keeps it up to date by calling {@link #update(MacroBlock, Block)} each time a macro is replaced by
+ * its result, so that only the result is traversed. Blocks removed from the XDOM are ignored. Code adding outline
+ * blocks to the XDOM in any other way should call {@link #invalidate()}.
+ * <p>
+ * The outline is attached to a {@link TransformationContext} (see {@link TransformationContext#getOutline()}) and is
+ * not thread safe.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class DocumentOutline
+{
+    private static final BlockMatcher MATCHER = new BlockMatcher()
+    {
+        @Override
+        public boolean match(Block block)
+        {
+            return block instanceof HeaderBlock || block instanceof IdBlock || block instanceof MacroMarkerBlock
+                || block instanceof MacroBlock;
+        }
+    };
+
+    private final XDOM xdom;
+
+    /**
+     * The outline blocks in document order. The macros which are not executed yet are kept to know where to insert
+     * their result.
+     */
+    private List<Block> blocks;
+
+    private final Map<String, Map<Block, Object>> data = new HashMap<>();
+
+    /**
+     * @param xdom the document to outline
+     */
+    public DocumentOutline(XDOM xdom)
+    {
+        this.xdom = xdom;
+    }
+
+    /**
+     * @return the outlined document
+     */
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    /**
+     * @param <T> the type of the blocks to return
+     * @param type the type of the blocks to return: {@link HeaderBlock}, {@link IdBlock} or {@link MacroMarkerBlock}
+     * @param root the block in which to search, generally the {@link XDOM}
+     * @return the blocks of the passed type which are descendants of the passed root block, in document order
+     */
+    public <T extends Block> List<T> getBlocks(Class<T> type, Block root)
+    {
+        List<T> result = new ArrayList<>();
+
+        DescendantChecker checker = new DescendantChecker(root);
+        for (Block block : getBlocks()) {
+            if (type.isInstance(block) && block != root && checker.isDescendant(block)) {
+                result.add(type.cast(block));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param macroId the identifier of the macro
+     * @return the executed macros with the passed identifier in the document, in document order
+     */
+    public List<MacroMarkerBlock> getMacroMarkers(String macroId)
+    {
+        List<MacroMarkerBlock> result = new ArrayList<>();
+
+        for (MacroMarkerBlock block : getBlocks(MacroMarkerBlock.class, this.xdom)) {
+            if (macroId.equals(block.getId())) {
+                result.add(block);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Compute (only once, until the content of the block changes) a value associated with a block of the outline, for
+     * example the label of a header.
+     *
+     * @param <T> the type of the value
+     * @param <B> the type of the block
+     * @param block the block of the outline
+     * @param key the name of the value, to distinguish the values computed by different macros
+     * @param function the function computing the value from the block
+     * @return the value associated with the block
+     */
+    @SuppressWarnings("unchecked")
+    public <T, B extends Block> T computeIfAbsent(B block, String key, Function<? super B, T> function)
+    {
+        Map<Block, Object> values = this.data.get(key);
+        if (values == null) {
+            values = new IdentityHashMap<>();
+            this.data.put(key, values);
+        }
+
+        T value = (T) values.get(block);
+        if (value == null) {
+            value = function.apply(block);
+            values.put(block, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Take into account the replacement of a macro by its result (generally a {@link MacroMarkerBlock}), by inserting
+     * the outline blocks of the result at the place of the macro.
+     *
+     * @param macroBlock the macro which has been replaced
+     * @param result the block which replaced the macro
+     */
+    public void update(MacroBlock macroBlock, Block result)
+    {
+        if (result.getRoot() != this.xdom) {
+            // Not part of the outlined document (the result will be taken into account if it's inserted in the
+            // document later as part of another macro result)
+            return;
+        }
+
+        // The values computed for the blocks containing the macro may depend on their previous content
+        for (Block parent = result.getParent(); parent != null; parent = parent.getParent()) {
+            for (Map<Block, Object> values : this.data.values()) {
+                values.remove(parent);
+            }
+        }
+
+        if (this.blocks != null) {
+            int index = indexOf(macroBlock, this.blocks);
+            if (index < 0) {
+                // The macro was added to the document without notifying the outline
+                invalidate();
+            } else {
+                this.blocks.remove(index);
+                this.blocks.addAll(index, result.<Block>getBlocks(MATCHER, Block.Axes.DESCENDANT_OR_SELF));
+            }
+        }
+    }
+
+    /**
+     * Forget the outline: it will be collected again from the document the next time it's needed.
+     */
+    public void invalidate()
+    {
+        this.blocks = null;
+        this.data.clear();
+    }
+
+    private List<Block> getBlocks()
+    {
+        if (this.blocks == null) {
+            this.blocks = this.xdom.getBlocks(MATCHER, Block.Axes.DESCENDANT);
+        }
+
+        return this.blocks;
+    }
+
+    private int indexOf(Block block, List<Block> list)
+    {
+        for (int i = 0; i < list.size(); ++i) {
+            if (list.get(i) == block) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static Set<Block> newIdentitySet()
+    {
+        return Collections.newSetFromMap(new IdentityHashMap<Block, Boolean>());
+    }
+
+    /**
+     * Checks if blocks are descendants of a root block, remembering the result for the visited blocks and the children
+     * of the visited parents so that each block is checked at most once.
+     */
+    private static final class DescendantChecker
+    {
+        private final Block root;
+
+        private final Set<Block> descendants = newIdentitySet();
+
+        private final Set<Block> notDescendants = newIdentitySet();
+
+        private final Map<Block, Set<Block>> children = new IdentityHashMap<>();
+
+        DescendantChecker(Block root)
+        {
+            this.root = root;
+        }
+
+        boolean isDescendant(Block block)
+        {
+            List<Block> path = new ArrayList<>();
+            boolean result = true;
+            for (Block current = block; current != this.root && !this.descendants.contains(current);
+                current = current.getParent()) {
+                path.add(current);
+                // Blocks removed from the document don't always forget their parent
+                Block parent = current.getParent();
+                if (this.notDescendants.contains(current) || parent == null
+                    || !getChildren(parent).contains(current)) {
+                    result = false;
+                    break;
+                }
+            }
+
+            if (result) {
+                this.descendants.addAll(path);
+            } else {
+                this.notDescendants.addAll(path);
+            }
+
+            return result;
+        }
+
+        private Set<Block> getChildren(Block parent)
+        {
+            Set<Block> parentChildren = this.children.get(parent);
+            if (parentChildren == null) {
+                parentChildren = newIdentitySet();
+                parentChildren.addAll(parent.getChildren());
+                this.children.put(parent, parentChildren);
+            }
+
+            return parentChildren;
+        }
+    }
+}
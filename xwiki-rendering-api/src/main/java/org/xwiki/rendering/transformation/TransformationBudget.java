@@ -0,0 +1,177 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Limits the resources that the transformations of some content can use: a maximum duration, a maximum number of macro
+ * executions and a maximum number of blocks generated by these macros. Once one of the limits is reached the remaining
+ * macros are not executed anymore (and are replaced by an error) and the remaining transformations are skipped.
+ * <p>
+ * A budget is set on a {@link TransformationContext} and is shared with the contexts cloned from it, so that the
+ * content transformed by macros such as the include macro counts in the same budget. The running macro is never
+ * interrupted: limits are checked between macro executions.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class TransformationBudget
+{
+    /**
+     * The value of a limit which is not set.
+     */
+    public static final int UNLIMITED = -1;
+
+    private long deadline;
+
+    private long timeout = UNLIMITED;
+
+    private int maxMacroExecutions = UNLIMITED;
+
+    private long maxGeneratedBlocks = UNLIMITED;
+
+    private final AtomicInteger macroExecutions = new AtomicInteger();
+
+    private final AtomicLong generatedBlocks = new AtomicLong();
+
+    /**
+     * Set the maximum duration of the transformations, counted from the call to this method.
+     *
+     * @param timeout the maximum duration, {@link #UNLIMITED} to not limit the duration
+     * @param unit the unit of the duration
+     */
+    public void setTimeout(long timeout, TimeUnit unit)
+    {
+        if (timeout < 0) {
+            this.timeout = UNLIMITED;
+        } else {
+            this.timeout = unit.toNanos(timeout);
+            this.deadline = System.nanoTime() + this.timeout;
+        }
+    }
+
+    /**
+     * @param maxMacroExecutions the maximum number of macros to execute, {@link #UNLIMITED} (or any negative value)
+     *            to not limit it, which is the default
+     */
+    public void setMaxMacroExecutions(int maxMacroExecutions)
+    {
+        this.maxMacroExecutions = maxMacroExecutions < 0 ? UNLIMITED : maxMacroExecutions;
+    }
+
+    /**
+     * @return the maximum number of macros to execute, {@link #UNLIMITED} by default
+     */
+    public int getMaxMacroExecutions()
+    {
+        return this.maxMacroExecutions;
+    }
+
+    /**
+     * @param maxGeneratedBlocks the maximum number of blocks that the executed macros can generate, including the
+     *            descendants of the blocks they return, {@link #UNLIMITED} (or any negative value) to not limit it,
+     *            which is the default
+     */
+    public void setMaxGeneratedBlocks(long maxGeneratedBlocks)
+    {
+        this.maxGeneratedBlocks = maxGeneratedBlocks < 0 ? UNLIMITED : maxGeneratedBlocks;
+    }
+
+    /**
+     * @return the maximum number of blocks that the executed macros can generate, {@link #UNLIMITED} by default
+     */
+    public long getMaxGeneratedBlocks()
+    {
+        return this.maxGeneratedBlocks;
+    }
+
+    /**
+     * @return the number of macros executed so far
+     */
+    public int getMacroExecutions()
+    {
+        return this.macroExecutions.get();
+    }
+
+    /**
+     * @return the number of blocks generated by the macros executed so far
+     */
+    public long getGeneratedBlocks()
+    {
+        return this.generatedBlocks.get();
+    }
+
+    /**
+     * @return true if the number of generated blocks has to be counted, i.e. if it's limited
+     */
+    public boolean isCountingGeneratedBlocks()
+    {
+        return this.maxGeneratedBlocks != UNLIMITED;
+    }
+
+    /**
+     * Record a macro execution.
+     *
+     * @param generatedBlockCount the number of blocks generated by the macro
+     */
+    public void addMacroExecution(long generatedBlockCount)
+    {
+        this.macroExecutions.incrementAndGet();
+        this.generatedBlocks.addAndGet(generatedBlockCount);
+    }
+
+    /**
+     * @return true if one of the limits has been reached
+     */
+    public boolean isExceeded()
+    {
+        return getExceededMessage() != null;
+    }
+
+    /**
+     * @return a message explaining which limit has been reached, {@code null} if none has been reached
+     */
+    public String getExceededMessage()
+    {
+        if (this.maxMacroExecutions != UNLIMITED && getMacroExecutions() >= this.maxMacroExecutions) {
+            return String.format("The maximum number of macro executions [%d] has been reached.",
+                this.maxMacroExecutions);
+        }
+
+        if (this.maxGeneratedBlocks != UNLIMITED && getGeneratedBlocks() >= this.maxGeneratedBlocks) {
+            return String.format("The maximum number of blocks generated by macros [%d] has been reached.",
+                this.maxGeneratedBlocks);
+        }
+
+        // Comparing the difference protects against the overflow of nanoTime()
+        if (this.timeout != UNLIMITED && System.nanoTime() - this.deadline >= 0) {
+            return String.format("The maximum duration of [%d] milliseconds has been reached.",
+                TimeUnit.NANOSECONDS.toMillis(this.timeout));
+        }
+
+        return null;
+    }
+}
@@ -21,6 +21,7 @@
 
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * The context of the transformation process. Contains information such as the current XWiki DOM for the parsed content.
@@ -55,6 +56,16 @@ public class TransformationContext implements Cloneable
      */
     private Syntax targetSyntax;
 
+    /**
+     * @see #getBudget()
+     */
+    private TransformationBudget budget;
+
+    /**
+     * @see #getOutline()
+     */
+    private DocumentOutline outline;
+
     /**
      * Default constructor that doesn't set the XDOM or the Syntax. This is because setting the XDOM and the Syntax is
      * optional and only required by some Macros to behave as expected.
@@ -116,6 +127,7 @@ public void setId(String id)
     public void setXDOM(XDOM xdom)
     {
         this.xdom = xdom;
+        this.outline = null;
     }
 
     /**
@@ -174,6 +186,42 @@ public void setTargetSyntax(Syntax targetSyntax)
         this.targetSyntax = targetSyntax;
     }
 
+    /**
+     * @return the limits of the resources that the transformations can use, {@code null} if they are not limited. The
+     *         budget is shared with the clones of this context.
+     * @since 10.0RC1
+     */
+    @Unstable
+    public TransformationBudget getBudget()
+    {
+        return this.budget;
+    }
+
+    /**
+     * @param budget the limits of the resources that the transformations can use, {@code null} to not limit them
+     * @since 10.0RC1
+     */
+    @Unstable
+    public void setBudget(TransformationBudget budget)
+    {
+        this.budget = budget;
+    }
+
+    /**
+     * @return the outline of the {@link XDOM} being transformed, {@code null} if the XDOM is not set. The outline is
+     *         created on demand and shared with the clones of this context which transform the same XDOM.
+     * @since 10.0RC1
+     */
+    @Unstable
+    public DocumentOutline getOutline()
+    {
+        if (this.outline == null && this.xdom != null) {
+            this.outline = new DocumentOutline(this.xdom);
+        }
+
+        return this.outline;
+    }
+
     @Override
     public TransformationContext clone()
     {
@@ -0,0 +1,167 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Bounded pool used to share equal strings (words, parameter names and values, etc.) between the blocks produced by
+ * parsers so that XDOMs kept in memory don't each hold their own copy of them.
+ * <p>
+ * Contrary to {@link String#intern()} the pool never grows: strings are stored in a fixed size table indexed by hash
+ * code, each bucket remembering the last 2 distinct strings that fell in it. A string which is not in the pool anymore
+ * is just not shared, which is always safe. The pool can be shared between threads: it does not use any lock and a
+ * race can at worst lose an entry. Strings longer than a maximum length are not pooled since they are unlikely to be
+ * repeated.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@Unstable
+public class StringPool
+{
+    /**
+     * Default maximum length of pooled strings.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static final int BUCKET_SIZE = 2;
+
+    private final String[] entries;
+
+    private final int mask;
+
+    private final int maxLength;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param capacity the maximum number of strings kept in the pool, rounded up to a power of 2
+     */
+    public StringPool(int capacity)
+    {
+        this(capacity, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity the maximum number of strings kept in the pool, rounded up to a power of 2
+     * @param maxLength the maximum length of the strings to pool
+     */
+    public StringPool(int capacity, int maxLength)
+    {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid string pool capacity [" + capacity + "]");
+        }
+
+        int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, BUCKET_SIZE);
+        this.entries = new String[size];
+        this.mask = size - BUCKET_SIZE;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param value the string to share
+     * @return a pooled string equal to the passed one if there is one, the passed string otherwise (in which case it
+     *         is added to the pool)
+     */
+    public String intern(String value)
+    {
+        if (value == null || value.length() > this.maxLength) {
+            return value;
+        }
+
+        this.requests.increment();
+
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & this.mask;
+
+        String first = this.entries[index];
+        if (value.equals(first)) {
+            this.hits.increment();
+
+            return first;
+        }
+
+        String second = this.entries[index + 1];
+        if (value.equals(second)) {
+            this.hits.increment();
+
+            // Keep the most recently used string first
+            this.entries[index + 1] = first;
+            this.entries[index] = second;
+
+            return second;
+        }
+
+        this.entries[index + 1] = first;
+        this.entries[index] = value;
+
+        return value;
+    }
+
+    /**
+     * @return the maximum number of strings kept in the pool
+     */
+    public int getCapacity()
+    {
+        return this.entries.length;
+    }
+
+    /**
+     * @return the number of strings passed to {@link #intern(String)} which could be pooled
+     */
+    public long getRequestCount()
+    {
+        return this.requests.sum();
+    }
+
+    /**
+     * @return the number of strings passed to {@link #intern(String)} for which an equal string was found in the pool
+     */
+    public long getHitCount()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the ratio of {@link #getHitCount()} to {@link #getRequestCount()}, 0 when nothing has been requested
+     */
+    public double getHitRate()
+    {
+        long requestCount = getRequestCount();
+
+        return requestCount > 0 ? (double) getHitCount() / requestCount : 0;
+    }
+
+    /**
+     * Remove all the strings from the pool and reset the statistics.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.entries, null);
+        this.requests.reset();
+        this.hits.reset();
+    }
+}
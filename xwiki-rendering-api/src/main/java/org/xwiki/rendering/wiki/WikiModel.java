@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.wiki;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.xwiki.component.annotation.Role;
@@ -59,6 +61,25 @@
      */
     boolean isDocumentAvailable(ResourceReference resourceReference);
 
+    /**
+     * Check the existence of several wiki documents at once. Implementations backed by a store should override it to
+     * avoid one request per document, renderers call it before rendering blocks containing many links.
+     *
+     * @param resourceReferences the references pointing to wiki documents
+     * @return true for each passed reference if the wiki document exists and can be viewed, false otherwise
+     * @since 10.0RC1
+     */
+    @Unstable
+    default Map<ResourceReference, Boolean> areDocumentsAvailable(Collection<ResourceReference> resourceReferences)
+    {
+        Map<ResourceReference, Boolean> result = new HashMap<>(resourceReferences.size());
+        for (ResourceReference resourceReference : resourceReferences) {
+            result.put(resourceReference, isDocumentAvailable(resourceReference));
+        }
+
+        return result;
+    }
+
     /**
      * @param resourceReference the reference pointing to a wiki document
      * @return the URL to view the specified wiki document
@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+
+/**
+ * Unit tests for {@link FlatXDOM} and {@link FlatXDOMGeneratorListener}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class FlatXDOMTest
+{
+    private XDOM xdom;
+
+    private FlatXDOM flatXDOM;
+
+    @Before
+    public void setUp()
+    {
+        Map<String, String> parameters = Collections.singletonMap("class", "value");
+
+        this.xdom = new XDOM(Arrays.<Block>asList(
+            new ParagraphBlock(Arrays.<Block>asList(new WordBlock("hello"), new SpaceBlock(),
+                new FormatBlock(Arrays.<Block>asList(new WordBlock("world")), Format.BOLD),
+                new SpecialSymbolBlock('!'), new WordBlock("hello")), parameters),
+            new HeaderBlock(Arrays.<Block>asList(new WordBlock("title")), HeaderLevel.LEVEL2,
+                Collections.<String, String>emptyMap(), "Htitle"),
+            new BulletedListBlock(Arrays.<Block>asList(new ListItemBlock(Arrays.<Block>asList(new LinkBlock(
+                Arrays.<Block>asList(new WordBlock("label")), new ResourceReference("url", ResourceType.URL),
+                false))))),
+            new EmptyLinesBlock(2), new MacroBlock("macro", parameters, "content", false), new NewLineBlock(),
+            new IdBlock("id")));
+
+        this.flatXDOM = FlatXDOM.of(this.xdom);
+    }
+
+    private List<String> getEvents(Object source)
+    {
+        final List<String> events = new ArrayList<>();
+        Listener listener = (Listener) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { Listener.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args)
+                {
+                    events.add(method.getName() + (args != null ? Arrays.deepToString(args) : ""));
+
+                    return null;
+                }
+            });
+
+        if (source instanceof Block) {
+            ((Block) source).traverse(listener);
+        } else {
+            ((FlatXDOM) source).traverse(listener);
+        }
+
+        return events;
+    }
+
+    @Test
+    public void traverse()
+    {
+        Assert.assertEquals(18, this.flatXDOM.size());
+        Assert.assertEquals(getEvents(this.xdom), getEvents(this.flatXDOM));
+    }
+
+    @Test
+    public void toXDOM()
+    {
+        XDOM newXDOM = this.flatXDOM.toXDOM();
+
+        Assert.assertEquals(this.xdom, newXDOM);
+        Assert.assertEquals(getEvents(this.xdom), getEvents(newXDOM));
+    }
+
+    @Test
+    public void navigate()
+    {
+        FlatXDOM.Node root = this.flatXDOM.getRoot();
+        Assert.assertEquals(EventType.BEGIN_DOCUMENT, root.getType());
+        Assert.assertNull(root.getParent());
+        Assert.assertEquals(7, root.getChildren().size());
+
+        FlatXDOM.Node paragraph = root.getFirstChild();
+        Assert.assertEquals(EventType.BEGIN_PARAGRAPH, paragraph.getType());
+        Assert.assertEquals(Collections.singletonMap("class", "value"), paragraph.getParameters());
+        Assert.assertEquals(5, paragraph.getChildren().size());
+        Assert.assertEquals(root, paragraph.getParent());
+
+        FlatXDOM.Node word = paragraph.getFirstChild();
+        Assert.assertEquals(EventType.ON_WORD, word.getType());
+        Assert.assertArrayEquals(new Object[] { "hello" }, word.getEventParameters());
+        Assert.assertNull(word.getPreviousSibling());
+        Assert.assertNull(word.getFirstChild());
+
+        FlatXDOM.Node format = paragraph.getChildren().get(2);
+        Assert.assertEquals(EventType.BEGIN_FORMAT, format.getType());
+        Assert.assertEquals(EventType.ON_SPACE, format.getPreviousSibling().getType());
+        Assert.assertEquals(EventType.ON_SPECIAL_SYMBOL, format.getNextSibling().getType());
+        Assert.assertEquals(paragraph, format.getParent());
+
+        FlatXDOM.Node id = root.getChildren().get(6);
+        Assert.assertEquals(EventType.ON_ID, id.getType());
+        Assert.assertNull(id.getNextSibling());
+        Assert.assertEquals(EventType.ON_NEW_LINE, id.getPreviousSibling().getType());
+    }
+
+    @Test
+    public void nodeToBlock()
+    {
+        Block header = this.flatXDOM.getRoot().getChildren().get(1).toBlock();
+
+        Assert.assertEquals(this.xdom.getChildren().get(1), header);
+        Assert.assertNull(header.getParent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getFlatXDOMWithUnclosedEvent()
+    {
+        FlatXDOMGeneratorListener listener = new FlatXDOMGeneratorListener();
+        listener.beginParagraph(Listener.EMPTY_PARAMETERS);
+
+        listener.getFlatXDOM();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompactParametersMap}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class CompactParametersMapTest
+{
+    @Test
+    public void ofEmpty()
+    {
+        Assert.assertSame(Collections.emptyMap(), CompactParametersMap.of(null));
+        Assert.assertSame(Collections.emptyMap(), CompactParametersMap.of(new LinkedHashMap<String, String>()));
+    }
+
+    @Test
+    public void of()
+    {
+        Map<String, String> source = new LinkedHashMap<>();
+        source.put("b", "1");
+        source.put("a", "2");
+        source.put("c", null);
+
+        Map<String, String> parameters = CompactParametersMap.of(source);
+
+        Assert.assertEquals(source, parameters);
+        Assert.assertEquals(source.hashCode(), parameters.hashCode());
+        Assert.assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<>(parameters.keySet()));
+        Assert.assertEquals("2", parameters.get("a"));
+        Assert.assertTrue(parameters.containsKey("c"));
+        Assert.assertNull(parameters.get("d"));
+
+        // Not a copy of the source
+        source.put("d", "3");
+        Assert.assertEquals(3, parameters.size());
+
+        // Already immutable maps are shared
+        Assert.assertSame(parameters, CompactParametersMap.of(parameters));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void ofIsImmutable()
+    {
+        CompactParametersMap.of(Collections.singletonMap("a", "1")).put("b", "2");
+    }
+
+    @Test
+    public void with()
+    {
+        Map<String, String> parameters = CompactParametersMap.with(Collections.<String, String>emptyMap(), "a", "1");
+        Map<String, String> newParameters = CompactParametersMap.with(parameters, "b", "2");
+        Map<String, String> replacedParameters = CompactParametersMap.with(newParameters, "a", "3");
+
+        Assert.assertEquals(Collections.singletonMap("a", "1"), parameters);
+        Assert.assertEquals(Arrays.asList("a", "b"), new ArrayList<>(newParameters.keySet()));
+        Assert.assertEquals("3", replacedParameters.get("a"));
+        Assert.assertEquals("1", newParameters.get("a"));
+    }
+
+    @Test
+    public void withManyParameters()
+    {
+        Map<String, String> expected = new LinkedHashMap<>();
+        Map<String, String> parameters = Collections.emptyMap();
+        for (int i = 0; i < 20; ++i) {
+            expected.put("key" + i, "value" + i);
+            parameters = CompactParametersMap.with(parameters, "key" + i, "value" + i);
+        }
+
+        Assert.assertEquals(expected, parameters);
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(parameters.keySet()));
+        Assert.assertSame(parameters, CompactParametersMap.of(parameters));
+        Assert.assertEquals(expected, CompactParametersMap.of(expected));
+    }
+}
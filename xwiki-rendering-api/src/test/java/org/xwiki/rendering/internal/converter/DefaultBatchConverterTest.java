@@ -0,0 +1,275 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.converter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.internal.DefaultExecution;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.converter.BatchConversionListener;
+import org.xwiki.rendering.converter.BatchConversionReport;
+import org.xwiki.rendering.converter.BatchConverter;
+import org.xwiki.rendering.converter.ConversionException;
+import org.xwiki.rendering.converter.ConversionInput;
+import org.xwiki.rendering.internal.metrics.DefaultRenderingMetrics;
+import org.xwiki.rendering.internal.transformation.DefaultRenderingContext;
+import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationManager;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultBatchConverter}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@ComponentList({ DefaultBatchConverter.class, DefaultExecution.class, DefaultRenderingContext.class,
+    DefaultRenderingMetrics.class })
+public class DefaultBatchConverterTest
+{
+    @Rule
+    public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
+
+    private BatchConverter converter;
+
+    private Parser parser;
+
+    private TransformationManager transformationManager;
+
+    private final Map<String, String> results = new ConcurrentHashMap<>();
+
+    private final Map<String, ConversionException> failures = new ConcurrentHashMap<>();
+
+    private final BatchConversionListener listener = new BatchConversionListener()
+    {
+        @Override
+        public void onSuccess(ConversionInput input, String result)
+        {
+            results.put(input.getId(), result);
+        }
+
+        @Override
+        public void onFailure(ConversionInput input, ConversionException error)
+        {
+            failures.put(input.getId(), error);
+        }
+    };
+
+    @BeforeComponent
+    public void setUpComponents() throws Exception
+    {
+        this.transformationManager = this.componentManager.registerMockComponent(TransformationManager.class);
+
+        ExecutionContextManager executionContextManager =
+            this.componentManager.registerMockComponent(ExecutionContextManager.class);
+        doAnswer(invocation -> {
+            this.componentManager.<Execution>getInstance(Execution.class).setContext(invocation.getArgument(0));
+
+            return null;
+        }).when(executionContextManager).initialize(any(ExecutionContext.class));
+
+        Provider<ComponentManager> contextComponentManagerProvider = this.componentManager.registerMockComponent(
+            new DefaultParameterizedType(null, Provider.class, ComponentManager.class), "context");
+        when(contextComponentManagerProvider.get()).thenReturn(this.componentManager);
+
+        this.parser = this.componentManager.registerMockComponent(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        when(this.parser.parse(any(Reader.class))).then(invocation -> {
+            String content = read(invocation.<Reader>getArgument(0));
+            if (content.startsWith("error")) {
+                throw new ParseException("Invalid content");
+            } else if (content.startsWith("linkage")) {
+                throw new NoClassDefFoundError("Missing class");
+            }
+
+            return new XDOM(Collections.<Block>singletonList(new WordBlock(content)));
+        });
+
+        BlockRenderer renderer =
+            this.componentManager.registerMockComponent(BlockRenderer.class, Syntax.PLAIN_1_0.toIdString());
+        doAnswer(invocation -> {
+            XDOM xdom = invocation.getArgument(0);
+            invocation.<WikiPrinter>getArgument(1).print(((WordBlock) xdom.getChildren().get(0)).getWord());
+
+            return null;
+        }).when(renderer).render(any(Block.class), any(WikiPrinter.class));
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.converter = this.componentManager.getInstance(BatchConverter.class);
+    }
+
+    private static String read(Reader reader) throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int c = reader.read(); c != -1; c = reader.read()) {
+            builder.append((char) c);
+        }
+
+        return builder.toString();
+    }
+
+    private ConversionInput input(String content)
+    {
+        return new ConversionInput(content, new StringReader(content), Syntax.XWIKI_2_1);
+    }
+
+    @Test
+    public void convert() throws Exception
+    {
+        BatchConversionReport report = this.converter.convert(
+            IntStream.range(0, 100).mapToObj(i -> input("document" + i)), Syntax.PLAIN_1_0, this.listener, 4);
+
+        Assert.assertEquals(100, report.getDocumentCount());
+        Assert.assertEquals(0, report.getFailureCount());
+        Assert.assertEquals(100, this.results.size());
+        Assert.assertEquals("document42", this.results.get("document42"));
+        Assert.assertTrue(this.failures.isEmpty());
+
+        verify(this.parser, times(100)).parse(any(Reader.class));
+    }
+
+    @Test
+    public void convertInRenderingContext() throws Exception
+    {
+        MutableRenderingContext renderingContext = this.componentManager.getInstance(RenderingContext.class);
+        Execution execution = this.componentManager.getInstance(Execution.class);
+        Map<String, Syntax> targetSyntaxes = new ConcurrentHashMap<>();
+        Map<String, String> ids = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            XDOM xdom = invocation.getArgument(0);
+            String word = ((WordBlock) xdom.getChildren().get(0)).getWord();
+            ids.put(word, invocation.<TransformationContext>getArgument(1).getId());
+            renderingContext.push(null, invocation.<TransformationContext>getArgument(1));
+            try {
+                if (renderingContext.getXDOM() == xdom) {
+                    targetSyntaxes.put(word, renderingContext.getTargetSyntax());
+                }
+            } finally {
+                renderingContext.pop();
+            }
+
+            return null;
+        }).when(this.transformationManager).performTransformations(any(Block.class), any(TransformationContext.class));
+
+        this.converter.convert(IntStream.range(0, 20).mapToObj(i -> input("document" + i)), Syntax.PLAIN_1_0,
+            this.listener, 4);
+
+        Assert.assertEquals(20, this.results.size());
+        Assert.assertEquals(20, targetSyntaxes.size());
+        Assert.assertEquals(Syntax.PLAIN_1_0, targetSyntaxes.get("document7"));
+        Assert.assertEquals("document7", ids.get("document7"));
+
+        // The execution context is removed from the worker threads once the conversion is done
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            this.converter.convert(Collections.singletonList(input("document")).stream(), Syntax.PLAIN_1_0,
+                this.listener, pool);
+            Assert.assertNull(pool.submit(() -> execution.getContext()).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void convertIsolatesFailures() throws Exception
+    {
+        BatchConversionReport report = this.converter.convert(
+            IntStream.range(0, 10).mapToObj(i -> input((i % 2 == 0 ? "error" : "document") + i)), Syntax.PLAIN_1_0,
+            this.listener, 2);
+
+        Assert.assertEquals(10, report.getDocumentCount());
+        Assert.assertEquals(5, report.getFailureCount());
+        Assert.assertEquals(5, this.results.size());
+        Assert.assertEquals(5, this.failures.size());
+        Assert.assertEquals("Failed to parse input source", this.failures.get("error4").getMessage());
+    }
+
+    @Test
+    public void convertIsolatesErrors() throws Exception
+    {
+        BatchConversionReport report = this.converter.convert(
+            IntStream.range(0, 4).mapToObj(i -> input((i % 2 == 0 ? "linkage" : "document") + i)), Syntax.PLAIN_1_0,
+            this.listener, 2);
+
+        Assert.assertEquals(4, report.getDocumentCount());
+        Assert.assertEquals(2, report.getFailureCount());
+        Assert.assertEquals(2, this.results.size());
+        Assert.assertEquals("Unexpected error when converting document [linkage2]",
+            this.failures.get("linkage2").getMessage());
+        Assert.assertTrue(this.failures.get("linkage2").getCause() instanceof NoClassDefFoundError);
+    }
+
+    @Test
+    public void convertWithUnknownSourceSyntax() throws Exception
+    {
+        ConversionInput input = new ConversionInput("document", new StringReader(""), Syntax.XHTML_1_0);
+
+        BatchConversionReport report =
+            this.converter.convert(Collections.singletonList(input).stream(), Syntax.PLAIN_1_0, this.listener, 1);
+
+        Assert.assertEquals(1, report.getFailureCount());
+        Assert.assertEquals("Failed to locate Parser for syntax [XHTML 1.0]",
+            this.failures.get("document").getMessage());
+    }
+
+    @Test(expected = ConversionException.class)
+    public void convertWithUnknownTargetSyntax() throws Exception
+    {
+        this.converter.convert(Collections.singletonList(input("document")).stream(), Syntax.XHTML_1_0,
+            this.listener, 1);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PartialRendering;
+import org.xwiki.rendering.renderer.PartialRenderingManager;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationManager;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link DefaultPartialRenderingManager} and {@link DefaultPartialRendering}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@ComponentList(DefaultPartialRenderingManager.class)
+public class DefaultPartialRenderingTest
+{
+    @Rule
+    public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
+
+    private TransformationManager transformationManager;
+
+    private XDOM xdom;
+
+    private PartialRendering rendering;
+
+    /**
+     * Print the words of the rendered blocks.
+     */
+    private final BlockRenderer renderer = new BlockRenderer()
+    {
+        @Override
+        public void render(Block block, WikiPrinter printer)
+        {
+            render(Collections.singletonList(block), printer);
+        }
+
+        @Override
+        public void render(Collection<Block> blocks, WikiPrinter printer)
+        {
+            for (Block block : blocks) {
+                for (WordBlock word : block.<WordBlock>getBlocks(new ClassBlockMatcher(WordBlock.class),
+                    Block.Axes.DESCENDANT_OR_SELF)) {
+                    printer.print(word.getWord());
+                }
+            }
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.transformationManager = this.componentManager.registerMockComponent(TransformationManager.class);
+
+        // Replace the macros by their upper case identifier
+        doAnswer(invocation -> {
+            Block block = invocation.getArgument(0);
+            for (MacroBlock macro : block.<MacroBlock>getBlocks(new ClassBlockMatcher(MacroBlock.class),
+                Block.Axes.DESCENDANT)) {
+                macro.getParent().replaceChild(new WordBlock(macro.getId().toUpperCase()), macro);
+            }
+            return null;
+        }).when(this.transformationManager).performTransformations(any(Block.class),
+            any(TransformationContext.class));
+
+        this.xdom = new XDOM(Arrays.<Block>asList(new ParagraphBlock(Arrays.<Block>asList(new WordBlock("intro"))),
+            new SectionBlock(Arrays.<Block>asList(header("one"),
+                new ParagraphBlock(Arrays.<Block>asList(new MacroBlock("a", Listener.EMPTY_PARAMETERS, true))))),
+            new SectionBlock(Arrays.<Block>asList(header("two"),
+                new MacroBlock("b", Listener.EMPTY_PARAMETERS, false)))));
+
+        PartialRenderingManager manager = this.componentManager.getInstance(PartialRenderingManager.class);
+        this.rendering = manager.createRendering(this.xdom, new TransformationContext(this.xdom, Syntax.XWIKI_2_1));
+    }
+
+    private HeaderBlock header(String title)
+    {
+        return new HeaderBlock(Arrays.<Block>asList(new WordBlock(title)), HeaderLevel.LEVEL1,
+            Listener.EMPTY_PARAMETERS, "H" + title);
+    }
+
+    private String render(Block first, Block last) throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.rendering.render(first, last, this.renderer, printer);
+
+        return printer.toString();
+    }
+
+    @Test
+    public void renderSection() throws Exception
+    {
+        SectionBlock section = this.rendering.getSection("Hone");
+
+        Assert.assertEquals("oneA", render(section, section));
+        // Rendered again without being transformed again
+        Assert.assertEquals("oneA", render(section, section));
+
+        verify(this.transformationManager, times(1)).performTransformations(any(Block.class),
+            argThat(context -> context.getXDOM() == this.rendering.getXDOM()));
+
+        // The other parts and the passed document are not transformed
+        Assert.assertEquals(1, this.rendering.getXDOM()
+            .getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT).size());
+        Assert.assertEquals(2,
+            this.xdom.getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT).size());
+    }
+
+    @Test
+    public void renderRange() throws Exception
+    {
+        SectionBlock section = this.rendering.getSection("Htwo");
+        Block macro = section.getChildren().get(1);
+
+        Assert.assertEquals("twoB", render(section.getChildren().get(0), macro));
+
+        List<Block> children = section.getChildren();
+        Assert.assertEquals(2, children.size());
+        Assert.assertEquals(new WordBlock("B"), children.get(1));
+        Assert.assertSame(section, children.get(1).getParent());
+        Assert.assertSame(children.get(1), children.get(0).getNextSibling());
+        Assert.assertNull(this.rendering.getSection("Hthree"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void renderBlockOfAnotherDocument() throws Exception
+    {
+        render(this.xdom.getChildren().get(0), this.xdom.getChildren().get(0));
+    }
+
+    @Test
+    public void renderSectionWithMetaData() throws Exception
+    {
+        SectionBlock section = new SectionBlock(Arrays.<Block>asList(header("included"), new ParagraphBlock(
+            Arrays.<Block>asList(new LinkBlock(Collections.<Block>emptyList(),
+                new DocumentResourceReference("Target"), false)))));
+        XDOM document = new XDOM(Arrays.<Block>asList(new MetaDataBlock(Arrays.<Block>asList(
+            new MetaDataBlock(Arrays.<Block>asList(section), MetaData.BASE, "Included.Page")), MetaData.SOURCE,
+            "Main.Page")), new MetaData(Collections.<String, Object>singletonMap(MetaData.BASE, "Main.Page")));
+
+        // Print the links with the metadata in which they are rendered
+        BlockRenderer linkRenderer = new BlockRenderer()
+        {
+            @Override
+            public void render(Block block, WikiPrinter printer)
+            {
+                render(Collections.singletonList(block), printer);
+            }
+
+            @Override
+            public void render(Collection<Block> blocks, WikiPrinter printer)
+            {
+                QueueListener events = new QueueListener();
+                for (Block block : blocks) {
+                    block.traverse(events);
+                }
+
+                Deque<MetaData> metaDatas = new ArrayDeque<>();
+                for (QueueListener.Event event : events) {
+                    if (event.eventType == EventType.BEGIN_DOCUMENT || event.eventType == EventType.BEGIN_METADATA) {
+                        metaDatas.push((MetaData) event.eventParameters[0]);
+                    } else if (event.eventType == EventType.END_DOCUMENT
+                        || event.eventType == EventType.END_METADATA) {
+                        metaDatas.pop();
+                    } else if (event.eventType == EventType.BEGIN_LINK) {
+                        printer.print(((ResourceReference) event.eventParameters[0]).getReference());
+                        for (MetaData metaData : metaDatas) {
+                            printer.print(" " + metaData.getMetaData());
+                        }
+                    }
+                }
+            }
+        };
+
+        DefaultWikiPrinter fullPrinter = new DefaultWikiPrinter();
+        linkRenderer.render(document, fullPrinter);
+
+        PartialRendering partialRendering = this.componentManager.<PartialRenderingManager>getInstance(
+            PartialRenderingManager.class).createRendering(document, new TransformationContext(document,
+                Syntax.XWIKI_2_1));
+        SectionBlock partialSection = partialRendering.getSection("Hincluded");
+        DefaultWikiPrinter partialPrinter = new DefaultWikiPrinter();
+        partialRendering.render(partialSection, partialSection, linkRenderer, partialPrinter);
+
+        Assert.assertEquals("Target {base=Included.Page} {source=Main.Page} {base=Main.Page}",
+            fullPrinter.toString());
+        Assert.assertEquals(fullPrinter.toString(), partialPrinter.toString());
+
+        // The rendered section is put back in the document
+        Assert.assertSame(partialSection, partialSection.getParent().getChildren().get(0));
+        Assert.assertTrue(partialSection.getParent() instanceof MetaDataBlock);
+    }
+}
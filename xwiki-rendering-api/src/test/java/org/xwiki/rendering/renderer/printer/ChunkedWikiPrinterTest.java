@@ -0,0 +1,103 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validate {@link ChunkedWikiPrinter}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class ChunkedWikiPrinterTest
+{
+    @Test
+    public void printOverSeveralChunks() throws Exception
+    {
+        ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String text = "line " + i + " \u00E9\uD83D\uDE00";
+            printer.println(text);
+            expected.append(text).append('\n');
+        }
+
+        Assert.assertEquals(expected.length(), printer.length());
+        Assert.assertEquals(expected.toString(), printer.toString());
+        Assert.assertEquals(expected.charAt(5000), printer.charAt(5000));
+
+        StringWriter writer = new StringWriter();
+        printer.writeTo(writer);
+        Assert.assertEquals(expected.toString(), writer.toString());
+
+        Assert.assertEquals(expected.toString(),
+            StandardCharsets.UTF_8.decode(printer.encode(StandardCharsets.UTF_8)).toString());
+
+        Assert.assertEquals(expected.toString(), read(printer.toReader()));
+    }
+
+    @Test
+    public void printLargeText()
+    {
+        ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
+        String text = StringUtils.repeat('a', 200000);
+        printer.print("b");
+        printer.print(text);
+
+        Assert.assertEquals("b" + text, printer.toString());
+    }
+
+    @Test
+    public void clear()
+    {
+        ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
+        printer.print("some text");
+        printer.clear();
+        printer.print("other");
+
+        Assert.assertEquals(5, printer.length());
+        Assert.assertEquals("other", printer.toString());
+        Assert.assertEquals("other", read(printer.toReader()));
+    }
+
+    @Test
+    public void readEmptyPrinter() throws Exception
+    {
+        Assert.assertEquals(-1, new ChunkedWikiPrinter().toReader().read());
+    }
+
+    private String read(Reader reader) throws Exception
+    {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[1000];
+        for (int count = reader.read(buffer); count != -1; count = reader.read(buffer)) {
+            result.append(buffer, 0, count);
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.IdBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.HeaderLevel;
+
+/**
+ * Unit tests for {@link DocumentOutline}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class DocumentOutlineTest
+{
+    private HeaderBlock header1;
+
+    private HeaderBlock header2;
+
+    private IdBlock id;
+
+    private MacroBlock macro;
+
+    private SectionBlock section;
+
+    private XDOM xdom;
+
+    private DocumentOutline outline;
+
+    @Before
+    public void setUp()
+    {
+        this.header1 = header("header1");
+        this.header2 = header("header2");
+        this.id = new IdBlock("anchor");
+        this.macro = new MacroBlock("macro", Collections.<String, String>emptyMap(), false);
+        this.section = new SectionBlock(Arrays.<Block>asList(this.header2, this.id));
+
+        this.xdom = new XDOM(Arrays.<Block>asList(this.header1,
+            new ParagraphBlock(Arrays.<Block>asList(new WordBlock("word"), this.macro)), this.section));
+
+        this.outline = new DocumentOutline(this.xdom);
+    }
+
+    private HeaderBlock header(String name)
+    {
+        return new HeaderBlock(Arrays.<Block>asList(new WordBlock(name)), HeaderLevel.LEVEL1,
+            Collections.<String, String>emptyMap(), "H" + name);
+    }
+
+    private MacroMarkerBlock execute(MacroBlock macroBlock, Block... result)
+    {
+        MacroMarkerBlock marker = new MacroMarkerBlock(macroBlock.getId(), macroBlock.getParameters(),
+            Arrays.asList(result), macroBlock.isInline());
+        macroBlock.getParent().replaceChild(marker, macroBlock);
+        this.outline.update(macroBlock, marker);
+
+        return marker;
+    }
+
+    @Test
+    public void getBlocks()
+    {
+        Assert.assertEquals(Arrays.asList(this.header1, this.header2),
+            this.outline.getBlocks(HeaderBlock.class, this.xdom));
+        Assert.assertEquals(Arrays.asList(this.header2), this.outline.getBlocks(HeaderBlock.class, this.section));
+        Assert.assertEquals(Arrays.asList(this.id), this.outline.getBlocks(IdBlock.class, this.xdom));
+        Assert.assertEquals(Collections.emptyList(), this.outline.getBlocks(MacroMarkerBlock.class, this.xdom));
+    }
+
+    @Test
+    public void update()
+    {
+        // Collect the outline before executing the macro
+        this.outline.getBlocks(HeaderBlock.class, this.xdom);
+
+        HeaderBlock header3 = header("header3");
+        MacroMarkerBlock marker = execute(this.macro, header3);
+
+        Assert.assertEquals(Arrays.asList(this.header1, header3, this.header2),
+            this.outline.getBlocks(HeaderBlock.class, this.xdom));
+        Assert.assertEquals(Arrays.asList(marker), this.outline.getMacroMarkers("macro"));
+        Assert.assertEquals(Collections.emptyList(), this.outline.getMacroMarkers("other"));
+
+        // Removed blocks are ignored
+        this.xdom.removeBlock(this.section);
+
+        Assert.assertEquals(Arrays.asList(this.header1, header3),
+            this.outline.getBlocks(HeaderBlock.class, this.xdom));
+    }
+
+    @Test
+    public void getBlocksWithRemovedParent()
+    {
+        HeaderBlock header3 = header("header3");
+        HeaderBlock header4 = header("header4");
+        SectionBlock subSection = new SectionBlock(Arrays.<Block>asList(header3, header4));
+        this.section.addChild(subSection);
+        this.outline.getBlocks(HeaderBlock.class, this.xdom);
+
+        // The blocks of a removed section still have their parent, only the section is detached from the document
+        this.xdom.removeBlock(this.section);
+
+        Assert.assertEquals(Arrays.asList(this.header1), this.outline.getBlocks(HeaderBlock.class, this.xdom));
+        Assert.assertEquals(Arrays.asList(this.header2, header3, header4),
+            this.outline.getBlocks(HeaderBlock.class, this.section));
+        Assert.assertEquals(Arrays.asList(header3, header4), this.outline.getBlocks(HeaderBlock.class, subSection));
+    }
+
+    @Test
+    public void updateMacroAddedWithoutNotification()
+    {
+        this.outline.getBlocks(HeaderBlock.class, this.xdom);
+
+        MacroBlock otherMacro = new MacroBlock("other", Collections.<String, String>emptyMap(), false);
+        this.xdom.addChild(otherMacro);
+        HeaderBlock header3 = header("header3");
+        execute(otherMacro, header3);
+
+        Assert.assertEquals(Arrays.asList(this.header1, this.header2, header3),
+            this.outline.getBlocks(HeaderBlock.class, this.xdom));
+    }
+
+    @Test
+    public void computeIfAbsent()
+    {
+        List<String> label = this.outline.computeIfAbsent(this.header1, "label", this::getLabel);
+
+        Assert.assertEquals(Arrays.asList("header1"), label);
+        Assert.assertSame(label, this.outline.computeIfAbsent(this.header1, "label", this::getLabel));
+        Assert.assertNotSame(label, this.outline.computeIfAbsent(this.header1, "other", this::getLabel));
+
+        execute(this.macro);
+
+        Assert.assertSame(label, this.outline.computeIfAbsent(this.header1, "label", this::getLabel));
+
+        // The computed values are forgotten when the content of the block changes
+        MacroBlock headerMacro = new MacroBlock("macro", Collections.<String, String>emptyMap(), true);
+        this.header1.addChild(headerMacro);
+        execute(headerMacro, new WordBlock("more"));
+
+        Assert.assertNotSame(label, this.outline.computeIfAbsent(this.header1, "label", this::getLabel));
+    }
+
+    private List<String> getLabel(HeaderBlock header)
+    {
+        return Arrays.asList(((WordBlock) header.getChildren().get(0)).getWord());
+    }
+
+    @Test
+    public void getOutlineFromContext()
+    {
+        TransformationContext context = new TransformationContext();
+        Assert.assertNull(context.getOutline());
+
+        context.setXDOM(this.xdom);
+        DocumentOutline contextOutline = context.getOutline();
+        Assert.assertSame(this.xdom, contextOutline.getXDOM());
+        Assert.assertSame(contextOutline, context.getOutline());
+        Assert.assertSame(contextOutline, context.clone().getOutline());
+
+        context.setXDOM(new XDOM(Collections.<Block>emptyList()));
+        Assert.assertNotSame(contextOutline, context.getOutline());
+    }
+}
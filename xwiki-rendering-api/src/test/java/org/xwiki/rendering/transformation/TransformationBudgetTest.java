@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TransformationBudget}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class TransformationBudgetTest
+{
+    @Test
+    public void unlimited()
+    {
+        TransformationBudget budget = new TransformationBudget();
+        budget.addMacroExecution(1000);
+
+        Assert.assertFalse(budget.isExceeded());
+        Assert.assertNull(budget.getExceededMessage());
+        Assert.assertFalse(budget.isCountingGeneratedBlocks());
+    }
+
+    @Test
+    public void maxMacroExecutions()
+    {
+        TransformationBudget budget = new TransformationBudget();
+        budget.setMaxMacroExecutions(2);
+
+        budget.addMacroExecution(0);
+        Assert.assertFalse(budget.isExceeded());
+
+        budget.addMacroExecution(0);
+        Assert.assertTrue(budget.isExceeded());
+        Assert.assertEquals("The maximum number of macro executions [2] has been reached.",
+            budget.getExceededMessage());
+    }
+
+    @Test
+    public void maxGeneratedBlocks()
+    {
+        TransformationBudget budget = new TransformationBudget();
+        budget.setMaxGeneratedBlocks(10);
+        Assert.assertTrue(budget.isCountingGeneratedBlocks());
+
+        budget.addMacroExecution(6);
+        Assert.assertFalse(budget.isExceeded());
+
+        budget.addMacroExecution(6);
+        Assert.assertEquals(12, budget.getGeneratedBlocks());
+        Assert.assertEquals("The maximum number of blocks generated by macros [10] has been reached.",
+            budget.getExceededMessage());
+    }
+
+    @Test
+    public void negativeLimits()
+    {
+        TransformationBudget budget = new TransformationBudget();
+        budget.setMaxMacroExecutions(-2);
+        budget.setMaxGeneratedBlocks(-2);
+        budget.setTimeout(-2, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(TransformationBudget.UNLIMITED, budget.getMaxMacroExecutions());
+        Assert.assertEquals(TransformationBudget.UNLIMITED, budget.getMaxGeneratedBlocks());
+        Assert.assertFalse(budget.isCountingGeneratedBlocks());
+
+        budget.addMacroExecution(1000);
+        Assert.assertFalse(budget.isExceeded());
+        Assert.assertNull(budget.getExceededMessage());
+    }
+
+    @Test
+    public void timeout()
+    {
+        TransformationBudget budget = new TransformationBudget();
+
+        budget.setTimeout(1, TimeUnit.HOURS);
+        Assert.assertFalse(budget.isExceeded());
+
+        budget.setTimeout(0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals("The maximum duration of [0] milliseconds has been reached.", budget.getExceededMessage());
+
+        budget.setTimeout(TransformationBudget.UNLIMITED, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(budget.isExceeded());
+    }
+
+    @Test
+    public void sharedWithClonedContext()
+    {
+        TransformationContext context = new TransformationContext();
+        TransformationBudget budget = new TransformationBudget();
+        context.setBudget(budget);
+
+        Assert.assertSame(budget, context.clone().getBudget());
+    }
+}
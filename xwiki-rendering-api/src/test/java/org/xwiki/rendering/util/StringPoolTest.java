@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StringPool}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class StringPoolTest
+{
+    @Test
+    public void intern()
+    {
+        StringPool pool = new StringPool(16);
+
+        String word = new String("word");
+        Assert.assertSame(word, pool.intern(word));
+        Assert.assertSame(word, pool.intern(new String("word")));
+        Assert.assertEquals("other", pool.intern("other"));
+
+        Assert.assertEquals(3, pool.getRequestCount());
+        Assert.assertEquals(1, pool.getHitCount());
+        Assert.assertEquals(1.0 / 3, pool.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void internIgnoresNullAndLongStrings()
+    {
+        StringPool pool = new StringPool(16, 4);
+
+        Assert.assertNull(pool.intern(null));
+
+        String longString = new String("longer");
+        pool.intern(longString);
+        Assert.assertNotSame(longString, pool.intern(new String("longer")));
+
+        Assert.assertEquals(0, pool.getRequestCount());
+        Assert.assertEquals(0, pool.getHitRate(), 0);
+    }
+
+    @Test
+    public void internIsBounded()
+    {
+        StringPool pool = new StringPool(10);
+
+        Assert.assertEquals(16, pool.getCapacity());
+
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals("value" + i, pool.intern("value" + i));
+        }
+
+        Assert.assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void clear()
+    {
+        StringPool pool = new StringPool(16);
+
+        String word = new String("word");
+        pool.intern(word);
+        pool.clear();
+
+        Assert.assertNotSame(word, pool.intern(new String("word")));
+        Assert.assertEquals(1, pool.getRequestCount());
+        Assert.assertEquals(0, pool.getHitCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createWithInvalidCapacity()
+    {
+        new StringPool(0);
+    }
+}
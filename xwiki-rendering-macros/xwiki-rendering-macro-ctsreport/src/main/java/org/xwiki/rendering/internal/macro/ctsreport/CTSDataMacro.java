@@ -40,7 +40,7 @@
 import org.xwiki.rendering.macro.MacroExecutionException;
 import org.xwiki.rendering.macro.descriptor.DefaultContentDescriptor;
 import org.xwiki.rendering.renderer.BlockRenderer;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.ChunkedWikiPrinter;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 import org.xwiki.script.ScriptContextManager;
 
@@ -110,7 +110,7 @@ public List<Block> execute(Object unusedParameters, String content, MacroTransfo
     {
         // We consider the content as containing wiki syntax so we parse it and render it with the Plain text parser.
         XDOM xdom = this.contentParser.parse(content, context, true, false);
-        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
         this.plainTextRenderer.render(xdom, printer);
         String parsedContent = printer.toString();
 
@@ -44,6 +44,7 @@
 import org.xwiki.rendering.macro.MacroContentParser;
 import org.xwiki.rendering.macro.MacroExecutionException;
 import org.xwiki.rendering.macro.footnote.FootnoteMacroParameters;
+import org.xwiki.rendering.transformation.DocumentOutline;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 
 /**
@@ -105,9 +106,7 @@ public List<Block> execute(FootnoteMacroParameters parameters, String content, M
         List<Block> result = Collections.emptyList();
 
         // Get the list of footnotes in the document
-        Block root = context.getXDOM();
-        List<MacroMarkerBlock> footnotes =
-            root.getBlocks(new ClassBlockMatcher(MacroMarkerBlock.class), Block.Axes.DESCENDANT);
+        List<MacroMarkerBlock> footnotes = getMacroMarkers(context);
         for (ListIterator<MacroMarkerBlock> it = footnotes.listIterator(); it.hasNext();) {
             MacroMarkerBlock macro = it.next();
             if (FootnoteMacro.MACRO_NAME.equals(macro.getId())) {
@@ -137,6 +136,20 @@ public List<Block> execute(FootnoteMacroParameters parameters, String content, M
         return Collections.<Block>singletonList(container);
     }
 
+    /**
+     * @param context the execution context of the macro
+     * @return the executed macros of the document, taken from the outline shared with the other macros if available
+     */
+    private List<MacroMarkerBlock> getMacroMarkers(MacroTransformationContext context)
+    {
+        DocumentOutline outline = context.getOutline();
+        if (outline != null) {
+            return outline.getBlocks(MacroMarkerBlock.class, outline.getXDOM());
+        }
+
+        return context.getXDOM().getBlocks(new ClassBlockMatcher(MacroMarkerBlock.class), Block.Axes.DESCENDANT);
+    }
+
     /**
      * Processes a {{footnote}} macro, by generating a footnote element to insert in the footnote list and a reference
      * to it, which is placed instead of the macro call.
@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.internal.macro.html;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.Arrays;
 import java.util.Collections;
@@ -31,6 +33,9 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jdom.input.DOMBuilder;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -42,6 +47,7 @@
 import org.xwiki.rendering.block.RawBlock;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.internal.renderer.printer.WikiWriter;
 import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
 import org.xwiki.rendering.macro.AbstractMacro;
 import org.xwiki.rendering.macro.MacroContentParser;
@@ -50,8 +56,7 @@
 import org.xwiki.rendering.macro.html.HTMLMacroParameters;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
-import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.renderer.printer.ChunkedWikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.syntax.SyntaxType;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
@@ -129,6 +134,7 @@ public HTMLMacro()
     {
         super("HTML", DESCRIPTION, new DefaultContentDescriptor(CONTENT_DESCRIPTION), HTMLMacroParameters.class);
         setDefaultCategory(DEFAULT_CATEGORY_DEVELOPMENT);
+        setCacheable(true);
     }
 
     @Override
@@ -145,21 +151,28 @@ public List<Block> execute(HTMLMacroParameters parameters, String content, Macro
 
         if (!StringUtils.isEmpty(content)) {
 
-            String normalizedContent = content;
-
             // If the user has mentioned that there's wiki syntax in the macro then we parse the content using
             // a wiki syntax parser and render it back using a special renderer to print the XDOM blocks into
             // a text representing the resulting XHTML content.
+            ChunkedWikiPrinter renderedContent = null;
             if (parameters.getWiki()) {
-                normalizedContent = renderWikiSyntax(normalizedContent, context.getTransformation(), context);
+                // The result depends on the executed macros and on the rendering of links and images
+                context.setCacheable(false);
+                renderedContent = renderWikiSyntax(content, context.getTransformation(), context);
             }
 
+            String normalizedContent;
+
             // Clean the HTML into valid XHTML if the user has asked (it's the default).
             if (parameters.getClean()) {
-                normalizedContent = cleanHTML(normalizedContent, context);
+                // The cleaner reads the rendered content directly from the printer chunks
+                normalizedContent = cleanHTML(
+                    renderedContent != null ? renderedContent.toReader() : new StringReader(content), context);
             } else if (context.getTransformationContext().isRestricted()) {
                 throw new MacroExecutionException(
                     "The HTML macro may not be used with clean=\"false\" in this context.");
+            } else {
+                normalizedContent = renderedContent != null ? renderedContent.toString() : content;
             }
 
             blocks = Arrays.asList((Block) new RawBlock(normalizedContent, XHTML_SYNTAX));
@@ -178,15 +191,11 @@ public List<Block> execute(HTMLMacroParameters parameters, String content, Macro
      * @return the cleaned HTML as a string representing valid XHTML
      * @throws MacroExecutionException if the macro is inline and the content is not inline HTML
      */
-    private String cleanHTML(String content, MacroTransformationContext context) throws MacroExecutionException
+    private String cleanHTML(Reader content, MacroTransformationContext context) throws MacroExecutionException
     {
-        String cleanedContent = content;
-
         HTMLCleanerConfiguration cleanerConfiguration = getCleanerConfiguration(context);
 
-        // Note that we trim the content since we want to be lenient with the user in case he has entered
-        // some spaces/newlines before a XML declaration (prolog). Otherwise the XML parser would fail to parse.
-        Document document = this.htmlCleaner.clean(new StringReader(cleanedContent), cleanerConfiguration);
+        Document document = this.htmlCleaner.clean(content, cleanerConfiguration);
 
         // Since XML can only have a single root node and since we want to allow users to put
         // content such as the following, we need to wrap the content in a root node:
@@ -217,32 +226,51 @@ private String cleanHTML(String content, MacroTransformationContext context) thr
             }
         }
 
-        // Don't print the XML declaration nor the XHTML DocType.
-        cleanedContent = HTMLUtils.toString(document, true, true);
+        // Only print the content of the top level html element (which is always present since it's been normalized
+        // by the HTML cleaner): the XML declaration, the XHTML DocType and the html element itself are not part of the
+        // macro output.
+        return serializeContent(document.getDocumentElement());
+    }
 
-        // Don't print the top level html element (which is always present and at the same location
-        // since it's been normalized by the HTML cleaner)
-        // Note: we trim the first 7 characters since they correspond to a leading new line (generated by
-        // XMLUtils.toString() since the doctype is printed on a line by itself followed by a new line) +
-        // the 6 chars from "<html>".
-        cleanedContent = cleanedContent.substring(7, cleanedContent.length() - 8);
+    /**
+     * Serialize the content of the passed element the same way as
+     * {@link HTMLUtils#toString(Document, boolean, boolean)}, without serializing the whole document to then extract
+     * the content from the resulting string.
+     *
+     * @param element the element whose content to serialize
+     * @return the serialized content
+     * @throws MacroExecutionException if the serialization fails
+     */
+    private String serializeContent(Element element) throws MacroExecutionException
+    {
+        Format format = Format.getRawFormat();
+        format.setLineSeparator("\n");
+        format.setExpandEmptyElements(true);
+        XMLOutputter outputter = new HTMLUtils.XWikiXMLOutputter(format, true);
+
+        ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
+        try {
+            outputter.output(new DOMBuilder().build(element).getContent(), new WikiWriter(printer));
+        } catch (IOException e) {
+            throw new MacroExecutionException("Failed to serialize the cleaned HTML", e);
+        }
 
-        return cleanedContent;
+        return printer.toString();
     }
 
     /**
-     * Parse the passed context using a wiki syntax parser and render the result as an XHTML string.
+     * Parse the passed context using a wiki syntax parser and render the result as XHTML.
      *
      * @param content the content to parse
      * @param transformation the macro transformation to execute macros when wiki is set to true
      * @param context the context of the macros transformation process
-     * @return the output XHTML as a string containing the XWiki Syntax resolved as XHTML
+     * @return the printer containing the output XHTML (the XWiki Syntax resolved as XHTML)
      * @throws MacroExecutionException in case there's a parsing problem
      */
-    private String renderWikiSyntax(String content, Transformation transformation, MacroTransformationContext context)
-        throws MacroExecutionException
+    private ChunkedWikiPrinter renderWikiSyntax(String content, Transformation transformation,
+        MacroTransformationContext context) throws MacroExecutionException
     {
-        String xhtml;
+        ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
 
         try {
             // Parse the wiki syntax
@@ -278,20 +306,16 @@ private String renderWikiSyntax(String content, Transformation transformation, M
                 htmlMacroMarker.getParent().replaceChild(htmlMacroBlock, htmlMacroMarker);
             }
 
-            // Render the whole parsed content as a XHTML string
-            WikiPrinter printer = new DefaultWikiPrinter();
+            // Render the whole parsed content as XHTML
             PrintRenderer renderer = this.xhtmlRendererFactory.createRenderer(printer);
             for (Block block : htmlMacroMarker.getChildren()) {
                 block.traverse(renderer);
             }
-
-            xhtml = printer.toString();
-
         } catch (Exception e) {
             throw new MacroExecutionException("Failed to parse content [" + content + "].", e);
         }
 
-        return xhtml;
+        return printer;
     }
 
     /**
@@ -62,6 +62,7 @@ public IdMacro()
         // Set a high priority so that this macro executes before most others.
         setPriority(20);
         setDefaultCategory(DEFAULT_CATEGORY_NAVIGATION);
+        setCacheable(true);
     }
 
     @Override
@@ -79,6 +79,7 @@ public QuoteMacro()
     {
         super("Quote", DESCRIPTION, new DefaultContentDescriptor(CONTENT_DESCRIPTION));
         setDefaultCategory(DEFAULT_CATEGORY_FORMATTING);
+        setCacheable(true);
     }
 
     @Override
@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.macro.toc;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -33,6 +34,7 @@
 import org.xwiki.rendering.block.SectionBlock;
 import org.xwiki.rendering.block.match.ClassBlockMatcher;
 import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.transformation.DocumentOutline;
 
 /**
  * Generates a TOc Tree of {@link Block} from input input parameters.
@@ -42,6 +44,8 @@
  */
 public class TocTreeBuilder
 {
+    private static final String LABEL_KEY = "toc.label";
+
     private TocBlockFilter tocBlockFilter;
 
     /**
@@ -79,8 +83,12 @@ public List<Block> build(TreeParameters parameters)
         // .........|_ ListItemBlock (TextBlock: Section5)
 
         // Get the list of sections in the scope
-        List<HeaderBlock> headers =
-            parameters.rootBlock.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+        List<HeaderBlock> headers;
+        if (parameters.outline != null) {
+            headers = parameters.outline.getBlocks(HeaderBlock.class, parameters.rootBlock);
+        } else {
+            headers = parameters.rootBlock.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+        }
 
         // If the root block is a section, remove its header block for the list of header blocks
         if (parameters.rootBlock instanceof SectionBlock) {
@@ -93,7 +101,7 @@ public List<Block> build(TreeParameters parameters)
 
         // Construct table of content from sections list
         Block tocBlock = generateTree(headers, parameters.start, parameters.depth, parameters.isNumbered,
-            parameters.documentReference);
+            parameters.documentReference, parameters.outline);
         if (tocBlock != null) {
             result = Arrays.asList(tocBlock);
         } else {
@@ -110,10 +118,11 @@ public List<Block> build(TreeParameters parameters)
      * @param start the "start" parameter value.
      * @param depth the "depth" parameter value.
      * @param numbered the "numbered" parameter value.
+     * @param outline the outline caching the labels of the headers, if any
      * @return the root block of generated block tree or null if no header was matching the specified parameters
      */
     private Block generateTree(List<HeaderBlock> headers, int start, int depth, boolean numbered,
-        String documentReference)
+        String documentReference, DocumentOutline outline)
     {
         Block tocBlock = null;
 
@@ -128,7 +137,7 @@ private Block generateTree(List<HeaderBlock> headers, int start, int depth, bool
                 if (currentLevel < headerLevel) {
                     while (currentLevel < headerLevel) {
                         if (currentBlock instanceof ListBLock) {
-                            currentBlock = addItemBlock(currentBlock, null, documentReference);
+                            currentBlock = addItemBlock(currentBlock, null, documentReference, outline);
                         }
 
                         currentBlock = createChildListBlock(numbered, currentBlock);
@@ -142,7 +151,7 @@ private Block generateTree(List<HeaderBlock> headers, int start, int depth, bool
                     currentBlock = currentBlock.getParent();
                 }
 
-                currentBlock = addItemBlock(currentBlock, headerBlock, documentReference);
+                currentBlock = addItemBlock(currentBlock, headerBlock, documentReference, outline);
             }
         }
 
@@ -158,12 +167,14 @@ private Block generateTree(List<HeaderBlock> headers, int start, int depth, bool
      *
      * @param currentBlock the current block in the toc tree.
      * @param headerBlock the {@link HeaderBlock} to use to generate toc anchor label.
+     * @param outline the outline caching the labels of the headers, if any
      * @return the new {@link ListItemBlock}.
      */
-    private Block addItemBlock(Block currentBlock, HeaderBlock headerBlock, String documentReference)
+    private Block addItemBlock(Block currentBlock, HeaderBlock headerBlock, String documentReference,
+        DocumentOutline outline)
     {
         ListItemBlock itemBlock =
-            headerBlock == null ? createEmptyTocEntry() : createTocEntry(headerBlock, documentReference);
+            headerBlock == null ? createEmptyTocEntry() : createTocEntry(headerBlock, documentReference, outline);
 
         currentBlock.addChild(itemBlock);
 
@@ -183,18 +194,40 @@ private ListItemBlock createEmptyTocEntry()
      * Create a new toc list item based on section title.
      *
      * @param headerBlock the {@link HeaderBlock}.
+     * @param outline the outline caching the labels of the headers, if any
      * @return the new list item block.
      */
-    private ListItemBlock createTocEntry(HeaderBlock headerBlock, String documentReference)
+    private ListItemBlock createTocEntry(HeaderBlock headerBlock, String documentReference, DocumentOutline outline)
     {
         // Create the link to target the header anchor
         DocumentResourceReference reference = new DocumentResourceReference(documentReference);
         reference.setAnchor(headerBlock.getId());
-        LinkBlock linkBlock = new LinkBlock(this.tocBlockFilter.generateLabel(headerBlock), reference, false);
+        LinkBlock linkBlock = new LinkBlock(generateLabel(headerBlock, outline), reference, false);
 
         return new ListItemBlock(Collections.singletonList(linkBlock));
     }
 
+    /**
+     * @param headerBlock the {@link HeaderBlock}.
+     * @param outline the outline caching the labels of the headers, if any
+     * @return the label of the toc entry
+     */
+    private List<Block> generateLabel(HeaderBlock headerBlock, DocumentOutline outline)
+    {
+        if (outline == null) {
+            return this.tocBlockFilter.generateLabel(headerBlock);
+        }
+
+        // Filter the header only once for all the TOCs of the document and give a copy to each TOC
+        List<Block> label = outline.computeIfAbsent(headerBlock, LABEL_KEY, this.tocBlockFilter::generateLabel);
+        List<Block> result = new ArrayList<>(label.size());
+        for (Block block : label) {
+            result.add(block.clone());
+        }
+
+        return result;
+    }
+
     /**
      * Create a new ListBlock and add it in the provided parent block.
      *
@@ -21,6 +21,7 @@
 
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.macro.toc.TocMacroParameters;
+import org.xwiki.rendering.transformation.DocumentOutline;
 
 /**
  * Input parameters for generating the tree of {@link Block}s.
@@ -50,6 +51,13 @@
      */
     public Block rootBlock;
 
+    /**
+     * The outline of the document containing the root block. If null then the headers are searched in the root block.
+     *
+     * @since 10.0RC1
+     */
+    public DocumentOutline outline;
+
     /**
      * The reference used when generating the TOC anchor links. If null then local links are generated.
      */
@@ -63,6 +63,12 @@ public TreeParameters build(Block rootBlock, TocMacroParameters macroParameters,
         }
         parameters.rootBlock = resolvedRootBlock;
 
+        // Reuse the headers already collected in the document being transformed
+        if (rootBlock == null && context.getOutline() != null
+            && resolvedRootBlock.getRoot() == context.getOutline().getXDOM()) {
+            parameters.outline = context.getOutline();
+        }
+
         // For local scope, if no start parameter was specified, compute it so that the TOC starts from the next
         // heading level found in the next section in the XDOM (from the root block).
         if (macroParameters.getScope() == TocMacroParameters.Scope.LOCAL && !macroParameters.isCustomStart()) {
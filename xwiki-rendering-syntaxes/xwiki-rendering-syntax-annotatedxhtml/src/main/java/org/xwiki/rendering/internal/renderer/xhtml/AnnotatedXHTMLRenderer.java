@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml;
 
+import java.util.Collection;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -27,6 +29,8 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.internal.renderer.PrefetchingRenderer;
 import org.xwiki.rendering.internal.renderer.xhtml.image.XHTMLImageRenderer;
 import org.xwiki.rendering.internal.renderer.xhtml.link.XHTMLLinkRenderer;
 import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
@@ -47,7 +51,7 @@
 @Component
 @Named("annotatedxhtml/1.0")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class AnnotatedXHTMLRenderer extends AbstractChainingPrintRenderer implements Initializable
+public class AnnotatedXHTMLRenderer extends AbstractChainingPrintRenderer implements Initializable, PrefetchingRenderer
 {
     /**
      * To render link events into annotated XHTML. This is done so that it's pluggable because link rendering depends
@@ -81,4 +85,10 @@ public void initialize() throws InitializationException
         chain.addListener(new MetaDataStateChainingListener(chain));
         chain.addListener(new AnnotatedXHTMLChainingRenderer(this.linkRenderer, this.imageRenderer, chain));
     }
+
+    @Override
+    public void prefetch(Collection<Block> blocks)
+    {
+        this.linkRenderer.prefetch(blocks);
+    }
 }
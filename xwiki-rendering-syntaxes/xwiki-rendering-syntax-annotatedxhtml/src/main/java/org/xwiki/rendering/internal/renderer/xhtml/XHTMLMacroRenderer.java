@@ -47,24 +47,26 @@ public void render(XHTMLWikiPrinter printer, String name, Map<String, String> pa
 
     public void beginRender(XHTMLWikiPrinter printer, String name, Map<String, String> parameters, String content)
     {
-        StringBuilder buffer = new StringBuilder("startmacro:");
+        // Stream the comment to the printer instead of building and then escaping its whole content
+        printer.printXMLStartComment();
 
         // Print name
-        buffer.append(name);
+        printer.printXMLCommentContent("startmacro:");
+        printer.printXMLCommentContent(name);
 
         // Print parameters
-        buffer.append(COMMENT_SEPARATOR);
+        printer.printXMLCommentContent(COMMENT_SEPARATOR);
         if (!parameters.isEmpty()) {
-            buffer.append(PARAMETERS_PRINTER.print(parameters));
+            PARAMETERS_PRINTER.print(parameters, printer::printXMLCommentContent);
         }
 
         // Print content
         if (content != null) {
-            buffer.append(COMMENT_SEPARATOR);
-            buffer.append(content);
+            printer.printXMLCommentContent(COMMENT_SEPARATOR);
+            printer.printXMLCommentContent(content);
         }
 
-        printer.printXMLComment(buffer.toString(), true);
+        printer.printXMLEndComment();
     }
 
     public void endRender(XHTMLWikiPrinter printer)
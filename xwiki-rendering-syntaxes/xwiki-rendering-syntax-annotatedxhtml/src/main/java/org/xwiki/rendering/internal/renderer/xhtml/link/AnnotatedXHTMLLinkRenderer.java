@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
+import java.util.Collection;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -27,6 +28,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
@@ -68,6 +70,12 @@ public void setHasLabel(boolean hasLabel)
         this.defaultLinkRenderer.setHasLabel(hasLabel);
     }
 
+    @Override
+    public void prefetch(Collection<Block> blocks)
+    {
+        this.defaultLinkRenderer.prefetch(blocks);
+    }
+
     @Override
     public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.apt;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.internal.parser.doxia.AbstractDoxiaParser;
+import org.xwiki.rendering.internal.parser.doxia.DoxiaParsingSession;
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.test.ComponentManagerRule;
+import org.xwiki.test.annotation.AllComponents;
+
+/**
+ * Unit tests for {@link APTParser} that cannot easily be performed using the Rendering Test framework.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@AllComponents
+public class APTParserTest
+{
+    private static final String DOCUMENT1 = "Title level 1\n\n"
+        + " This is <<bold>> text.\n\n"
+        + "-----------\n"
+        + "verbatim\n"
+        + "-----------\n";
+
+    private static final String DOCUMENT2 = "Title level 1\n\n"
+        + "* Title level 2\n\n"
+        + " Some <italic> text:\r\n"
+        + " 1 + 2 = 3!\n";
+
+    @Rule
+    public final ComponentManagerRule componentManager = new ComponentManagerRule();
+
+    private AbstractDoxiaParser parser;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parser = this.componentManager.getInstance(Parser.class, "apt/1.0");
+    }
+
+    private QueueListener parse(String source) throws Exception
+    {
+        QueueListener listener = new QueueListener();
+        this.parser.parse(new StringReader(source), listener);
+        return listener;
+    }
+
+    private QueueListener parse(String source, DoxiaParsingSession session) throws Exception
+    {
+        QueueListener listener = new QueueListener();
+        session.parse(new StringReader(source), listener);
+        return listener;
+    }
+
+    private void assertEquals(QueueListener expected, QueueListener actual)
+    {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            QueueListener.Event expectedEvent = expected.get(i);
+            QueueListener.Event actualEvent = actual.get(i);
+            Assert.assertEquals(expectedEvent.eventType, actualEvent.eventType);
+            Assert.assertTrue(Arrays.deepEquals(expectedEvent.eventParameters, actualEvent.eventParameters));
+        }
+    }
+
+    @Test
+    public void parseSeveralDocumentsWithSameSession() throws Exception
+    {
+        DoxiaParsingSession session = this.parser.createSession();
+
+        assertEquals(parse(DOCUMENT1), parse(DOCUMENT1, session));
+        // The second document must not be affected by the state left by the first one
+        assertEquals(parse(DOCUMENT2), parse(DOCUMENT2, session));
+        assertEquals(parse(DOCUMENT1), parse(DOCUMENT1, session));
+    }
+
+    @Test
+    public void parseXDOMWithSession() throws Exception
+    {
+        DoxiaParsingSession session = this.parser.createSession();
+        session.parse(new StringReader(DOCUMENT1));
+
+        QueueListener expected = new QueueListener();
+        this.parser.parse(new StringReader(DOCUMENT2)).traverse(expected);
+        QueueListener actual = new QueueListener();
+        session.parse(new StringReader(DOCUMENT2)).traverse(actual);
+
+        assertEquals(expected, actual);
+    }
+}
@@ -25,8 +25,10 @@
 import javax.inject.Named;
 
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
 import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
 import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.Parser;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
@@ -47,10 +49,6 @@ public abstract class AbstractDoxiaParser implements Parser, StreamParser
     @Named("plain/1.0")
     protected PrintRendererFactory plainRendererFactory;
 
-    @Inject
-    @Named("plain/1.0")
-    private StreamParser plainParser;
-
     @Inject
     @Named("default/link")
     private ResourceReferenceParser linkReferenceParser;
@@ -59,14 +57,60 @@ public abstract class AbstractDoxiaParser implements Parser, StreamParser
     @Named("default/image")
     private ResourceReferenceParser imageReferenceParser;
 
+    /**
+     * Used to get the pool used to share the strings of the produced XDOM.
+     */
+    @Inject
+    private RenderingConfiguration renderingConfiguration;
+
+    /**
+     * Used to report the duration of parsings.
+     */
+    @Inject
+    private RenderingMetrics metrics;
+
     public abstract org.apache.maven.doxia.parser.Parser createDoxiaParser();
 
+    /**
+     * @return a new session to parse several documents with the same Doxia parser and sink
+     * @since 10.0RC1
+     */
+    public DoxiaParsingSession createSession()
+    {
+        return new DoxiaParsingSession(this, createDoxiaParser());
+    }
+
     @Override
     public XDOM parse(Reader source) throws ParseException
+    {
+        return parse(source, createSession());
+    }
+
+    XDOM parse(Reader source, DoxiaParsingSession session) throws ParseException
+    {
+        long start = this.metrics != null && this.metrics.isEnabled() ? System.nanoTime() : 0;
+        XDOM xdom = null;
+        Throwable error = null;
+
+        try {
+            xdom = parseXDOM(source, session);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            if (start != 0) {
+                this.metrics.onParse(getSyntax(), xdom, System.nanoTime() - start, error);
+            }
+        }
+
+        return xdom;
+    }
+
+    private XDOM parseXDOM(Reader source, DoxiaParsingSession session) throws ParseException
     {
         IdGenerator idGenerator = new IdGenerator();
-        XDOMGeneratorListener listener = new XDOMGeneratorListener();
-        parse(source, listener, idGenerator);
+        XDOMGeneratorListener listener = new XDOMGeneratorListener(this.renderingConfiguration.getStringPool());
+        session.parse(source, listener, idGenerator);
 
         XDOM xdom = listener.getXDOM();
         xdom.setIdGenerator(idGenerator);
@@ -77,29 +121,12 @@ public XDOM parse(Reader source) throws ParseException
     @Override
     public void parse(Reader source, Listener listener) throws ParseException
     {
-        IdGenerator idGenerator = new IdGenerator();
-
-        parse(source, listener, idGenerator);
+        createSession().parse(source, listener);
     }
 
-    /**
-     * @param source the content to parse
-     * @param listener receive event for each element
-     * @param idGenerator unique id tool generator
-     * @throws ParseException if the source cannot be read or an unexpected error happens during the parsing. Parsers
-     *             should be written to not generate any error as much as possible.
-     */
-    private void parse(Reader source, Listener listener, IdGenerator idGenerator) throws ParseException
+    XWikiGeneratorSink createSink(Listener listener, IdGenerator idGenerator)
     {
-        XWikiGeneratorSink doxiaSink =
-            new XWikiGeneratorSink(listener, this.linkReferenceParser, this.plainRendererFactory, idGenerator,
-                this.plainParser, getSyntax());
-
-        org.apache.maven.doxia.parser.Parser parser = createDoxiaParser();
-        try {
-            parser.parse(source, doxiaSink);
-        } catch (Exception e) {
-            throw new ParseException("Failed to parse input source", e);
-        }
+        return new XWikiGeneratorSink(listener, this.linkReferenceParser, this.plainRendererFactory, idGenerator,
+            getSyntax());
     }
 }
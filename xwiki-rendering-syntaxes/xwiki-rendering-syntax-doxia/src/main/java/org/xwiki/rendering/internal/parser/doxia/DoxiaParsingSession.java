@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.io.Reader;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * Parse several documents with the same Doxia parser and {@link XWikiGeneratorSink} instead of creating new ones for
+ * each document, to reduce the cost of bulk imports. A session is not thread safe: the documents have to be parsed one
+ * after the other.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class DoxiaParsingSession
+{
+    private final AbstractDoxiaParser parser;
+
+    private final org.apache.maven.doxia.parser.Parser doxiaParser;
+
+    private XWikiGeneratorSink sink;
+
+    /**
+     * @param parser the XWiki parser which created the session
+     * @param doxiaParser the Doxia parser to reuse
+     */
+    DoxiaParsingSession(AbstractDoxiaParser parser, org.apache.maven.doxia.parser.Parser doxiaParser)
+    {
+        this.parser = parser;
+        this.doxiaParser = doxiaParser;
+    }
+
+    /**
+     * @param source the content to parse
+     * @return the tree representation of the content as {@link org.xwiki.rendering.block.Block}s
+     * @throws ParseException if the source cannot be read or an unexpected error happens during the parsing
+     */
+    public XDOM parse(Reader source) throws ParseException
+    {
+        return this.parser.parse(source, this);
+    }
+
+    /**
+     * @param source the content to parse
+     * @param listener receive event for each element
+     * @throws ParseException if the source cannot be read or an unexpected error happens during the parsing
+     */
+    public void parse(Reader source, Listener listener) throws ParseException
+    {
+        parse(source, listener, new IdGenerator());
+    }
+
+    void parse(Reader source, Listener listener, IdGenerator idGenerator) throws ParseException
+    {
+        if (this.sink == null) {
+            this.sink = this.parser.createSink(listener, idGenerator);
+        } else {
+            this.sink.reset(listener, idGenerator);
+        }
+
+        try {
+            this.doxiaParser.parse(source, this.sink);
+        } catch (Exception e) {
+            throw new ParseException("Failed to parse input source", e);
+        }
+    }
+}
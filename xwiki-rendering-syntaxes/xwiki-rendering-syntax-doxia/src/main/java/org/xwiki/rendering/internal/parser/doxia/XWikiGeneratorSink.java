@@ -19,7 +19,6 @@
  */
 package org.xwiki.rendering.internal.parser.doxia;
 
-import java.io.StringReader;
 import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Deque;
@@ -30,21 +29,18 @@
 import org.xwiki.rendering.listener.CompositeListener;
 import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.listener.HeaderLevel;
-import org.xwiki.rendering.listener.InlineFilterListener;
 import org.xwiki.rendering.listener.ListType;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.listener.QueueListener;
 import org.xwiki.rendering.listener.VoidListener;
-import org.xwiki.rendering.listener.WrappingListener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
-import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
 import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.ChunkedWikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.util.IdGenerator;
 
@@ -56,6 +52,17 @@
  */
 public class XWikiGeneratorSink implements Sink
 {
+    /**
+     * The characters producing special symbol events, same as the plain text parser.
+     */
+    private static final boolean[] SPECIAL_SYMBOLS = new boolean[128];
+
+    static {
+        for (char c : "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray()) {
+            SPECIAL_SYMBOLS[c] = true;
+        }
+    }
+
     private Deque<Listener> listener = new ArrayDeque<Listener>();
 
     private Deque<Object> parameters = new ArrayDeque<Object>();
@@ -66,8 +73,6 @@ public class XWikiGeneratorSink implements Sink
 
     private PrintRendererFactory plainRendererFactory;
 
-    private StreamParser plainParser;
-
     private int lineBreaks;
 
     private int inlineDepth;
@@ -82,17 +87,50 @@ public class XWikiGeneratorSink implements Sink
 
     /**
      * @since 3.0M3
+     * @deprecated since 10.0RC1, text is now split in words, spaces and special symbols by the sink itself, use
+     *             {@link #XWikiGeneratorSink(Listener, ResourceReferenceParser, PrintRendererFactory, IdGenerator,
+     *             Syntax)} instead
      */
+    @Deprecated
     public XWikiGeneratorSink(Listener listener, ResourceReferenceParser linkReferenceParser,
         PrintRendererFactory plainRendererFactory, IdGenerator idGenerator, StreamParser plainParser, Syntax syntax)
     {
-        pushListener(listener);
+        this(listener, linkReferenceParser, plainRendererFactory, idGenerator, syntax);
+    }
 
+    /**
+     * @since 10.0RC1
+     */
+    public XWikiGeneratorSink(Listener listener, ResourceReferenceParser linkReferenceParser,
+        PrintRendererFactory plainRendererFactory, IdGenerator idGenerator, Syntax syntax)
+    {
         this.linkReferenceParser = linkReferenceParser;
-        this.idGenerator = idGenerator != null ? idGenerator : new IdGenerator();
         this.plainRendererFactory = plainRendererFactory;
-        this.plainParser = plainParser;
         this.syntax = syntax;
+
+        reset(listener, idGenerator);
+    }
+
+    /**
+     * Prepare the sink for a new document so that it can be reused instead of creating a new one.
+     *
+     * @param listener the listener receiving the events of the new document
+     * @param idGenerator the generator of the unique ids of the new document
+     * @since 10.0RC1
+     */
+    public void reset(Listener listener, IdGenerator idGenerator)
+    {
+        this.listener.clear();
+        pushListener(listener);
+        this.parameters.clear();
+
+        this.idGenerator = idGenerator != null ? idGenerator : new IdGenerator();
+        this.lineBreaks = 0;
+        this.inlineDepth = 0;
+        this.isInVerbatim = false;
+        this.accumulatedText.setLength(0);
+
+        // The metadata end up in the generated XDOM so they are not shared between documents
         this.documentMetadata = new MetaData();
         this.documentMetadata.addMetaData(MetaData.SYNTAX, this.syntax);
     }
@@ -730,7 +768,7 @@ public void sectionTitle(int level, SinkEventAttributes attributes)
         CompositeListener composite = new CompositeListener();
 
         composite.addListener(new QueueListener());
-        composite.addListener(this.plainRendererFactory.createRenderer(new DefaultWikiPrinter()));
+        composite.addListener(this.plainRendererFactory.createRenderer(new ChunkedWikiPrinter()));
 
         pushListener(composite);
 
@@ -988,19 +1026,33 @@ public void text(String text, SinkEventAttributes attributes)
         }
 
         // TODO Handle parameters
-        // Since Doxia doesn't generate events at the word level we need to reparse the
-        // text to extract spaces, special symbols and words.
-
+        // Since Doxia doesn't generate events at the word level we need to split the
+        // text to extract spaces, special symbols and words, the same way the plain text parser does.
         // TODO: Use an inline parser. See https://jira.xwiki.org/browse/XWIKI-2748
-        WrappingListener inlineFilterListener = new InlineFilterListener();
-        inlineFilterListener.setWrappedListener(getListener());
-
-        // Parse the text using the plain text parser
-        try {
-            this.plainParser.parse(new StringReader(text), inlineFilterListener);
-        } catch (ParseException e) {
-            // Shouldn't happen since we use a StringReader which shouldn't generate any IO.
-            throw new RuntimeException("Failed to parse raw text [" + text + "]", e);
+        String plainText = text.indexOf('\r') >= 0 ? text.replace("\r", "") : text;
+        Listener currentListener = getListener();
+
+        int wordStart = 0;
+        for (int i = 0; i < plainText.length(); ++i) {
+            char c = plainText.charAt(i);
+            if (c == ' ' || c == '\n' || (c < SPECIAL_SYMBOLS.length && SPECIAL_SYMBOLS[c])) {
+                if (i > wordStart) {
+                    currentListener.onWord(plainText.substring(wordStart, i));
+                }
+                wordStart = i + 1;
+
+                if (c == ' ') {
+                    currentListener.onSpace();
+                } else if (c == '\n') {
+                    currentListener.onNewLine();
+                } else {
+                    currentListener.onSpecialSymbol(c);
+                }
+            }
+        }
+
+        if (wordStart < plainText.length()) {
+            currentListener.onWord(plainText.substring(wordStart));
         }
     }
 
@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.doxia;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.rendering.internal.parser.plain.PlainTextStreamParser;
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Unit tests for {@link XWikiGeneratorSink}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class XWikiGeneratorSinkTest
+{
+    /**
+     * Verify that the text is split into the same events as the plain text parser produces.
+     */
+    private void assertTextSplitLikePlainParser(String text) throws Exception
+    {
+        QueueListener expected = new QueueListener();
+        new PlainTextStreamParser().parse(new StringReader(text), expected);
+        // Only keep the inline events
+        expected.removeIf(event -> event.eventType == EventType.BEGIN_DOCUMENT
+            || event.eventType == EventType.END_DOCUMENT || event.eventType == EventType.BEGIN_PARAGRAPH
+            || event.eventType == EventType.END_PARAGRAPH);
+
+        QueueListener actual = new QueueListener();
+        XWikiGeneratorSink sink = new XWikiGeneratorSink(actual, null, null, null, Syntax.XWIKI_2_1);
+        sink.text(text);
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).eventType, actual.get(i).eventType);
+            Assert.assertTrue(Arrays.deepEquals(expected.get(i).eventParameters, actual.get(i).eventParameters));
+        }
+    }
+
+    @Test
+    public void textWithWordsAndSpaces() throws Exception
+    {
+        assertTextSplitLikePlainParser("Some  text with spaces ");
+        assertTextSplitLikePlainParser(" leading space");
+    }
+
+    @Test
+    public void textWithSpecialSymbols() throws Exception
+    {
+        assertTextSplitLikePlainParser("!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~");
+        assertTextSplitLikePlainParser("a:b, c(d) 1+2=3! e-mail@domain.org");
+        assertTextSplitLikePlainParser("été €5 «quotes» and ü");
+    }
+
+    @Test
+    public void textWithNewLines() throws Exception
+    {
+        assertTextSplitLikePlainParser("first\r\nsecond\nthird\r\n");
+        assertTextSplitLikePlainParser("wo\rrd\r\n\r\nnext");
+        assertTextSplitLikePlainParser("\r\n:)\r\n");
+    }
+}
@@ -19,7 +19,6 @@
  */
 package org.xwiki.rendering.internal.parser.plain;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.regex.Pattern;
@@ -51,6 +50,38 @@ public class PlainTextStreamParser implements StreamParser
      */
     public static final Pattern SPECIALSYMBOL_PATTERN = Pattern.compile("[!\"#$%&'()*+,-./:;<=>?@\\[\\]^_`{|}~]");
 
+    /**
+     * Size of the buffer used to read the source.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final byte WORD = 0;
+
+    private static final byte SPECIAL_SYMBOL = 1;
+
+    private static final byte SPACE = 2;
+
+    private static final byte NEW_LINE = 3;
+
+    private static final byte SKIPPED = 4;
+
+    /**
+     * The type of each ASCII character (all other characters are part of words), equivalent to
+     * {@link #SPECIALSYMBOL_PATTERN} but without the cost of a regex match for each character.
+     */
+    private static final byte[] CHARACTER_TYPES = new byte[128];
+
+    static {
+        for (char c = 0; c < CHARACTER_TYPES.length; c++) {
+            if (SPECIALSYMBOL_PATTERN.matcher(String.valueOf(c)).matches()) {
+                CHARACTER_TYPES[c] = SPECIAL_SYMBOL;
+            }
+        }
+        CHARACTER_TYPES[' '] = SPACE;
+        CHARACTER_TYPES['\n'] = NEW_LINE;
+        CHARACTER_TYPES['\r'] = SKIPPED;
+    }
+
     @Override
     public Syntax getSyntax()
     {
@@ -58,43 +89,84 @@ public Syntax getSyntax()
     }
 
     /**
-     * Read a single char from an Reader source.
+     * @param c the character to check
+     * @return true if the character is considered as a "special" symbol (i.e. it matches
+     *         {@link #SPECIALSYMBOL_PATTERN})
+     * @since 10.0RC1
+     */
+    public static boolean isSpecialSymbol(char c)
+    {
+        return getType(c) == SPECIAL_SYMBOL;
+    }
+
+    private static byte getType(char c)
+    {
+        return c < CHARACTER_TYPES.length ? CHARACTER_TYPES[c] : WORD;
+    }
+
+    /**
+     * Read characters from a Reader source.
      *
      * @param source the input to read from
-     * @return the char read
+     * @param buffer the buffer where to put the read characters
+     * @return the number of characters read or -1 if the end of the source has been reached
      * @throws ParseException in case of reading error
      */
-    private int readChar(Reader source) throws ParseException
+    private int read(Reader source, char[] buffer) throws ParseException
     {
-        int c;
+        int count;
 
         try {
-            c = source.read();
+            count = source.read(buffer);
         } catch (IOException e) {
             throw new ParseException("Failed to read input source", e);
         }
 
-        return c;
+        return count;
     }
 
     @Override
     public void parse(Reader source, Listener listener) throws ParseException
     {
+        // Only used when a word spans over several reads
         StringBuilder word = new StringBuilder();
-        BufferedReader bufferedSource = new BufferedReader(source);
-        int charAsInt;
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
 
         listener.beginDocument(MetaData.EMPTY);
 
         boolean paragraphSent = false;
 
-        while ((charAsInt = readChar(bufferedSource)) != -1) {
-            if (!paragraphSent) {
+        while ((count = read(source, buffer)) != -1) {
+            if (count > 0 && !paragraphSent) {
                 listener.beginParagraph(Listener.EMPTY_PARAMETERS);
                 paragraphSent = true;
             }
 
-            parseChar(charAsInt, word, listener);
+            // Start of the current word in the buffer
+            int wordStart = 0;
+            for (int i = 0; i < count; i++) {
+                char c = buffer[i];
+                byte type = getType(c);
+                if (type == SKIPPED) {
+                    // Skipped characters don't end the current word
+                    word.append(buffer, wordStart, i - wordStart);
+                    wordStart = i + 1;
+                } else if (type != WORD) {
+                    flushWord(buffer, wordStart, i, word, listener);
+                    wordStart = i + 1;
+                    if (type == SPECIAL_SYMBOL) {
+                        listener.onSpecialSymbol(c);
+                    } else if (type == SPACE) {
+                        listener.onSpace();
+                    } else if (type == NEW_LINE) {
+                        listener.onNewLine();
+                    }
+                }
+            }
+
+            // Keep the start of the word which may continue in the next read
+            word.append(buffer, wordStart, count - wordStart);
         }
 
         if (word.length() > 0) {
@@ -108,34 +180,14 @@ public void parse(Reader source, Listener listener) throws ParseException
         listener.endDocument(MetaData.EMPTY);
     }
 
-    private void parseChar(int charAsInt, StringBuilder word, Listener listener) throws ParseException
+    private void flushWord(char[] buffer, int start, int end, StringBuilder word, Listener listener)
     {
-        char c = (char) charAsInt;
-        if (c == '\n') {
-            if (word.length() > 0) {
-                listener.onWord(word.toString());
-            }
-            listener.onNewLine();
-
-            word.setLength(0);
-        } else if (c == '\r') {
-            // Do nothing, skip it
-        } else if (c == ' ') {
-            if (word.length() > 0) {
-                listener.onWord(word.toString());
-            }
-            listener.onSpace();
-
-            word.setLength(0);
-        } else if (SPECIALSYMBOL_PATTERN.matcher(String.valueOf(c)).matches()) {
-            if (word.length() > 0) {
-                listener.onWord(word.toString());
-            }
-            listener.onSpecialSymbol(c);
-
+        if (word.length() > 0) {
+            word.append(buffer, start, end - start);
+            listener.onWord(word.toString());
             word.setLength(0);
-        } else {
-            word.append(c);
+        } else if (end > start) {
+            listener.onWord(new String(buffer, start, end - start));
         }
     }
 }
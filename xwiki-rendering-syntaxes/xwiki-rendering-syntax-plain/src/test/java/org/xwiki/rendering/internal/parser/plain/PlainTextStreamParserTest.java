@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.plain;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.NewLineBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+
+/**
+ * Unit tests for {@link PlainTextStreamParser} that cannot easily be performed using the Rendering Test framework.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class PlainTextStreamParserTest
+{
+    /**
+     * Reader returning at most the given number of characters for each read.
+     */
+    private static class ChunkedReader extends StringReader
+    {
+        private final int chunkSize;
+
+        ChunkedReader(String source, int chunkSize)
+        {
+            super(source);
+
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException
+        {
+            return super.read(buffer, offset, Math.min(length, this.chunkSize));
+        }
+    }
+
+    private PlainTextStreamParser parser = new PlainTextStreamParser();
+
+    /**
+     * @return the inline content of the parsed document, words being surrounded with brackets
+     */
+    private List<String> parse(Reader source) throws Exception
+    {
+        XDOMGeneratorListener listener = new XDOMGeneratorListener();
+        this.parser.parse(source, listener);
+        XDOM xdom = listener.getXDOM();
+
+        List<String> result = new ArrayList<>();
+        if (!xdom.getChildren().isEmpty()) {
+            for (Block block : xdom.getChildren().get(0).getChildren()) {
+                if (block instanceof WordBlock) {
+                    result.add('[' + ((WordBlock) block).getWord() + ']');
+                } else if (block instanceof NewLineBlock) {
+                    result.add("\n");
+                } else {
+                    result.add(block.toString());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private List<String> parse(String source) throws Exception
+    {
+        List<String> result = parse(new StringReader(source));
+
+        // Whatever the size of the reads, the result must be the same
+        Assert.assertEquals(result, parse(new ChunkedReader(source, 1)));
+        Assert.assertEquals(result, parse(new ChunkedReader(source, 3)));
+
+        return result;
+    }
+
+    @Test
+    public void parseWordsSymbolsAndSpaces() throws Exception
+    {
+        Assert.assertEquals(Arrays.asList("[Some]", " ", "[text]", ":", ")", "\n", "[été]", "!"),
+            parse("Some text:)\nété!"));
+    }
+
+    @Test
+    public void parseEmptySource() throws Exception
+    {
+        Assert.assertEquals(Arrays.asList(), parse(""));
+    }
+
+    @Test
+    public void parseWordAcrossBufferBoundary() throws Exception
+    {
+        String firstWord = StringUtils.repeat('a', 4090);
+
+        Assert.assertEquals(Arrays.asList('[' + firstWord + ']', " ", "[crossing]", " ", "[word]"),
+            parse(firstWord + " crossing word"));
+    }
+
+    @Test
+    public void parseWordEndingAtBufferBoundary() throws Exception
+    {
+        String firstWord = StringUtils.repeat('a', 4096);
+
+        Assert.assertEquals(Arrays.asList('[' + firstWord + ']', ".", "[next]"), parse(firstWord + ".next"));
+    }
+
+    @Test
+    public void parseWordLongerThanBuffer() throws Exception
+    {
+        String word = StringUtils.repeat("word", 3000);
+
+        Assert.assertEquals(Arrays.asList('[' + word + ']'), parse(word));
+    }
+
+    @Test
+    public void parseCarriageReturnInsideWord() throws Exception
+    {
+        Assert.assertEquals(Arrays.asList("[word]", " ", "[other]"), parse("wo\rrd \rother"));
+    }
+
+    @Test
+    public void parseCarriageReturnAfterWord() throws Exception
+    {
+        Assert.assertEquals(Arrays.asList("[first]", "\n", "[second]"), parse("first\r\nsecond\r"));
+    }
+
+    @Test
+    public void parseCarriageReturnAtBufferBoundary() throws Exception
+    {
+        String firstWord = StringUtils.repeat('a', 4095);
+
+        // The carriage return is the last character of the first read
+        Assert.assertEquals(Arrays.asList('[' + firstWord + "b]", "\n", "[c]"), parse(firstWord + "\rb\r\nc"));
+        // The carriage return is the first character of the second read
+        Assert.assertEquals(Arrays.asList("[a" + firstWord + "b]"), parse('a' + firstWord + "\rb"));
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.wikimodel;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+import org.xwiki.rendering.internal.parser.wikimodel.IncrementalWikiModelParseResult.ParsedBlock;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.parser.IncrementalParseResult;
+import org.xwiki.rendering.parser.IncrementalParser;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.rendering.wikimodel.IWikiBlockSplitter;
+import org.xwiki.rendering.wikimodel.IWikiParser;
+import org.xwiki.rendering.wikimodel.WikiParserException;
+import org.xwiki.rendering.wikimodel.util.SectionBuilder;
+import org.xwiki.rendering.wikimodel.util.SectionListener;
+
+/**
+ * Common code for the WikiModel-based parsers supporting incremental parsing.
+ * <p>
+ * The source is split at the boundaries returned by the WikiModel parser (see {@link IWikiBlockSplitter}) and each top
+ * level block is parsed on its own. The events of each block are kept so that a block whose source has not been
+ * modified is not parsed again, and the XDOM is then produced by replaying the events of all the blocks. Since the
+ * sections and the header ids depend on the whole document they are not taken from the blocks: sections are
+ * produced again from the top level headers and header ids are generated again in document order.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public abstract class AbstractIncrementalWikiModelParser extends AbstractWikiModelParser implements IncrementalParser
+{
+    /**
+     * Paragraph appended to a block followed by other blocks so that it is ended exactly as in the whole document.
+     */
+    private static final String NEXT_BLOCK = "x";
+
+    private static final Set<EventType> BEGIN_EVENTS = EnumSet.noneOf(EventType.class);
+
+    private static final Set<EventType> END_EVENTS = EnumSet.noneOf(EventType.class);
+
+    private static final Set<EventType> DOCUMENT_EVENTS = EnumSet.of(EventType.BEGIN_DOCUMENT,
+        EventType.END_DOCUMENT, EventType.BEGIN_SECTION, EventType.END_SECTION);
+
+    static {
+        for (EventType type : EventType.values()) {
+            if (type.name().startsWith("BEGIN_")) {
+                BEGIN_EVENTS.add(type);
+            } else if (type.name().startsWith("END_")) {
+                END_EVENTS.add(type);
+            }
+        }
+    }
+
+    /**
+     * Remember the ids generated while parsing a block so that they can be generated again for the whole document.
+     *
+     * @version $Id$
+     */
+    private static final class RecordingIdGenerator extends IdGenerator
+    {
+        private final List<String[]> generatedIds = new ArrayList<>();
+
+        @Override
+        public String generateUniqueId(String prefix, String text)
+        {
+            String id = super.generateUniqueId(prefix, text);
+
+            this.generatedIds.add(new String[] { prefix, text, id });
+
+            return id;
+        }
+    }
+
+    @Override
+    public IncrementalParseResult parse(String source) throws ParseException
+    {
+        return parse(source, Collections.<ParsedBlock>emptyList());
+    }
+
+    @Override
+    public IncrementalParseResult parse(IncrementalParseResult previous, int offset, int removedLength,
+        String insertedText) throws ParseException
+    {
+        String previousSource = previous.getSource();
+        if (offset < 0 || removedLength < 0 || offset > previousSource.length() - removedLength) {
+            throw new IllegalArgumentException(String.format("Invalid modification of [%s] characters at [%s]",
+                removedLength, offset));
+        }
+
+        String source = previousSource.substring(0, offset) + insertedText
+            + previousSource.substring(offset + removedLength);
+
+        List<ParsedBlock> previousBlocks = Collections.emptyList();
+        if (previous instanceof IncrementalWikiModelParseResult
+            && getSyntax().equals(((IncrementalWikiModelParseResult) previous).getSyntax())) {
+            previousBlocks = ((IncrementalWikiModelParseResult) previous).getBlocks();
+        }
+
+        return parse(source, previousBlocks);
+    }
+
+    private IncrementalParseResult parse(String source, List<ParsedBlock> previousBlocks) throws ParseException
+    {
+        // Blocks followed by other blocks are parsed with the next block so they are indexed by source, the last one
+        // can only be reused as the last block
+        Map<String, ParsedBlock> reusableBlocks = new HashMap<>();
+        ParsedBlock reusableLastBlock = null;
+        for (ParsedBlock block : previousBlocks) {
+            if (block.isLast()) {
+                reusableLastBlock = block;
+            } else {
+                reusableBlocks.put(block.getSource(), block);
+            }
+        }
+
+        int[] boundaries = getBlockBoundaries(source);
+        List<ParsedBlock> blocks = new ArrayList<>(boundaries.length + 1);
+        int parsedLength = 0;
+        int begin = 0;
+        for (int i = 0; i <= boundaries.length; ++i) {
+            boolean last = i == boundaries.length;
+            String blockSource = source.substring(begin, last ? source.length() : boundaries[i]);
+
+            ParsedBlock block;
+            if (last) {
+                block = reusableLastBlock != null && reusableLastBlock.getSource().equals(blockSource)
+                    ? reusableLastBlock : null;
+            } else {
+                block = reusableBlocks.get(blockSource);
+            }
+
+            if (block == null) {
+                block = parseBlock(blockSource, last);
+                parsedLength += blockSource.length();
+            }
+
+            blocks.add(block);
+            begin += blockSource.length();
+        }
+
+        return new IncrementalWikiModelParseResult(getSyntax(), source, createXDOM(blocks), blocks, parsedLength);
+    }
+
+    private int[] getBlockBoundaries(String source) throws ParseException
+    {
+        IWikiParser parser = createWikiModelParser();
+        if (parser instanceof IWikiBlockSplitter) {
+            try {
+                return ((IWikiBlockSplitter) parser).getBlockBoundaries(source);
+            } catch (WikiParserException e) {
+                throw new ParseException("Failed to find the top level blocks of the input source", e);
+            }
+        }
+
+        // The whole source is a single block
+        return new int[0];
+    }
+
+    private ParsedBlock parseBlock(String source, boolean last) throws ParseException
+    {
+        QueueListener queue = new QueueListener();
+        RecordingIdGenerator idGenerator = new RecordingIdGenerator();
+        parse(new StringReader(last ? source : source + NEXT_BLOCK), queue, idGenerator);
+
+        MetaData metadata = MetaData.EMPTY;
+        List<QueueListener.Event> events = new ArrayList<>(queue.size());
+        int nextBlockIndex = -1;
+        int depth = 0;
+        for (QueueListener.Event event : queue) {
+            EventType type = event.eventType;
+            if (depth == 0 && DOCUMENT_EVENTS.contains(type)) {
+                // The document and its sections (which depend on the headers of the previous blocks) are produced
+                // again when creating the XDOM
+                if (type == EventType.BEGIN_DOCUMENT) {
+                    metadata = (MetaData) event.eventParameters[0];
+                }
+            } else {
+                if (BEGIN_EVENTS.contains(type)) {
+                    if (depth == 0 && type == EventType.BEGIN_PARAGRAPH) {
+                        nextBlockIndex = events.size();
+                    }
+                    ++depth;
+                } else if (END_EVENTS.contains(type)) {
+                    --depth;
+                }
+
+                events.add(event);
+            }
+        }
+
+        if (!last) {
+            if (nextBlockIndex < 0) {
+                throw new ParseException("Failed to isolate the top level block [" + source + "]");
+            }
+            events.subList(nextBlockIndex, events.size()).clear();
+        }
+
+        return new ParsedBlock(source, last, metadata, events, idGenerator.generatedIds);
+    }
+
+    private XDOM createXDOM(List<ParsedBlock> blocks)
+    {
+        IdGenerator idGenerator = new IdGenerator();
+        final XDOMGeneratorListener listener = new XDOMGeneratorListener(getStringPool());
+        SectionBuilder<Object> sectionBuilder = new SectionBuilder<>(new SectionListener<Object>()
+        {
+            @Override
+            public void beginSection(IPos<Object> pos)
+            {
+                if (pos.getHeaderLevel() > 0) {
+                    listener.beginSection(Listener.EMPTY_PARAMETERS);
+                }
+            }
+
+            @Override
+            public void endSection(IPos<Object> pos)
+            {
+                if (pos.getHeaderLevel() > 0) {
+                    listener.endSection(Listener.EMPTY_PARAMETERS);
+                }
+            }
+        });
+
+        MetaData metadata = new MetaData(blocks.get(0).getMetaData().getMetaData());
+        listener.beginDocument(metadata);
+        sectionBuilder.beginDocument(null);
+
+        for (ParsedBlock block : blocks) {
+            // Generate the ids in the same order as when parsing the whole document
+            Map<String, String> ids = new HashMap<>();
+            for (String[] generatedId : block.getGeneratedIds()) {
+                ids.put(generatedId[2], idGenerator.generateUniqueId(generatedId[0], generatedId[1]));
+            }
+
+            int depth = 0;
+            for (QueueListener.Event event : block.getEvents()) {
+                EventType type = event.eventType;
+                Object[] parameters = copyParameters(type, event.eventParameters, ids);
+
+                if (BEGIN_EVENTS.contains(type)) {
+                    if (depth == 0 && type == EventType.BEGIN_HEADER) {
+                        sectionBuilder.beginHeader(((HeaderLevel) parameters[0]).getAsInt(), null);
+                    }
+                    ++depth;
+                } else if (END_EVENTS.contains(type)) {
+                    --depth;
+                }
+
+                type.fireEvent(listener, parameters);
+            }
+        }
+
+        sectionBuilder.endDocument();
+        listener.endDocument(metadata);
+
+        XDOM xdom = listener.getXDOM();
+        xdom.setIdGenerator(idGenerator);
+
+        return xdom;
+    }
+
+    /**
+     * The events are replayed for each new XDOM so their mutable parameters are copied.
+     */
+    private Object[] copyParameters(EventType type, Object[] parameters, Map<String, String> ids)
+    {
+        Object[] copy = parameters;
+        for (int i = 0; i < parameters.length; ++i) {
+            Object parameter = parameters[i];
+            if (parameter instanceof ResourceReference) {
+                parameter = ((ResourceReference) parameter).clone();
+            } else if (parameter instanceof MetaData) {
+                parameter = new MetaData(((MetaData) parameter).getMetaData());
+            } else if (i == 1 && (type == EventType.BEGIN_HEADER || type == EventType.END_HEADER)) {
+                String id = ids.get(parameter);
+                parameter = id != null ? id : parameter;
+            }
+
+            if (parameter != parameters[i]) {
+                if (copy == parameters) {
+                    copy = parameters.clone();
+                }
+                copy[i] = parameter;
+            }
+        }
+
+        return copy;
+    }
+}
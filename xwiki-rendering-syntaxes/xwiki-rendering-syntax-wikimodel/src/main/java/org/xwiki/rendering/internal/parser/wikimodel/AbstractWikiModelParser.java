@@ -25,15 +25,19 @@
 import javax.inject.Named;
 
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
 import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
 import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.Parser;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
 import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.rendering.util.StringPool;
 import org.xwiki.rendering.wikimodel.IWikiParser;
+import org.xwiki.rendering.wikimodel.IWikiSourcePositionParser;
 
 /**
  * Common code for all WikiModel-based parsers.
@@ -50,6 +54,18 @@ public abstract class AbstractWikiModelParser implements Parser, WikiModelStream
     @Named("plain/1.0")
     protected PrintRendererFactory plainRendererFactory;
 
+    /**
+     * Used to get the pool used to share the strings of the produced XDOM and to know if positions should be recorded.
+     */
+    @Inject
+    private RenderingConfiguration renderingConfiguration;
+
+    /**
+     * Used to report the duration of parsings.
+     */
+    @Inject
+    private RenderingMetrics metrics;
+
     /**
      * @return the WikiModel parser instance to use to parse input content.
      * @throws ParseException when there's a problem creating an instance of the parser to use
@@ -87,19 +103,78 @@ protected StreamParser getLinkLabelParser()
         return this;
     }
 
+    /**
+     * @return the pool used to share the strings of the produced XDOMs
+     * @since 10.0RC1
+     */
+    protected StringPool getStringPool()
+    {
+        return this.renderingConfiguration.getStringPool();
+    }
+
     @Override
     public XDOM parse(Reader source) throws ParseException
+    {
+        long start = this.metrics != null && this.metrics.isEnabled() ? System.nanoTime() : 0;
+        XDOM xdom = null;
+        Throwable error = null;
+
+        try {
+            xdom = parseXDOM(source);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            if (start != 0) {
+                this.metrics.onParse(getSyntax(), xdom, System.nanoTime() - start, error);
+            }
+        }
+
+        return xdom;
+    }
+
+    private XDOM parseXDOM(Reader source) throws ParseException
     {
         IdGenerator idGenerator = new IdGenerator();
-        XDOMGeneratorListener listener = new XDOMGeneratorListener();
-        parse(source, listener, idGenerator);
+        XDOMGeneratorListener listener = new XDOMGeneratorListener(getStringPool());
+
+        XDOM xdom;
+        if (this.renderingConfiguration.isSourcePositionEnabled()) {
+            xdom = parseXDOMWithPositions(source, listener, idGenerator);
+        } else {
+            parse(source, listener, idGenerator);
+            xdom = listener.getXDOM();
+        }
 
-        XDOM xdom = listener.getXDOM();
         xdom.setIdGenerator(idGenerator);
 
         return xdom;
     }
 
+    private XDOM parseXDOMWithPositions(Reader source, XDOMGeneratorListener listener, IdGenerator idGenerator)
+        throws ParseException
+    {
+        IWikiParser parser = createWikiModelParser();
+        if (!(parser instanceof IWikiSourcePositionParser)) {
+            parse(source, listener, idGenerator);
+
+            return listener.getXDOM();
+        }
+
+        SourcePositionListener positionListener = new SourcePositionListener(listener);
+        try {
+            ((IWikiSourcePositionParser) parser).parse(source,
+                createXWikiGeneratorListener(positionListener, idGenerator), positionListener);
+        } catch (Exception e) {
+            throw new ParseException("Failed to parse input source", e);
+        }
+
+        XDOM xdom = listener.getXDOM();
+        positionListener.setPositions(xdom);
+
+        return xdom;
+    }
+
     @Override
     public void parse(Reader source, Listener listener) throws ParseException
     {
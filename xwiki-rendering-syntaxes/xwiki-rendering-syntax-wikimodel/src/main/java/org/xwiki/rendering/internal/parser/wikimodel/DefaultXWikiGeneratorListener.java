@@ -45,7 +45,7 @@
 import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.ChunkedWikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.util.IdGenerator;
 import org.xwiki.rendering.wikimodel.IWemConstants;
@@ -437,7 +437,7 @@ public void beginHeader(int level, WikiParameters params)
         // buffer all events in a queue until the header ends, and also send them to a print renderer to generate the ID
         CompositeListener composite = new CompositeListener();
         composite.addListener(new QueueListener());
-        composite.addListener(this.plainRendererFactory.createRenderer(new DefaultWikiPrinter()));
+        composite.addListener(this.plainRendererFactory.createRenderer(new ChunkedWikiPrinter()));
 
         // These 2 listeners will receive all events from now on until the header ends
         pushListener(composite);
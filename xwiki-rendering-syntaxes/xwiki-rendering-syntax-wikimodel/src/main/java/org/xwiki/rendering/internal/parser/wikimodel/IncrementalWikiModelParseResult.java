@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.wikimodel;
+
+import java.util.List;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.parser.IncrementalParseResult;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * The result of a parsing made by a {@link AbstractIncrementalWikiModelParser}, keeping the events produced for each
+ * top level block so that they can be reused by the next parsing.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+final class IncrementalWikiModelParseResult implements IncrementalParseResult
+{
+    /**
+     * The events produced by the parsing of a top level block (without the document and top level section events).
+     *
+     * @version $Id$
+     */
+    static final class ParsedBlock
+    {
+        private final String source;
+
+        private final boolean last;
+
+        private final MetaData metadata;
+
+        private final List<QueueListener.Event> events;
+
+        private final List<String[]> generatedIds;
+
+        /**
+         * @param source the source of the block, including the empty lines following it
+         * @param last true if the block is the last one of the document
+         * @param metadata the metadata of the document in which the block has been parsed
+         * @param events the events produced for the block
+         * @param generatedIds the prefix, text and value of the ids generated for the block, in generation order
+         */
+        ParsedBlock(String source, boolean last, MetaData metadata, List<QueueListener.Event> events,
+            List<String[]> generatedIds)
+        {
+            this.source = source;
+            this.last = last;
+            this.metadata = metadata;
+            this.events = events;
+            this.generatedIds = generatedIds;
+        }
+
+        String getSource()
+        {
+            return this.source;
+        }
+
+        boolean isLast()
+        {
+            return this.last;
+        }
+
+        MetaData getMetaData()
+        {
+            return this.metadata;
+        }
+
+        List<QueueListener.Event> getEvents()
+        {
+            return this.events;
+        }
+
+        List<String[]> getGeneratedIds()
+        {
+            return this.generatedIds;
+        }
+    }
+
+    private final Syntax syntax;
+
+    private final String source;
+
+    private final XDOM xdom;
+
+    private final List<ParsedBlock> blocks;
+
+    private final int parsedLength;
+
+    /**
+     * @param syntax the syntax of the source
+     * @param source the parsed source
+     * @param xdom the XDOM produced from the source
+     * @param blocks the top level blocks of the source
+     * @param parsedLength the number of characters which had to be parsed
+     */
+    IncrementalWikiModelParseResult(Syntax syntax, String source, XDOM xdom, List<ParsedBlock> blocks,
+        int parsedLength)
+    {
+        this.syntax = syntax;
+        this.source = source;
+        this.xdom = xdom;
+        this.blocks = blocks;
+        this.parsedLength = parsedLength;
+    }
+
+    Syntax getSyntax()
+    {
+        return this.syntax;
+    }
+
+    List<ParsedBlock> getBlocks()
+    {
+        return this.blocks;
+    }
+
+    @Override
+    public String getSource()
+    {
+        return this.source;
+    }
+
+    @Override
+    public XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    @Override
+    public int[] getBlockOffsets()
+    {
+        int[] offsets = new int[this.blocks.size()];
+        int offset = 0;
+        for (int i = 0; i < offsets.length; ++i) {
+            offsets[i] = offset;
+            offset += this.blocks.get(i).getSource().length();
+        }
+
+        return offsets;
+    }
+
+    @Override
+    public int getParsedLength()
+    {
+        return this.parsedLength;
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.wikimodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.BlockSourcePositions;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.WrappingListener;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.wikimodel.IWikiSourcePositionListener;
+
+/**
+ * Collects the positions reported by a {@link org.xwiki.rendering.wikimodel.IWikiSourcePositionParser} while
+ * forwarding the events to the listener producing the {@link XDOM}, and associates them with the blocks of the XDOM
+ * once produced.
+ * <p>
+ * A top level block gets the position of the source block being parsed when its event is sent (a block only made of
+ * block parameters is merged with the following one) and the macros get the positions in the order they are reported
+ * (the macros of link labels are parsed separately and don't have any). The empty lines between blocks don't have any
+ * position.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class SourcePositionListener extends WrappingListener implements IWikiSourcePositionListener
+{
+    private static final int NONE = -1;
+
+    /**
+     * The begin and end offsets of the top level blocks reported by the parser.
+     */
+    private int[] sourceBlocks = new int[32];
+
+    private int sourceBlockCount;
+
+    private int currentSourceBlock = NONE;
+
+    private boolean currentSourceBlockUsed;
+
+    /**
+     * The last source block which did not produce any event, applying to the following one.
+     */
+    private int pendingSourceBlock = NONE;
+
+    /**
+     * The source block of each top level block of the XDOM, in document order.
+     */
+    private int[] topLevelBlocks = new int[32];
+
+    private int topLevelBlockCount;
+
+    /**
+     * The begin and end offsets of the macros, in document order.
+     */
+    private int[] macros = new int[16];
+
+    private int macroCount;
+
+    /**
+     * The number of blocks containing the current event, ignoring the sections.
+     */
+    private int depth;
+
+    /**
+     * @param listener the listener producing the XDOM
+     */
+    public SourcePositionListener(Listener listener)
+    {
+        setWrappedListener(listener);
+    }
+
+    /**
+     * Associate the collected positions with the blocks of the passed XDOM and store them in it.
+     *
+     * @param xdom the XDOM produced from the events received by this listener
+     * @return the positions of the blocks of the XDOM
+     */
+    public BlockSourcePositions setPositions(XDOM xdom)
+    {
+        BlockSourcePositions positions = new BlockSourcePositions();
+
+        int index = 0;
+        for (Block block : getTopLevelBlocks(xdom.getChildren(), new ArrayList<Block>())) {
+            if (index == this.topLevelBlockCount) {
+                break;
+            }
+            int sourceBlock = this.topLevelBlocks[index++];
+            if (sourceBlock != NONE) {
+                int begin = this.sourceBlocks[sourceBlock * 2];
+                positions.setPosition(block, begin, Math.max(begin, this.sourceBlocks[sourceBlock * 2 + 1]));
+            }
+        }
+
+        index = 0;
+        for (Block block : xdom.<Block>getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT)) {
+            if (index == this.macroCount) {
+                break;
+            }
+            if (block.getFirstBlock(new ClassBlockMatcher(LinkBlock.class), Block.Axes.ANCESTOR) == null) {
+                positions.setPosition(block, this.macros[index * 2], this.macros[index * 2 + 1]);
+                ++index;
+            }
+        }
+
+        xdom.setSourcePositions(positions);
+
+        return positions;
+    }
+
+    private List<Block> getTopLevelBlocks(List<Block> blocks, List<Block> topLevelBlocks)
+    {
+        for (Block block : blocks) {
+            if (block instanceof SectionBlock) {
+                getTopLevelBlocks(block.getChildren(), topLevelBlocks);
+            } else {
+                topLevelBlocks.add(block);
+            }
+        }
+
+        return topLevelBlocks;
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity)
+    {
+        return capacity > array.length ? Arrays.copyOf(array, Math.max(capacity, array.length * 2)) : array;
+    }
+
+    // IWikiSourcePositionListener
+
+    @Override
+    public void beginBlock(int offset)
+    {
+        if (this.pendingSourceBlock != NONE) {
+            // Keep the begin offset of the block parameters preceding the block
+            this.currentSourceBlock = this.pendingSourceBlock;
+            this.pendingSourceBlock = NONE;
+        } else {
+            this.sourceBlocks = ensureCapacity(this.sourceBlocks, this.sourceBlockCount * 2 + 2);
+            this.sourceBlocks[this.sourceBlockCount * 2] = offset;
+            this.currentSourceBlock = this.sourceBlockCount++;
+        }
+        this.sourceBlocks[this.currentSourceBlock * 2 + 1] = offset;
+        this.currentSourceBlockUsed = false;
+    }
+
+    @Override
+    public void endBlock(int offset)
+    {
+        if (this.currentSourceBlock != NONE) {
+            this.sourceBlocks[this.currentSourceBlock * 2 + 1] = offset;
+            if (!this.currentSourceBlockUsed) {
+                this.pendingSourceBlock = this.currentSourceBlock;
+            }
+            this.currentSourceBlock = NONE;
+        }
+    }
+
+    @Override
+    public void onMacro(int beginOffset, int endOffset)
+    {
+        this.macros = ensureCapacity(this.macros, this.macroCount * 2 + 2);
+        this.macros[this.macroCount * 2] = beginOffset;
+        this.macros[this.macroCount * 2 + 1] = endOffset;
+        ++this.macroCount;
+    }
+
+    // Events
+
+    private void addTopLevelBlock(int sourceBlock)
+    {
+        this.topLevelBlocks = ensureCapacity(this.topLevelBlocks, this.topLevelBlockCount + 1);
+        this.topLevelBlocks[this.topLevelBlockCount++] = sourceBlock;
+    }
+
+    private void onEvent()
+    {
+        if (this.depth == 0) {
+            if (this.currentSourceBlock != NONE) {
+                this.currentSourceBlockUsed = true;
+                addTopLevelBlock(this.currentSourceBlock);
+            } else {
+                // Typically the paragraph produced for block parameters not followed by any block
+                addTopLevelBlock(this.pendingSourceBlock);
+                this.pendingSourceBlock = NONE;
+            }
+        }
+    }
+
+    private void beginEvent()
+    {
+        onEvent();
+        ++this.depth;
+    }
+
+    private void endEvent()
+    {
+        --this.depth;
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginGroup(parameters);
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        super.endGroup(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginFormat(format, parameters);
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        super.endFormat(format, parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginParagraph(parameters);
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        super.endParagraph(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginList(type, parameters);
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        super.endList(type, parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginDefinitionList(parameters);
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        super.endDefinitionList(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        beginEvent();
+        super.beginListItem();
+    }
+
+    @Override
+    public void endListItem()
+    {
+        super.endListItem();
+        endEvent();
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        beginEvent();
+        super.beginDefinitionTerm();
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        super.endDefinitionTerm();
+        endEvent();
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        beginEvent();
+        super.beginDefinitionDescription();
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        super.endDefinitionDescription();
+        endEvent();
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginTable(parameters);
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        super.endTable(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginTableRow(parameters);
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        super.endTableRow(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginTableCell(parameters);
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        super.endTableCell(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginTableHeadCell(parameters);
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        super.endTableHeadCell(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginHeader(level, id, parameters);
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        super.endHeader(level, id, parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
+    {
+        beginEvent();
+        super.beginMacroMarker(name, macroParameters, content, isInline);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> macroParameters, String content, boolean isInline)
+    {
+        super.endMacroMarker(name, macroParameters, content, isInline);
+        endEvent();
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginQuotation(parameters);
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        super.endQuotation(parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        beginEvent();
+        super.beginQuotationLine();
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        super.endQuotationLine();
+        endEvent();
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        beginEvent();
+        super.beginLink(reference, freestanding, parameters);
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        super.endLink(reference, freestanding, parameters);
+        endEvent();
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        beginEvent();
+        super.beginMetaData(metadata);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        super.endMetaData(metadata);
+        endEvent();
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        onEvent();
+        super.onNewLine();
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        onEvent();
+        super.onMacro(id, parameters, content, inline);
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        onEvent();
+        super.onWord(word);
+    }
+
+    @Override
+    public void onSpace()
+    {
+        onEvent();
+        super.onSpace();
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        onEvent();
+        super.onSpecialSymbol(symbol);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        onEvent();
+        super.onId(name);
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        onEvent();
+        super.onHorizontalLine(parameters);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        onEvent();
+        super.onVerbatim(content, inline, parameters);
+    }
+
+    @Override
+    public void onRawText(String content, Syntax syntax)
+    {
+        onEvent();
+        super.onRawText(content, syntax);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        onEvent();
+        super.onImage(reference, freestanding, parameters);
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        if (this.depth == 0) {
+            addTopLevelBlock(NONE);
+        }
+        super.onEmptyLines(count);
+    }
+}
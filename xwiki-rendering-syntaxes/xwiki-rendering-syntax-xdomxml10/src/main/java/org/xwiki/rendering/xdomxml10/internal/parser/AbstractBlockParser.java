@@ -19,6 +19,9 @@
  */
 package org.xwiki.rendering.xdomxml10.internal.parser;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 
 import org.xml.sax.Attributes;
@@ -32,6 +35,8 @@
 
 public abstract class AbstractBlockParser extends DefaultHandler implements BlockParser
 {
+    private static final String DEFAULT_HINT = "default";
+
     @Inject
     private ComponentManager componentManager;
 
@@ -49,6 +54,12 @@ public abstract class AbstractBlockParser extends DefaultHandler implements Bloc
 
     private Listener listener;
 
+    /**
+     * The hints of the block parsers already resolved for the block names and versions, shared with the child block
+     * parsers so that each distinct block name is resolved only once by document.
+     */
+    private Map<String, String> blockParserHints = new HashMap<>();
+
     public void setComponentManager(ComponentManager componentManager)
     {
         this.componentManager = componentManager;
@@ -219,17 +230,31 @@ public ContentHandler getCurrentHandler()
 
     protected BlockParser getBlockParser(String name) throws ComponentLookupException
     {
-        BlockParser blockParser;
-        try {
-            blockParser = this.componentManager.getInstance(BlockParser.class, name.toLowerCase() + "/" + getVersion());
-        } catch (ComponentLookupException e1) {
-            try {
-                blockParser = this.componentManager.getInstance(BlockParser.class, name.toLowerCase());
-            } catch (ComponentLookupException e2) {
-                blockParser = this.componentManager.getInstance(BlockParser.class);
-            }
+        String versionedHint = name.toLowerCase() + '/' + getVersion();
+
+        String hint = this.blockParserHints.get(versionedHint);
+        if (hint == null) {
+            hint = resolveBlockParserHint(name.toLowerCase(), versionedHint);
+            this.blockParserHints.put(versionedHint, hint);
+        }
+
+        BlockParser blockParser = this.componentManager.getInstance(BlockParser.class, hint);
+
+        if (blockParser instanceof AbstractBlockParser) {
+            ((AbstractBlockParser) blockParser).blockParserHints = this.blockParserHints;
         }
 
         return blockParser;
     }
+
+    private String resolveBlockParserHint(String hint, String versionedHint)
+    {
+        if (this.componentManager.hasComponent(BlockParser.class, versionedHint)) {
+            return versionedHint;
+        } else if (this.componentManager.hasComponent(BlockParser.class, hint)) {
+            return hint;
+        }
+
+        return DEFAULT_HINT;
+    }
 }
@@ -19,11 +19,15 @@
  */
 package org.xwiki.rendering.xdomxml10.internal.parser;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -43,6 +47,11 @@
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class DefaultBlockParser extends AbstractBlockParser
 {
+    /**
+     * The method handles of the listener methods already called, shared by all the block parsers.
+     */
+    private static final ConcurrentMap<Method, MethodHandle> EVENT_HANDLES = new ConcurrentHashMap<>();
+
     @Inject
     private ListenerDescriptorManager descriptorManager;
 
@@ -153,10 +162,49 @@ protected void endElementInternal(String uri, String localName, String qName) th
         }
     }
 
+    private static MethodHandle getEventHandle(Method method)
+    {
+        MethodHandle handle = EVENT_HANDLES.get(method);
+
+        if (handle == null) {
+            try {
+                handle = MethodHandles.publicLookup().unreflect(method);
+                EVENT_HANDLES.put(method, handle);
+            } catch (IllegalAccessException e) {
+                // Not accessible from a public lookup, fallback on reflection
+            }
+        }
+
+        return handle;
+    }
+
     private void sendEvent(Method method) throws SAXException
+    {
+        MethodHandle handle = getEventHandle(method);
+
+        try {
+            if (handle == null) {
+                sendEventWithReflection(method);
+            } else if (method.getParameterCount() == 0) {
+                handle.invoke(getListener());
+            } else {
+                handle.invoke(getListener(), this.customParameters);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (SAXException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SAXException("Failed to send listener event [" + method + "]", e);
+        } catch (Throwable e) {
+            throw new SAXException("Failed to send listener event [" + method + "]: " + e);
+        }
+    }
+
+    private void sendEventWithReflection(Method method) throws SAXException
     {
         try {
-            if (method.getParameterTypes().length == 0) {
+            if (method.getParameterCount() == 0) {
                 method.invoke(getListener());
             } else {
                 method.invoke(getListener(), this.customParameters);
@@ -0,0 +1,133 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.xdomxml10.internal.parser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SpaceBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+/**
+ * Round trip tests for the {@code xdom+xml/1.0} parser, and in particular the events sent by
+ * {@link DefaultBlockParser}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@AllComponents
+public class XDOMXMLParserTest
+{
+    /**
+     * Listener which is not public, so that its methods can't be called through public method handles and are called
+     * with reflection instead.
+     */
+    static class RecordingListener extends XDOMGeneratorListener
+    {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void beginParagraph(Map<String, String> parameters)
+        {
+            this.events.add("beginParagraph " + parameters);
+
+            super.beginParagraph(parameters);
+        }
+
+        @Override
+        public void onSpace()
+        {
+            this.events.add("onSpace");
+
+            super.onSpace();
+        }
+    }
+
+    @Rule
+    public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
+
+    private XDOM xdom;
+
+    @Before
+    public void setUp()
+    {
+        ParagraphBlock paragraph = new ParagraphBlock(
+            Arrays.<Block>asList(new WordBlock("a"), new SpaceBlock(), new WordBlock("b")),
+            Collections.singletonMap("class", "value"));
+        this.xdom = new XDOM(Arrays.<Block>asList(paragraph, new ParagraphBlock(Arrays.<Block>asList(
+            new SpaceBlock()))));
+    }
+
+    private String render(Block block, Syntax syntax) throws Exception
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, syntax.toIdString()).render(block,
+            printer);
+
+        return printer.toString();
+    }
+
+    @Test
+    public void parse() throws Exception
+    {
+        String xml = render(this.xdom, Syntax.XDOMXML_1_0);
+
+        Parser parser = this.componentManager.getInstance(Parser.class, Syntax.XDOMXML_1_0.toIdString());
+        XDOM result = parser.parse(new StringReader(xml));
+
+        String events = render(this.xdom, Syntax.EVENT_1_0);
+        Assert.assertTrue(events.contains("beginParagraph [[class]=[value]]"));
+        Assert.assertTrue(events.contains("onSpace"));
+        Assert.assertEquals(events, render(result, Syntax.EVENT_1_0));
+    }
+
+    @Test
+    public void parseWithNonPublicListener() throws Exception
+    {
+        String xml = render(this.xdom, Syntax.XDOMXML_1_0);
+
+        StreamParser parser = this.componentManager.getInstance(StreamParser.class, Syntax.XDOMXML_1_0.toIdString());
+        RecordingListener listener = new RecordingListener();
+        parser.parse(new StringReader(xml), listener);
+
+        Assert.assertEquals(Arrays.asList("beginParagraph {class=value}", "onSpace", "beginParagraph {}", "onSpace"),
+            listener.events);
+        Assert.assertEquals(render(this.xdom, Syntax.EVENT_1_0), render(listener.getXDOM(), Syntax.EVENT_1_0));
+    }
+}
@@ -26,7 +26,7 @@
 import org.xwiki.rendering.internal.parser.wikimodel.XWikiGeneratorListener;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.ChunkedWikiPrinter;
 import org.xwiki.rendering.wikimodel.WikiParameter;
 import org.xwiki.rendering.wikimodel.WikiParameters;
 import org.xwiki.rendering.wikimodel.WikiReference;
@@ -93,7 +93,7 @@ protected void begin(TagContext context)
             WikiParameter ref = context.getParams().getParameter("href");
 
             if (ref != null) {
-                DefaultWikiPrinter printer = new DefaultWikiPrinter();
+                ChunkedWikiPrinter printer = new ChunkedWikiPrinter();
 
                 PrintRenderer linkLabelRenderer = this.xwikiSyntaxPrintRendererFactory.createRenderer(printer);
 
@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml;
 
+import java.util.Collection;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -27,6 +29,8 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.internal.renderer.PrefetchingRenderer;
 import org.xwiki.rendering.internal.renderer.xhtml.image.XHTMLImageRenderer;
 import org.xwiki.rendering.internal.renderer.xhtml.link.XHTMLLinkRenderer;
 import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
@@ -44,7 +48,7 @@
 @Component
 @Named("xhtml/1.0")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class XHTMLRenderer extends AbstractChainingPrintRenderer implements Initializable
+public class XHTMLRenderer extends AbstractChainingPrintRenderer implements Initializable, PrefetchingRenderer
 {
     /**
      * To render link events into XHTML. This is done so that it's pluggable because link rendering depends on how the
@@ -76,4 +80,10 @@ public void initialize() throws InitializationException
         chain.addListener(new MetaDataStateChainingListener(chain));
         chain.addListener(new XHTMLChainingRenderer(this.linkRenderer, this.imageRenderer, chain));
     }
+
+    @Override
+    public void prefetch(Collection<Block> blocks)
+    {
+        this.linkRenderer.prefetch(blocks);
+    }
 }
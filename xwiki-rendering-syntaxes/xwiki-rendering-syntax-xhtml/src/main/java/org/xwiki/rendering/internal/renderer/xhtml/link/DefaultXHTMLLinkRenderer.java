@@ -19,6 +19,12 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -31,6 +37,11 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 
@@ -66,6 +77,12 @@ public class DefaultXHTMLLinkRenderer implements XHTMLLinkRenderer
      */
     private boolean hasLabel;
 
+    /**
+     * The link type renderers already resolved, indexed by resource type scheme. The same instance is used for all the
+     * links of a given type so that it can keep what has been prefetched.
+     */
+    private final Map<String, XHTMLLinkTypeRenderer> linkTypeRenderers = new HashMap<>();
+
     @Override
     public void setHasLabel(boolean hasLabel)
     {
@@ -96,25 +113,89 @@ public void endLink(ResourceReference reference, boolean freestanding, Map<Strin
         getXHTMLLinkTypeRenderer(reference).endLink(reference, freestanding, parameters);
     }
 
-    private XHTMLLinkTypeRenderer getXHTMLLinkTypeRenderer(ResourceReference reference)
+    @Override
+    public void prefetch(Collection<Block> blocks)
+    {
+        Map<String, List<ResourceReference>> referencesByType = new LinkedHashMap<>();
+        for (Block block : blocks) {
+            List<LinkBlock> linkBlocks =
+                block.getBlocks(new ClassBlockMatcher(LinkBlock.class), Block.Axes.DESCENDANT_OR_SELF);
+            for (LinkBlock linkBlock : linkBlocks) {
+                ResourceReference reference = getRenderedReference(linkBlock, block);
+                referencesByType.computeIfAbsent(reference.getType().getScheme(), k -> new ArrayList<>())
+                    .add(reference);
+            }
+        }
+
+        for (Map.Entry<String, List<ResourceReference>> entry : referencesByType.entrySet()) {
+            getXHTMLLinkTypeRenderer(entry.getKey()).prefetch(entry.getValue());
+        }
+    }
+
+    /**
+     * @return the reference as it will be passed to {@link #beginLink(ResourceReference, boolean, Map)}, i.e. with the
+     *         base references coming from the enclosing metadata blocks when it doesn't have any
+     */
+    private ResourceReference getRenderedReference(LinkBlock linkBlock, Block root)
     {
-        XHTMLLinkTypeRenderer renderer = this.defaultLinkTypeRenderer;
-
-        // TODO: This is probably not very performant since it's called at each begin/endLink.
-        ComponentManager componentManager = this.componentManagerProvider.get();
-        if (componentManager.hasComponent(XHTMLLinkTypeRenderer.class, reference.getType().getScheme())) {
-            try {
-                renderer =
-                    this.componentManagerProvider.get().getInstance(XHTMLLinkTypeRenderer.class,
-                        reference.getType().getScheme());
-            } catch (ComponentLookupException e) {
-                this.logger.error("Failed to initialize XHTML link type renderer", e);
+        ResourceReference reference = linkBlock.getReference();
+        if (!reference.getBaseReferences().isEmpty()) {
+            return reference;
+        }
+
+        // Only the metadata sent while rendering the passed root block are taken into account
+        List<String> baseReferences = new ArrayList<>();
+        for (Block block = linkBlock; block != null; block = block != root ? block.getParent() : null) {
+            // Also matches the XDOM
+            if (block instanceof MetaDataBlock) {
+                Object baseReference = ((MetaDataBlock) block).getMetaData().getMetaData(MetaData.BASE);
+                if (baseReference != null) {
+                    baseReferences.add((String) baseReference);
+                }
             }
         }
 
+        if (baseReferences.isEmpty()) {
+            return reference;
+        }
+
+        // Outermost metadata first
+        Collections.reverse(baseReferences);
+        ResourceReference renderedReference = reference.clone();
+        renderedReference.addBaseReferences(baseReferences);
+
+        return renderedReference;
+    }
+
+    private XHTMLLinkTypeRenderer getXHTMLLinkTypeRenderer(ResourceReference reference)
+    {
+        XHTMLLinkTypeRenderer renderer = getXHTMLLinkTypeRenderer(reference.getType().getScheme());
+
         renderer.setHasLabel(this.hasLabel);
         renderer.setXHTMLWikiPrinter(getXHTMLWikiPrinter());
 
         return renderer;
     }
+
+    private XHTMLLinkTypeRenderer getXHTMLLinkTypeRenderer(String scheme)
+    {
+        XHTMLLinkTypeRenderer renderer = this.linkTypeRenderers.get(scheme);
+
+        if (renderer == null) {
+            renderer = this.defaultLinkTypeRenderer;
+
+            ComponentManager componentManager = this.componentManagerProvider.get();
+            if (componentManager.hasComponent(XHTMLLinkTypeRenderer.class, scheme)) {
+                try {
+                    renderer = componentManager.getInstance(XHTMLLinkTypeRenderer.class, scheme);
+                } catch (ComponentLookupException e) {
+                    this.logger.error("Failed to initialize XHTML link type renderer", e);
+                }
+            }
+
+            this.linkTypeRenderers.put(scheme, renderer);
+        }
+
+        return renderer;
+    }
 }
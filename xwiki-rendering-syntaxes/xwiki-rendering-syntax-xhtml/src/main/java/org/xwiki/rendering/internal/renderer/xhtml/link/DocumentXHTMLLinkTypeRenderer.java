@@ -19,8 +19,12 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -64,6 +68,11 @@ public class DocumentXHTMLLinkTypeRenderer extends AbstractXHTMLLinkTypeRenderer
     @Inject
     private LinkLabelGenerator linkLabelGenerator;
 
+    /**
+     * The prefetched existence of the documents targeted by the links about to be rendered.
+     */
+    private final Map<ResourceReference, Boolean> documentsAvailability = new HashMap<>();
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -86,6 +95,24 @@ public void beginLink(ResourceReference reference, boolean freestanding, Map<Str
         }
     }
 
+    @Override
+    public void prefetch(Collection<ResourceReference> references)
+    {
+        if (this.wikiModel != null) {
+            Set<ResourceReference> documentReferences = new LinkedHashSet<>();
+            for (ResourceReference reference : references) {
+                if (!StringUtils.isEmpty(reference.getReference())
+                    && !this.documentsAvailability.containsKey(reference)) {
+                    documentReferences.add(reference);
+                }
+            }
+
+            if (!documentReferences.isEmpty()) {
+                this.documentsAvailability.putAll(this.wikiModel.areDocumentsAvailable(documentReferences));
+            }
+        }
+    }
+
     @Override
     protected String computeLabel(ResourceReference reference)
     {
@@ -122,7 +149,7 @@ private void beginInternalLink(ResourceReference reference, boolean freestanding
         if (StringUtils.isEmpty(reference.getReference())) {
             spanAttributes.put(CLASS, WIKILINK);
             renderAutoLink(reference, spanAttributes, anchorAttributes);
-        } else if (this.wikiModel.isDocumentAvailable(reference)) {
+        } else if (isDocumentAvailable(reference)) {
             spanAttributes.put(CLASS, WIKILINK);
             anchorAttributes.put(XHTMLLinkRenderer.HREF, this.wikiModel.getDocumentViewURL(reference));
         } else {
@@ -135,6 +162,13 @@ private void beginInternalLink(ResourceReference reference, boolean freestanding
         getXHTMLWikiPrinter().printXMLStartElement(XHTMLLinkRenderer.ANCHOR, anchorAttributes);
     }
 
+    private boolean isDocumentAvailable(ResourceReference reference)
+    {
+        Boolean available = this.documentsAvailability.get(reference);
+
+        return available != null ? available : this.wikiModel.isDocumentAvailable(reference);
+    }
+
     /**
      * @param reference the reference to the link
      * @param spanAttributes the span element where to put the class
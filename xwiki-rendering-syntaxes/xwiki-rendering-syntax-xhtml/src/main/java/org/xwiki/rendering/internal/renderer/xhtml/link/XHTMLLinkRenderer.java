@@ -19,7 +19,10 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
+import java.util.Collection;
+
 import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.listener.LinkListener;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 
@@ -58,4 +61,16 @@ public interface XHTMLLinkRenderer extends LinkListener
      *            specified then it's up to the XHTML renderer implementation to generate a default label.
      */
     void setHasLabel(boolean hasLabel);
+
+    /**
+     * Fetch in one go the data needed to render the links contained in the passed blocks, which are about to be
+     * rendered. Does nothing by default.
+     *
+     * @param blocks the blocks which are about to be rendered
+     * @since 10.0RC1
+     */
+    default void prefetch(Collection<Block> blocks)
+    {
+        // Nothing to prefetch by default
+    }
 }
@@ -19,8 +19,11 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
+import java.util.Collection;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.rendering.listener.LinkListener;
+import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 
 /**
@@ -57,4 +60,16 @@ public interface XHTMLLinkTypeRenderer extends LinkListener
      *            specified then it's up to the XHTML renderer implementation to generate a default label.
      */
     void setHasLabel(boolean hasLabel);
+
+    /**
+     * Fetch in one go the data needed to render the links to the passed resources, which are about to be rendered.
+     * Does nothing by default.
+     *
+     * @param references the references of the links of this type which are about to be rendered
+     * @since 10.0RC1
+     */
+    default void prefetch(Collection<ResourceReference> references)
+    {
+        // Nothing to prefetch by default
+    }
 }
@@ -21,7 +21,10 @@
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.jmock.Expectations;
 import org.junit.Test;
@@ -35,6 +38,7 @@
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.wiki.WikiModel;
@@ -126,6 +130,46 @@ public void testBeginLinkDoesntUseSourceMetaDataIfBaseReferenceSpecified()
         xdom.traverse(this.renderer);
     }
 
+    /**
+     * Verify that when rendering blocks with the Block Renderer the existence of all the linked documents is checked
+     * in one call, using the references as they are passed when rendering each link.
+     */
+    @Test
+    public void testRenderBlocksPrefetchesDocumentsAvailability() throws Exception
+    {
+        List<Block> linkBlocks = Arrays.asList(
+            (Block) new LinkBlock(Arrays.asList((Block) new WordBlock("label")),
+                new ResourceReference("reference", ResourceType.DOCUMENT), true),
+            new LinkBlock(Arrays.asList((Block) new WordBlock("label")),
+                new ResourceReference("reference", ResourceType.DOCUMENT), true),
+            new LinkBlock(Arrays.asList((Block) new WordBlock("label")),
+                new ResourceReference("other", ResourceType.DOCUMENT), true));
+        MetaData metaData = new MetaData();
+        metaData.addMetaData(MetaData.BASE, "base");
+        XDOM xdom = new XDOM(Arrays.asList((Block) new MetaDataBlock(linkBlocks, metaData)));
+
+        getMockery().checking(new Expectations() {{
+            ResourceReference reference = new ResourceReference("reference", ResourceType.DOCUMENT);
+            reference.addBaseReference("base");
+            ResourceReference otherReference = new ResourceReference("other", ResourceType.DOCUMENT);
+            otherReference.addBaseReference("base");
+            Map<ResourceReference, Boolean> availability = new HashMap<>();
+            availability.put(reference, true);
+            availability.put(otherReference, false);
+            oneOf(mockWikiModel).areDocumentsAvailable(
+                new LinkedHashSet<ResourceReference>(Arrays.asList(reference, otherReference)));
+            will(returnValue(availability));
+            never(mockWikiModel).isDocumentAvailable(with(any(ResourceReference.class)));
+            exactly(2).of(mockWikiModel).getDocumentViewURL(reference);
+            will(returnValue("viewurl"));
+            oneOf(mockWikiModel).getDocumentEditURL(otherReference);
+            will(returnValue("editurl"));
+        }});
+
+        BlockRenderer blockRenderer = getComponentManager().getInstance(BlockRenderer.class, "xhtml/1.0");
+        blockRenderer.render(xdom, new DefaultWikiPrinter());
+    }
+
     /**
      * Verify that when an XDOM contains a MetaDataBlock with a "source" metaData specified, then this "source" is
      * set in the ResourceReference passed to the WikiModel call when getting an image link URL.
@@ -24,7 +24,7 @@
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.rendering.internal.parser.wikimodel.AbstractWikiModelParser;
+import org.xwiki.rendering.internal.parser.wikimodel.AbstractIncrementalWikiModelParser;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.wikimodel.IWikiParser;
@@ -37,7 +37,7 @@
 @Component
 @Named("xwiki/2.0")
 @Singleton
-public class XWiki20Parser extends AbstractWikiModelParser
+public class XWiki20Parser extends AbstractIncrementalWikiModelParser
 {
     /**
      * @see #getLinkReferenceParser()
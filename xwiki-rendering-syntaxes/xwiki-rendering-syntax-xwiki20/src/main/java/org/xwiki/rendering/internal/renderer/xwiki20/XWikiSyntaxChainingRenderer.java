@@ -32,7 +32,7 @@
 import org.xwiki.rendering.listener.chaining.StackableChainingListener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.renderer.AbstractChainingPrintRenderer;
-import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.ChunkedWikiPrinter;
 import org.xwiki.rendering.renderer.printer.VoidWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
@@ -196,7 +196,7 @@ && getXWikiPrinter().getBuffer().charAt(getXWikiPrinter().getBuffer().length() -
             getLinkRenderer().beginRenderLink(getXWikiPrinter(), freestanding, parameters);
 
             XWikiSyntaxEscapeWikiPrinter linkLabelPrinter =
-                new XWikiSyntaxEscapeWikiPrinter(new DefaultWikiPrinter(), getXWikiSyntaxListenerChain());
+                new XWikiSyntaxEscapeWikiPrinter(new ChunkedWikiPrinter(), getXWikiSyntaxListenerChain());
 
             // Make sure the escape handler knows there is already characters before
             linkLabelPrinter.setOnNewLine(getXWikiPrinter().isOnNewLine());
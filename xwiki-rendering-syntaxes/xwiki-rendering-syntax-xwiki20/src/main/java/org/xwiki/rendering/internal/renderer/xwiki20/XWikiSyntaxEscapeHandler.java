@@ -22,11 +22,30 @@
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
 import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
 
 /**
  * Escape characters that would be confused for XWiki wiki syntax if they were not escaped.
+ * <p>
+ * The escaping is computed in a single pass over the accumulated text: instead of successively replacing each syntax
+ * in the text, the number of escape characters to insert before each character is computed and the escaped text is
+ * then built at once. The result is the same as applying the following replacements in order:
+ * <ul>
+ * <li>the escape character itself</li>
+ * <li>start of custom parameters ({@code (%})</li>
+ * <li>list items, headers, tables and quotes at the beginning of a line (first character only)</li>
+ * <li>table characters ({@code |} and {@code !!}) when in a table</li>
+ * <li>the first character when matching the passed pattern</li>
+ * <li>{@code =} when in a header</li>
+ * <li>verbatim and macros ({@code {{{} and {@code {{}), groups ({@code (((} and {@code )))})</li>
+ * <li>formatting characters ({@code //}, {@code **}, {@code __}, {@code --}, {@code ^^}, {@code ,,}, {@code ##},
+ * double backslash) when not already preceded by an escape</li>
+ * <li>the ":" in the first occurrence of {@code image:}, {@code attach:} and {@code mailto:}</li>
+ * <li>the last character when asked to</li>
+ * <li>begin link ({@code [[})</li>
+ * <li>escape characters, end link ({@code ]]}), link reference separator ({@code >>}) and link parameters
+ * separator ({@code ||}) once more for each level of link</li>
+ * </ul>
  *
  * @version $Id$
  * @since 2.0M3
@@ -45,13 +64,25 @@
     private static final Pattern TABLE_PATTERN = Pattern.compile("\\p{Blank}*(\\||!!)");
 
     /**
-     * Note that we take care to not match if the first character is preceded by an escape (i.e. '~).
+     * Patterns to look for at the beginning of a line, in this order. Only the first matching one is escaped (escaping
+     * its first character prevents the following ones from matching).
      */
-    private static final Pattern DOUBLE_CHARS_PATTERN = Pattern.compile(
-        "(?<!~)\\/\\/|(?<!~)\\*\\*|(?<!~)__|(?<!~)--|(?<!~)\\^\\^|(?<!~),,|(?<!~)##|(?<!~)\\\\\\\\");
+    private static final Pattern[] NEWLINE_PATTERNS = { LIST_PATTERN, HEADER_PATTERN, TABLE_PATTERN, QUOTE_PATTERN };
+
+    /**
+     * Characters which have a meaning when doubled (bold, italic, etc.).
+     */
+    private static final String DOUBLE_CHARS = "/*_-^,#\\";
+
+    /**
+     * URI prefixes for which the ":" needs to be escaped.
+     */
+    private static final String[] URI_PREFIXES = { "image:", "attach:", "mailto:" };
 
     public static final String ESCAPE_CHAR = "~";
 
+    private static final char ESCAPE = '~';
+
     private boolean beforeLink;
 
     private boolean onNewLine = true;
@@ -66,98 +97,67 @@ public boolean isOnNewLine()
         return this.onNewLine;
     }
 
-    public void escape(StringBuffer accumulatedBuffer, XWikiSyntaxListenerChain listenerChain, boolean escapeLastChar,
-        Pattern escapeFirstIfMatching)
+    /**
+     * @param accumulatedText the text to escape
+     * @param listenerChain the listener chain giving the current block state
+     * @param escapeLastChar true if the last character should be escaped
+     * @param escapeFirstIfMatching if not null, escape the first character of the first group matched by this pattern
+     *            at the beginning of the text (the pattern is matched against the text before it's escaped)
+     * @return the escaped text
+     */
+    public String escape(CharSequence accumulatedText, XWikiSyntaxListenerChain listenerChain,
+        boolean escapeLastChar, Pattern escapeFirstIfMatching)
     {
         BlockStateChainingListener blockStateListener = listenerChain.getBlockStateChainingListener();
 
-        // Escape tilde symbol (i.e. the escape character).
-        // Note: This needs to be the first replacement since other replacements below also use the tilde symbol
-        replaceAll(accumulatedBuffer, ESCAPE_CHAR, ESCAPE_CHAR + ESCAPE_CHAR);
-
-        // Escape anything that looks like starting of custom parameters
-        replaceAll(accumulatedBuffer, "(%", ESCAPE_CHAR + "(%");
-
-        // When in a paragraph we need to escape symbols that are at beginning of lines and that could be confused
-        // with list items, headers or tables.
-        if (blockStateListener.isInLine() && isOnNewLine()) {
-
-            // Look for list pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(LIST_PATTERN, accumulatedBuffer);
-
-            // Look for header pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(HEADER_PATTERN, accumulatedBuffer);
-
-            // Look for table character patterns at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(TABLE_PATTERN, accumulatedBuffer);
+        return escape(accumulatedText, blockStateListener.isInLine() && isOnNewLine(),
+            blockStateListener.isInTable(), blockStateListener.isInHeader(), getLinkLevel(listenerChain),
+            escapeLastChar, escapeFirstIfMatching);
+    }
 
-            // Look for quote pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(QUOTE_PATTERN, accumulatedBuffer);
+    String escape(CharSequence text, boolean atLineStart, boolean inTable, boolean inHeader, int linkLevel,
+        boolean escapeLastChar, Pattern escapeFirstIfMatching)
+    {
+        int length = text.length();
+        if (length == 0) {
+            return "";
         }
 
-        // Escape table characters
-        if (blockStateListener.isInTable()) {
-            replaceAll(accumulatedBuffer, "|", ESCAPE_CHAR + "|");
-            replaceAll(accumulatedBuffer, "!!", ESCAPE_CHAR + "!!");
-        }
+        EscapeState state = new EscapeState(text, inTable, inHeader, Math.max(linkLevel, 0), escapeLastChar);
 
-        if (escapeFirstIfMatching != null) {
-            escapeFirstMatchedCharacter(escapeFirstIfMatching, accumulatedBuffer);
+        // Escape the first character of syntaxes which only have a meaning at the beginning of a line
+        int firstEscaped = -1;
+        if (atLineStart) {
+            firstEscaped = escapeFirstMatchedCharacter(NEWLINE_PATTERNS, state);
         }
-
-        // When in a header we need to escape "=" symbols since otherwise they would be confused for end of section
-        // characters.
-        if (blockStateListener.isInHeader()) {
-            replaceAll(accumulatedBuffer, "=", ESCAPE_CHAR + "=");
+        // Note: if the first character is already escaped the text can't match anymore
+        if (escapeFirstIfMatching != null && firstEscaped != 0) {
+            escapeFirstMatchedCharacter(new Pattern[] { escapeFirstIfMatching }, state);
         }
 
-        // Escape verbatim "{{{"
-        replaceAll(accumulatedBuffer, "{{{", ESCAPE_CHAR + "{" + ESCAPE_CHAR + "{" + ESCAPE_CHAR + "{");
-
-        // Escape "{{"
-        replaceAll(accumulatedBuffer, "{{", ESCAPE_CHAR + "{" + ESCAPE_CHAR + "{");
-
-        // Escape groups
-        replaceAll(accumulatedBuffer, "(((", ESCAPE_CHAR + "(" + ESCAPE_CHAR + "(" + ESCAPE_CHAR + "(");
-        replaceAll(accumulatedBuffer, ")))", ESCAPE_CHAR + ")" + ESCAPE_CHAR + ")" + ESCAPE_CHAR + ")");
-
-        // Escape reserved keywords
-        Matcher matcher = DOUBLE_CHARS_PATTERN.matcher(accumulatedBuffer.toString());
-        for (int i = 0; matcher.find(); i = i + 2) {
-            accumulatedBuffer.replace(matcher.start() + i, matcher.end() + i, ESCAPE_CHAR + matcher.group().charAt(0)
-                + ESCAPE_CHAR + matcher.group().charAt(1));
+        int index = 0;
+        while (index < length) {
+            index = state.escapeAt(index);
         }
 
-        // Escape ":" in "image:something", "attach:something" and "mailto:something"
-        // Note: even though there are some restriction in the URI specification as to what character is valid after
-        // the ":" character following the scheme we only check for characters greater than the space symbol for
-        // simplicity.
-        escapeURI(accumulatedBuffer, "image:");
-        escapeURI(accumulatedBuffer, "attach:");
-        escapeURI(accumulatedBuffer, "mailto:");
-
-        // Escape last character if we're told to do so. This is to handle cases such as:
-        // - onWord("hello:") followed by onFormat(ITALIC) which would lead to "hello://" if the ":" wasn't escaped
-        // - onWord("{") followed by onMacro() which would lead to "{{{" if the "{" wasn't escaped
         if (escapeLastChar) {
-            accumulatedBuffer.insert(accumulatedBuffer.length() - 1, '~');
+            state.escapes[length - 1]++;
         }
 
-        // Escape begin link
-        replaceAll(accumulatedBuffer, "[[", ESCAPE_CHAR + "[" + ESCAPE_CHAR + "[");
-
-        // Escape link label
-        int linkLevel = getLinkLevel(listenerChain);
+        return state.toString();
+    }
 
-        if (linkLevel > 0) {
-            // This need to be done after anything else because link label add another level of escaping (escaped as
-            // link label and then escaped as wiki content).
-            String escape = StringUtils.repeat(ESCAPE_CHAR, linkLevel);
-            replaceAll(accumulatedBuffer, ESCAPE_CHAR, escape + ESCAPE_CHAR);
-            replaceAll(accumulatedBuffer, "]]", escape + "]" + escape + "]");
-            replaceAll(accumulatedBuffer, ">>", escape + ">" + escape + ">");
-            replaceAll(accumulatedBuffer, "||", escape + "|" + escape + "|");
+    private int escapeFirstMatchedCharacter(Pattern[] patterns, EscapeState state)
+    {
+        for (Pattern pattern : patterns) {
+            Matcher matcher = pattern.matcher(state.text);
+            if (matcher.lookingAt()) {
+                state.escapes[matcher.start(1)]++;
+                return matcher.start(1);
+            }
         }
+
+        return -1;
     }
 
     private int getLinkLevel(XWikiSyntaxListenerChain listenerChain)
@@ -176,30 +176,267 @@ public void setBeforeLink(boolean beforeLink)
         this.beforeLink = beforeLink;
     }
 
-    private void escapeURI(StringBuffer accumulatedBuffer, String match)
+    /**
+     * The escaping state of a text.
+     */
+    private static final class EscapeState
     {
-        int pos = accumulatedBuffer.indexOf(match);
-        if (pos > -1) {
-            // Escape the ":" symbol
-            accumulatedBuffer.insert(pos + match.length() - 1, '~');
+        private final CharSequence text;
+
+        private final int length;
+
+        private final boolean inTable;
+
+        private final boolean inHeader;
+
+        private final int linkLevel;
+
+        private final boolean escapeLastChar;
+
+        /**
+         * The number of escape characters to insert before each character, not counting the link label escaping.
+         */
+        private final int[] escapes;
+
+        /**
+         * The number of escape characters added by the link label escaping, only allocated in link labels.
+         */
+        private final int[] linkEscapes;
+
+        /**
+         * The URI prefixes which have already been found (only the first occurrence is escaped).
+         */
+        private final boolean[] foundURIPrefixes = new boolean[URI_PREFIXES.length];
+
+        EscapeState(CharSequence text, boolean inTable, boolean inHeader, int linkLevel, boolean escapeLastChar)
+        {
+            this.text = text;
+            this.length = text.length();
+            this.inTable = inTable;
+            this.inHeader = inHeader;
+            this.linkLevel = linkLevel;
+            this.escapeLastChar = escapeLastChar;
+            this.escapes = new int[this.length];
+            this.linkEscapes = linkLevel > 0 ? new int[this.length] : null;
         }
-    }
 
-    private void replaceAll(StringBuffer accumulatedBuffer, String match, String replacement)
-    {
-        int pos = -replacement.length();
-        while ((pos + replacement.length() < accumulatedBuffer.length())
-            && ((pos = accumulatedBuffer.indexOf(match, pos + replacement.length())) != -1)) {
-            accumulatedBuffer.replace(pos, pos + match.length(), replacement);
+        /**
+         * Compute the escaping of the character at the passed index, or of the whole suite of identical characters
+         * starting at this index for characters with a meaning when repeated.
+         *
+         * @param index the index of the character to escape
+         * @return the index of the next character to escape
+         */
+        int escapeAt(int index)
+        {
+            char c = this.text.charAt(index);
+            int end = index + 1;
+            switch (c) {
+                case ESCAPE:
+                    this.escapes[index]++;
+                    break;
+                case '=':
+                    if (this.inHeader) {
+                        this.escapes[index]++;
+                    }
+                    break;
+                case '(':
+                    end = getRunEnd(index);
+                    // Start of custom parameters
+                    if (end < this.length && this.text.charAt(end) == '%') {
+                        this.escapes[end - 1]++;
+                    }
+                    escapeRepeated(index, end, 3, false);
+                    break;
+                case ')':
+                    end = getRunEnd(index);
+                    escapeRepeated(index, end, 3, false);
+                    break;
+                case '{':
+                    end = getRunEnd(index);
+                    // Verbatim then macros
+                    escapeRepeated(index, end, 3, false);
+                    escapeRepeated(index, end, 2, false);
+                    break;
+                case '!':
+                    end = getRunEnd(index);
+                    if (this.inTable) {
+                        // Only the first character of a table header cell separator is escaped
+                        escapeRepeated(index, end, 2, 1, this.escapes, 1, false);
+                    }
+                    break;
+                case '|':
+                    end = getRunEnd(index);
+                    if (this.inTable) {
+                        for (int i = index; i < end; i++) {
+                            this.escapes[i]++;
+                        }
+                    }
+                    escapeLinkSyntax(index, end);
+                    break;
+                case '[':
+                    end = getRunEnd(index);
+                    // Begin link (after the last character has been escaped)
+                    escapeRepeated(index, end, 2, true);
+                    break;
+                case ']':
+                case '>':
+                    end = getRunEnd(index);
+                    escapeLinkSyntax(index, end);
+                    break;
+                case 'i':
+                case 'a':
+                case 'm':
+                    escapeURIPrefix(index);
+                    break;
+                default:
+                    if (DOUBLE_CHARS.indexOf(c) >= 0) {
+                        end = getRunEnd(index);
+                        escapeDoubleChars(index, end);
+                    }
+                    break;
+            }
+
+            return end;
         }
-    }
 
-    private void escapeFirstMatchedCharacter(Pattern pattern, StringBuffer accumulatedBuffer)
-    {
-        Matcher matcher = pattern.matcher(accumulatedBuffer);
-        if (matcher.lookingAt()) {
-            // Escape the first character
-            accumulatedBuffer.replace(matcher.start(1), matcher.start(1) + 1, ESCAPE_CHAR + matcher.group(1).charAt(0));
+        private int getRunEnd(int start)
+        {
+            char c = this.text.charAt(start);
+            int end = start + 1;
+            while (end < this.length && this.text.charAt(end) == c) {
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * @param index the index of a character
+         * @param afterLastChar true if the last character escaping has to be taken into account
+         * @return true if the character at the passed index is preceded by an escape character
+         */
+        private boolean isEscaped(int index, boolean afterLastChar)
+        {
+            return this.escapes[index] > 0 || (afterLastChar && this.escapeLastChar && index == this.length - 1);
+        }
+
+        private void escapeRepeated(int start, int end, int count, boolean afterLastChar)
+        {
+            escapeRepeated(start, end, count, count, this.escapes, 1, afterLastChar);
+        }
+
+        /**
+         * Escape successive non overlapping suites of {@code count} identical characters, from left to right.
+         *
+         * @param start the start of the suite of identical characters
+         * @param end the end of the suite of identical characters
+         * @param count the number of characters to escape together
+         * @param escapedCount the number of characters of each suite to escape (starting with the first one)
+         * @param target where to count the inserted escape characters
+         * @param escapeCount the number of escape characters to insert before each escaped character
+         * @param afterLastChar true if the last character escaping has to be taken into account
+         */
+        private void escapeRepeated(int start, int end, int count, int escapedCount, int[] target, int escapeCount,
+            boolean afterLastChar)
+        {
+            int index = start;
+            while (index + count <= end) {
+                // Characters are not consecutive anymore if an escape character has been inserted between them
+                boolean consecutive = true;
+                for (int i = index + 1; i < index + count; i++) {
+                    if (isEscaped(i, afterLastChar)) {
+                        consecutive = false;
+                        break;
+                    }
+                }
+                if (consecutive) {
+                    for (int i = index; i < index + escapedCount; i++) {
+                        target[i] += escapeCount;
+                    }
+                    index += count;
+                } else {
+                    index++;
+                }
+            }
+        }
+
+        /**
+         * Escape doubled formatting characters, unless the first character is already preceded by an escape
+         * character.
+         */
+        private void escapeDoubleChars(int start, int end)
+        {
+            int index = start;
+            while (index + 1 < end) {
+                boolean precededByEscape =
+                    this.escapes[index] > 0 || (index > 0 && this.text.charAt(index - 1) == ESCAPE);
+                if (!precededByEscape && !isEscaped(index + 1, false)) {
+                    this.escapes[index]++;
+                    this.escapes[index + 1]++;
+                    index += 2;
+                } else {
+                    index++;
+                }
+            }
+        }
+
+        /**
+         * Link label syntax needs one more level of escaping for each link level.
+         */
+        private void escapeLinkSyntax(int start, int end)
+        {
+            if (this.linkLevel > 0) {
+                escapeRepeated(start, end, 2, 2, this.linkEscapes, this.linkLevel, true);
+            }
+        }
+
+        private void escapeURIPrefix(int index)
+        {
+            for (int i = 0; i < URI_PREFIXES.length; i++) {
+                String prefix = URI_PREFIXES[i];
+                if (!this.foundURIPrefixes[i] && startsWith(index, prefix)) {
+                    this.foundURIPrefixes[i] = true;
+                    this.escapes[index + prefix.length() - 1]++;
+                }
+            }
+        }
+
+        private boolean startsWith(int index, String prefix)
+        {
+            if (index + prefix.length() > this.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (this.text.charAt(index + i) != prefix.charAt(i) || (i > 0 && this.escapes[index + i] > 0)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            // The link label escaping also escapes all the escape characters
+            int multiplier = this.linkLevel + 1;
+
+            StringBuilder builder = new StringBuilder(this.length + this.length / 8);
+            for (int i = 0; i < this.length; i++) {
+                char c = this.text.charAt(i);
+                int count = this.escapes[i] * multiplier;
+                if (this.linkEscapes != null) {
+                    count += this.linkEscapes[i];
+                    if (c == ESCAPE) {
+                        count += this.linkLevel;
+                    }
+                }
+                for (int j = 0; j < count; j++) {
+                    builder.append(ESCAPE);
+                }
+                builder.append(c);
+            }
+
+            return builder.toString();
         }
     }
 }
@@ -91,8 +91,10 @@ protected void printlnInternal(String text)
     public void flush()
     {
         if (getBuffer().length() > 0) {
-            this.escapeHandler.escape(getBuffer(), this.listenerChain, this.escapeLastChar, this.escapeFirstIfMatching);
-            super.flush();
+            String escaped = this.escapeHandler.escape(getBuffer(), this.listenerChain, this.escapeLastChar,
+                this.escapeFirstIfMatching);
+            getBuffer().setLength(0);
+            printInternal(escaped);
         }
         this.escapeLastChar = false;
         this.escapeFirstIfMatching = null;
@@ -120,8 +120,8 @@ public boolean forceFullSyntax(XWikiSyntaxEscapeWikiPrinter printer, boolean isL
 
     private boolean isNonWhiteSpaceAndConsumed(boolean isLastSyntax, XWikiSyntaxEscapeWikiPrinter printer)
     {
-        return !isLastSyntax && !printer.isAfterWhiteSpace() && (!PlainTextStreamParser.SPECIALSYMBOL_PATTERN.matcher(
-            String.valueOf(printer.getLastPrinted().charAt(printer.getLastPrinted().length() - 1))).matches());
+        return !isLastSyntax && !printer.isAfterWhiteSpace() && (!PlainTextStreamParser.isSpecialSymbol(
+            printer.getLastPrinted().charAt(printer.getLastPrinted().length() - 1)));
     }
 
     private boolean isNotAWhiteSpace(Event nextEvent)
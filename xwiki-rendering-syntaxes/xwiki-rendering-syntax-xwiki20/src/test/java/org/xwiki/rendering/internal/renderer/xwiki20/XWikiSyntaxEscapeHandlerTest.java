@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.xwiki20;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link XWikiSyntaxEscapeHandler}. Most of the escaping is tested through the rendering tests, these
+ * tests verify each escaped syntax separately.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class XWikiSyntaxEscapeHandlerTest
+{
+    private XWikiSyntaxEscapeHandler handler = new XWikiSyntaxEscapeHandler();
+
+    @Test
+    public void escapeInlineSyntax()
+    {
+        Assert.assertEquals("~~ ~(% ~{~{~{ ~{~{ ~(~(~( ~)~)~) image~:x",
+            this.handler.escape("~ (% {{{ {{ ((( ))) image:x", false, false, false, 0, false, null));
+        Assert.assertEquals("~*~*bold~*~* ~/~/it~/~/ ~~**",
+            this.handler.escape("**bold** //it// ~**", false, false, false, 0, false, null));
+    }
+
+    @Test
+    public void escapeAtLineStart()
+    {
+        Assert.assertEquals("~* item", this.handler.escape("* item", true, false, false, 0, false, null));
+        Assert.assertEquals("~== title", this.handler.escape("== title", true, false, false, 0, false, null));
+        Assert.assertEquals("~1. x",
+            this.handler.escape("1. x", false, false, false, 0, false, XWikiSyntaxEscapeHandler.STARLISTEND_PATTERN));
+    }
+
+    @Test
+    public void escapeInTableAndHeader()
+    {
+        Assert.assertEquals("a~|b~!!c", this.handler.escape("a|b!!c", false, true, false, 0, false, null));
+        Assert.assertEquals("a~=b", this.handler.escape("a=b", false, false, true, 0, false, null));
+    }
+
+    @Test
+    public void escapeLastChar()
+    {
+        Assert.assertEquals("text~:", this.handler.escape("text:", false, false, false, 0, true, null));
+    }
+
+    @Test
+    public void escapeInLinkLabel()
+    {
+        Assert.assertEquals("~~[~~[ ~]~] ~>~> ~|~| ~~~~",
+            this.handler.escape("[[ ]] >> || ~", false, false, false, 1, false, null));
+    }
+}
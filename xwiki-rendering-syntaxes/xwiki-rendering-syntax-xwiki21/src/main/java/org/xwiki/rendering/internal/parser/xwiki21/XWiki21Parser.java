@@ -24,7 +24,7 @@
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.rendering.internal.parser.wikimodel.AbstractWikiModelParser;
+import org.xwiki.rendering.internal.parser.wikimodel.AbstractIncrementalWikiModelParser;
 import org.xwiki.rendering.internal.parser.wikimodel.XWikiGeneratorListener;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
@@ -42,7 +42,7 @@
 @Component
 @Named("xwiki/2.1")
 @Singleton
-public class XWiki21Parser extends AbstractWikiModelParser
+public class XWiki21Parser extends AbstractIncrementalWikiModelParser
 {
     /**
      * @see #getLinkReferenceParser()
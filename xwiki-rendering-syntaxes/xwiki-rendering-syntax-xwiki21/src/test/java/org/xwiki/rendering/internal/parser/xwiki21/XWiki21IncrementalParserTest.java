@@ -0,0 +1,175 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.xwiki21;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.IncrementalParseResult;
+import org.xwiki.rendering.parser.IncrementalParser;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+/**
+ * Unit tests for the incremental parsing of {@link XWiki21Parser}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@AllComponents
+public class XWiki21IncrementalParserTest
+{
+    private static final String SOURCE = "\n\n= Title =\n\nfirst **paragraph**\nsecond line\n\n\n"
+        + "* item\n** sub item\n\n|=head|=head\n|cell|cell\n\n"
+        + "(((\nembedded\n\n== Embedded title ==\n)))\n\n"
+        + "{{{\nverbatim\n\nwith empty line\n}}}\n\n"
+        + "{{macro}}\ncontent\n\nwith empty line\n{{/macro}}\n\n"
+        + "== Title ==\n\n(% class=\"value\" %)\nlast [[label>>reference]]\n\n";
+
+    @Rule
+    public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
+
+    private IncrementalParser incrementalParser;
+
+    private Parser parser;
+
+    private BlockRenderer renderer;
+
+    @Before
+    public void before() throws Exception
+    {
+        String syntax = Syntax.XWIKI_2_1.toIdString();
+        this.incrementalParser = this.componentManager.getInstance(IncrementalParser.class, syntax);
+        this.parser = this.componentManager.getInstance(Parser.class, syntax);
+        this.renderer = this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+    }
+
+    private String render(XDOM xdom)
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.renderer.render(xdom, printer);
+
+        return printer.toString();
+    }
+
+    private void assertSameAsFullParsing(IncrementalParseResult result) throws Exception
+    {
+        XDOM expected = this.parser.parse(new StringReader(result.getSource()));
+
+        Assert.assertEquals(render(expected), render(result.getXDOM()));
+        Assert.assertEquals(expected.getIdGenerator().generateUniqueId("H", "Title"),
+            result.getXDOM().getIdGenerator().generateUniqueId("H", "Title"));
+    }
+
+    @Test
+    public void parse() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        Assert.assertEquals(SOURCE, result.getSource());
+        Assert.assertEquals(SOURCE.length(), result.getParsedLength());
+        Assert.assertTrue(result.getBlockOffsets().length > 5);
+        Assert.assertEquals(0, result.getBlockOffsets()[0]);
+        assertSameAsFullParsing(result);
+    }
+
+    @Test
+    public void parseModifiedParagraph() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        int offset = SOURCE.indexOf("second");
+        IncrementalParseResult newResult = this.incrementalParser.parse(result, offset, "second".length(), "other");
+
+        Assert.assertEquals(SOURCE.replace("second", "other"), newResult.getSource());
+        Assert.assertEquals("first **paragraph**\nother line\n\n\n".length(), newResult.getParsedLength());
+        assertSameAsFullParsing(newResult);
+    }
+
+    @Test
+    public void parseModifiedHeader() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        // The ids of the following headers depend on the modified one
+        IncrementalParseResult newResult =
+            this.incrementalParser.parse(result, SOURCE.indexOf("= Title ="), "= Title =".length(), "=== Title ===");
+
+        Assert.assertEquals("=== Title ===\n\n".length(), newResult.getParsedLength());
+        assertSameAsFullParsing(newResult);
+    }
+
+    @Test
+    public void parseModificationMergingBlocks() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        // Open an embedded document containing the rest of the document
+        IncrementalParseResult newResult =
+            this.incrementalParser.parse(result, SOURCE.indexOf("* item"), 0, "(((\n");
+        assertSameAsFullParsing(newResult);
+
+        // Remove it
+        newResult = this.incrementalParser.parse(newResult, SOURCE.indexOf("* item"), "(((\n".length(), "");
+        Assert.assertEquals(SOURCE, newResult.getSource());
+        assertSameAsFullParsing(newResult);
+    }
+
+    @Test
+    public void parseModifiedLastBlock() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        IncrementalParseResult newResult =
+            this.incrementalParser.parse(result, SOURCE.indexOf("last"), "last".length(), "final");
+
+        Assert.assertEquals("(% class=\"value\" %)\nfinal [[label>>reference]]\n\n".length(),
+            newResult.getParsedLength());
+        assertSameAsFullParsing(newResult);
+    }
+
+    @Test
+    public void parseTextAddedAtTheEnd() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        // The previous last block is now followed by another one
+        IncrementalParseResult newResult = this.incrementalParser.parse(result, SOURCE.length(), 0, "end");
+
+        Assert.assertEquals(SOURCE + "end", newResult.getSource());
+        assertSameAsFullParsing(newResult);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidModification() throws Exception
+    {
+        IncrementalParseResult result = this.incrementalParser.parse(SOURCE);
+
+        this.incrementalParser.parse(result, SOURCE.length(), 1, "");
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.xwiki21;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.BlockSourcePositions;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.AnyBlockMatcher;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
+import org.xwiki.rendering.internal.configuration.DefaultRenderingConfiguration;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+/**
+ * Unit tests for the source positions recorded by {@link XWiki21Parser}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+@AllComponents
+public class XWiki21SourcePositionTest
+{
+    private static final String SOURCE = "= Title =\n\nfirst **paragraph**\nsecond line\n\n"
+        + "(% class=\"value\" %)\nlast {{macro/}} and {{other}}content{{/other}}\n\n{{{\nverbatim\n}}}\n";
+
+    @Rule
+    public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
+
+    private Parser parser;
+
+    private DefaultRenderingConfiguration configuration;
+
+    @Before
+    public void before() throws Exception
+    {
+        this.parser = this.componentManager.getInstance(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        this.configuration =
+            (DefaultRenderingConfiguration) this.componentManager.getInstance(RenderingConfiguration.class);
+    }
+
+    @Test
+    public void parseWithoutPositions() throws Exception
+    {
+        XDOM xdom = this.parser.parse(new StringReader(SOURCE));
+
+        Assert.assertNull(BlockSourcePositions.get(xdom));
+    }
+
+    @Test
+    public void parseWithPositions() throws Exception
+    {
+        this.configuration.setSourcePositionEnabled(true);
+
+        XDOM xdom = this.parser.parse(new StringReader(SOURCE));
+
+        BlockSourcePositions positions = BlockSourcePositions.get(xdom);
+        List<String> sources = new ArrayList<>();
+        for (Block block : xdom.getBlocks(AnyBlockMatcher.ANYBLOCKMATCHER, Block.Axes.DESCENDANT)) {
+            if (positions.contains(block)) {
+                sources.add(SOURCE.substring(positions.getBeginOffset(block), positions.getEndOffset(block)));
+            }
+        }
+
+        Assert.assertEquals(Arrays.asList("= Title =", "first **paragraph**\nsecond line",
+            "(% class=\"value\" %)\nlast {{macro/}} and {{other}}content{{/other}}", "{{macro/}}",
+            "{{other}}content{{/other}}", "{{{\nverbatim\n}}}"), sources);
+    }
+
+    @Test
+    public void positionsAreNotSentToListeners() throws Exception
+    {
+        String expected = render(this.parser.parse(new StringReader(SOURCE)));
+
+        this.configuration.setSourcePositionEnabled(true);
+        XDOM xdom = this.parser.parse(new StringReader(SOURCE));
+
+        Assert.assertNotNull(BlockSourcePositions.get(xdom));
+        Assert.assertEquals(expected, render(xdom));
+        Assert.assertNull(BlockSourcePositions.get(xdom.clone()));
+    }
+
+    private String render(XDOM xdom) throws Exception
+    {
+        BlockRenderer renderer = this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+        WikiPrinter printer = new DefaultWikiPrinter();
+        renderer.render(xdom, printer);
+
+        return printer.toString();
+    }
+}
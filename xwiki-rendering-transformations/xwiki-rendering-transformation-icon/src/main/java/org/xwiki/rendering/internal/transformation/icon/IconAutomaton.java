@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.icon;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.NewLineBlock;
+import org.xwiki.rendering.block.SpaceBlock;
+import org.xwiki.rendering.block.SpecialSymbolBlock;
+import org.xwiki.rendering.block.WordBlock;
+
+/**
+ * Aho-Corasick automaton matching suites of inline blocks against all the icon mappings at once.
+ * <p>
+ * The alphabet is made of tokens representing inline blocks: the word of a {@link WordBlock}, the symbol of a
+ * {@link SpecialSymbolBlock} and constants for {@link SpaceBlock} and {@link NewLineBlock}. Any other block doesn't
+ * have a token and thus can't be part of a match.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class IconAutomaton
+{
+    private static final Object SPACE = new Object();
+
+    private static final Object NEWLINE = new Object();
+
+    /**
+     * A state of the automaton, corresponding to a prefix of one or several mappings.
+     */
+    public static final class State
+    {
+        private final Map<Object, State> transitions = new HashMap<>();
+
+        private final int depth;
+
+        private State failure;
+
+        private State output;
+
+        private String iconName;
+
+        private State(int depth)
+        {
+            this.depth = depth;
+        }
+
+        /**
+         * @return the number of tokens matched when reaching this state
+         */
+        public int getDepth()
+        {
+            return this.depth;
+        }
+
+        /**
+         * @return the name of the icon matched when reaching this state
+         */
+        public String getIconName()
+        {
+            return this.iconName;
+        }
+
+        /**
+         * @return the state corresponding to the longest mapping ending when reaching this state or null if none
+         */
+        public State getMatch()
+        {
+            return this.iconName != null ? this : this.output;
+        }
+    }
+
+    private final State root = new State(0);
+
+    /**
+     * @param block the block to convert
+     * @return the token representing the passed block or null if the block can't be part of a mapping
+     */
+    public static Object getToken(Block block)
+    {
+        Object token;
+        if (block instanceof WordBlock) {
+            token = ((WordBlock) block).getWord();
+        } else if (block instanceof SpecialSymbolBlock) {
+            token = ((SpecialSymbolBlock) block).getSymbol();
+        } else if (block instanceof SpaceBlock) {
+            token = SPACE;
+        } else if (block instanceof NewLineBlock) {
+            token = NEWLINE;
+        } else {
+            token = null;
+        }
+        return token;
+    }
+
+    /**
+     * @return the initial state
+     */
+    public State getRoot()
+    {
+        return this.root;
+    }
+
+    /**
+     * @return true if no mapping has been added
+     */
+    public boolean isEmpty()
+    {
+        return this.root.transitions.isEmpty();
+    }
+
+    /**
+     * Add a mapping. {@link #compile()} must be called once all mappings have been added.
+     *
+     * @param blocks the blocks of the mapping
+     * @param iconName the name of the icon to use when the mapping is found
+     * @return false if the blocks contain a block which can't be part of a mapping (in which case the mapping is not
+     *         added)
+     */
+    public boolean add(List<Block> blocks, String iconName)
+    {
+        Object[] tokens = new Object[blocks.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = getToken(blocks.get(i));
+            if (tokens[i] == null) {
+                return false;
+            }
+        }
+
+        if (tokens.length > 0) {
+            State state = this.root;
+            for (Object token : tokens) {
+                State next = state.transitions.get(token);
+                if (next == null) {
+                    next = new State(state.depth + 1);
+                    state.transitions.put(token, next);
+                }
+                state = next;
+            }
+            state.iconName = iconName;
+        }
+
+        return true;
+    }
+
+    /**
+     * Compute the failure and output links (breadth first so that the links of shorter prefixes are known first).
+     */
+    public void compile()
+    {
+        Queue<State> queue = new ArrayDeque<>();
+        for (State state : this.root.transitions.values()) {
+            state.failure = this.root;
+            queue.add(state);
+        }
+        while (!queue.isEmpty()) {
+            State state = queue.poll();
+            for (Map.Entry<Object, State> entry : state.transitions.entrySet()) {
+                State child = entry.getValue();
+                State failure = state.failure;
+                while (failure != null && !failure.transitions.containsKey(entry.getKey())) {
+                    failure = failure.failure;
+                }
+                child.failure = failure != null ? failure.transitions.get(entry.getKey()) : this.root;
+                child.output = child.failure.getMatch();
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @param state the current state
+     * @param token the next token
+     * @return the next state
+     */
+    public State next(State state, Object token)
+    {
+        State current = state;
+        while (true) {
+            State next = current.transitions.get(token);
+            if (next != null) {
+                return next;
+            }
+            if (current == this.root) {
+                return this.root;
+            }
+            current = current.failure;
+        }
+    }
+}
@@ -20,8 +20,6 @@
 package org.xwiki.rendering.internal.transformation.icon;
 
 import java.io.StringReader;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -34,8 +32,6 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.ImageBlock;
-import org.xwiki.rendering.block.SpecialSymbolBlock;
-import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.internal.block.ProtectedBlockFilter;
 import org.xwiki.rendering.listener.reference.ResourceReference;
@@ -86,9 +82,9 @@ public class IconTransformation extends AbstractTransformation implements Initia
     private ParserUtils parserUtils = new ParserUtils();
 
     /**
-     * The computed tree used to perform the fast mapping.
+     * The automaton used to find all the icon mappings in a single pass.
      */
-    private XDOM mappingTree;
+    private IconAutomaton automaton;
 
     /**
      * Used to filter protected blocks (code macro marker block, etc).
@@ -98,167 +94,79 @@ public class IconTransformation extends AbstractTransformation implements Initia
     @Override
     public void initialize() throws InitializationException
     {
-        this.mappingTree = new XDOM(Collections.<Block>emptyList());
+        this.automaton = new IconAutomaton();
 
-        // Transform mappings into Blocks
+        // Transform mappings into suites of Blocks
         for (Map.Entry<Object, Object> entry : this.configuration.getMappings().entrySet()) {
             if (!StringUtils.isEmpty((String) entry.getValue())) {
                 try {
                     XDOM xdom = this.plainTextParser.parse(new StringReader((String) entry.getKey()));
                     // Remove top level paragraph
                     this.parserUtils.removeTopLevelParagraph(xdom.getChildren());
-                    mergeTree(this.mappingTree, convertToDeepTree(xdom, (String) entry.getValue()));
+                    if (!this.automaton.add(xdom.getChildren(), (String) entry.getValue())) {
+                        this.logger.warn("Unsupported icon symbols [{}]", entry.getKey());
+                    }
                 } catch (ParseException e) {
                     this.logger.warn("Failed to parse icon symbols [" + entry.getKey() + "]. Reason = ["
                         + e.getMessage() + "]");
                 }
             }
         }
+
+        this.automaton.compile();
     }
 
     @Override
     public void transform(Block source, TransformationContext context) throws TransformationException
     {
-        List<Block> filteredBlocks = this.filter.filter(source.getChildren());
-        if (!this.mappingTree.getChildren().isEmpty() && !filteredBlocks.isEmpty()) {
-            parseTree(filteredBlocks);
-        }
-    }
-
-    /**
-     * Converts a standard XDOM tree into a deep tree: sibling are transformed into parent/child relationships and the
-     * leaf node is an Image node referencing the passed icon name.
-     *
-     * @param sourceTree the source tree to modify
-     * @param iconName the name of the icon to display when a match is found
-     * @return the modified tree
-     */
-    private Block convertToDeepTree(Block sourceTree, String iconName)
-    {
-        XDOM targetTree = new XDOM(Collections.<Block>emptyList());
-        Block pointer = targetTree;
-        for (Block block : sourceTree.getChildren()) {
-            pointer.addChild(block);
-            pointer = block;
+        if (!this.automaton.isEmpty()) {
+            transformChildren(source);
         }
-        // Add an image block as the last block
-        pointer.addChild(new ImageBlock(new ResourceReference(iconName, ResourceType.ICON), true));
-        return targetTree;
     }
 
     /**
-     * Merged two XDOM trees.
+     * Replace suites of Blocks matching the icon mapping definitions by image blocks, in the children of the passed
+     * block and recursively in their own children. A match can only be made of consecutive siblings.
      *
-     * @param targetTree the tree to merge into
-     * @param sourceTree the tree to merge
+     * @param parent the block whose children to transform
      */
-    private void mergeTree(Block targetTree, Block sourceTree)
+    private void transformChildren(Block parent)
     {
-        for (Block block : sourceTree.getChildren()) {
-            // Check if the current block exists in the target tree at the same place in the tree
-            int pos = indexOf(targetTree.getChildren(), block);
-            if (pos > -1) {
-                Block foundBlock = targetTree.getChildren().get(pos);
-                mergeTree(foundBlock, block);
+        IconAutomaton.State state = this.automaton.getRoot();
+        Block block = parent.getChildren().isEmpty() ? null : parent.getChildren().get(0);
+        while (block != null) {
+            Block nextBlock = block.getNextSibling();
+            Object token = IconAutomaton.getToken(block);
+            if (token == null) {
+                // This block interrupts any current match
+                state = this.automaton.getRoot();
+                if (!this.filter.isProtectedBlock(block) && !block.getChildren().isEmpty()) {
+                    transformChildren(block);
+                }
             } else {
-                targetTree.addChild(block);
-            }
-        }
-    }
-
-    /**
-     * Shallow indexOf implementation that only compares nodes based on their data and not their children data.
-     *
-     * @param targetBlocks the list of blocks to look into
-     * @param block the block to look for in the list of passed blocks
-     * @return the position of the block in the list of target blocks and -1 if not found
-     */
-    private int indexOf(List<Block> targetBlocks, Block block)
-    {
-        int pos = 0;
-        for (Block targetBlock : targetBlocks) {
-            // Test a non deep equality
-            if (blockEquals(targetBlock, block)) {
-                return pos;
-            }
-            pos++;
-        }
-        return -1;
-    }
-
-    /**
-     * Compares two nodes in a shallow manner (children data are not compared).
-     *
-     * @param target the target node to compare
-     * @param source the source node to compare
-     * @return true if the two blocks are equals in a shallow manner (children data are not compared)
-     */
-    private boolean blockEquals(Block target, Block source)
-    {
-        boolean found = false;
-        if (source instanceof SpecialSymbolBlock && target instanceof SpecialSymbolBlock) {
-            if (((SpecialSymbolBlock) target).getSymbol() == ((SpecialSymbolBlock) source).getSymbol()) {
-                found = true;
-            }
-        } else if (source instanceof WordBlock && target instanceof WordBlock) {
-            if (((WordBlock) target).getWord().equals(((WordBlock) source).getWord())) {
-                found = true;
+                state = this.automaton.next(state, token);
+                IconAutomaton.State match = state.getMatch();
+                if (match != null) {
+                    replace(parent, block, match);
+                    state = this.automaton.getRoot();
+                }
             }
-        } else if (source.equals(target)) {
-            found = true;
+            block = nextBlock;
         }
-        return found;
     }
 
     /**
-     * Parse a list of blocks and replace suite of Blocks matching the icon mapping definitions by image blocks.
-     *
-     * @param sourceBlocks the blocks to parse
+     * @param parent the parent of the matched blocks
+     * @param lastBlock the last block of the match
+     * @param match the automaton state of the match
      */
-    private void parseTree(List<Block> sourceBlocks)
+    private void replace(Block parent, Block lastBlock, IconAutomaton.State match)
     {
-        Block matchStartBlock = null;
-        int count = 0;
-        Block mappingCursor = this.mappingTree.getChildren().get(0);
-        Block sourceBlock = sourceBlocks.get(0);
-        while (sourceBlock != null) {
-            while (mappingCursor != null) {
-                if (blockEquals(sourceBlock, mappingCursor)) {
-                    if (matchStartBlock == null) {
-                        matchStartBlock = sourceBlock;
-                    }
-                    count++;
-                    mappingCursor = mappingCursor.getChildren().get(0);
-                    // If we reach the Image Block then we've found a match!
-                    if (mappingCursor instanceof ImageBlock) {
-                        // Replace the first source block with the image block and remove all other blocks...
-                        for (int i = 0; i < count - 1; i++) {
-                            matchStartBlock.getParent().removeBlock(matchStartBlock.getNextSibling());
-                        }
-                        sourceBlock = mappingCursor.clone();
-                        matchStartBlock.getParent().replaceChild(sourceBlock, matchStartBlock);
-                        mappingCursor = null;
-                        matchStartBlock = null;
-                        count = 0;
-                    } else {
-                        // Look for next block match
-                        break;
-                    }
-                } else {
-                    mappingCursor = mappingCursor.getNextSibling();
-                }
-            }
-            // Look for a match in children of the source block
-            List<Block> filteredSourceBlocks = this.filter.filter(sourceBlock.getChildren());
-            if (!filteredSourceBlocks.isEmpty()) {
-                parseTree(filteredSourceBlocks);
-            } else if (mappingCursor == null) {
-                // No match has been found, reset state variables
-                mappingCursor = this.mappingTree.getChildren().get(0);
-                count = 0;
-                matchStartBlock = null;
-            }
-            sourceBlock = this.filter.getNextSibling(sourceBlock);
+        // Remove all matched blocks but the last one, which is replaced by the image
+        for (int i = 1; i < match.getDepth(); i++) {
+            parent.removeBlock(lastBlock.getPreviousSibling());
         }
+        parent.replaceChild(new ImageBlock(new ResourceReference(match.getIconName(), ResourceType.ICON), true),
+            lastBlock);
     }
 }
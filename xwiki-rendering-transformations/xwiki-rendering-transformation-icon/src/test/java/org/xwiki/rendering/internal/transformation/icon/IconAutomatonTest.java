@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.icon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.FormatBlock;
+import org.xwiki.rendering.block.NewLineBlock;
+import org.xwiki.rendering.block.SpaceBlock;
+import org.xwiki.rendering.block.SpecialSymbolBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.listener.Format;
+
+/**
+ * Unit tests for {@link IconAutomaton}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class IconAutomatonTest
+{
+    private static List<Block> blocks(String symbols)
+    {
+        List<Block> blocks = new ArrayList<>();
+        for (char symbol : symbols.toCharArray()) {
+            if (symbol == ' ') {
+                blocks.add(new SpaceBlock());
+            } else if (symbol == '\n') {
+                blocks.add(new NewLineBlock());
+            } else if (Character.isLetter(symbol)) {
+                blocks.add(new WordBlock(String.valueOf(symbol)));
+            } else {
+                blocks.add(new SpecialSymbolBlock(symbol));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Feed the passed blocks to the automaton the way the icon transformation does, restarting from the root after
+     * each match.
+     *
+     * @return the matches, as "icon name@index of the first matched block"
+     */
+    private static List<String> match(IconAutomaton automaton, List<Block> blocks)
+    {
+        List<String> matches = new ArrayList<>();
+        IconAutomaton.State state = automaton.getRoot();
+        for (int i = 0; i < blocks.size(); i++) {
+            Object token = IconAutomaton.getToken(blocks.get(i));
+            if (token == null) {
+                state = automaton.getRoot();
+            } else {
+                state = automaton.next(state, token);
+                IconAutomaton.State match = state.getMatch();
+                if (match != null) {
+                    matches.add(match.getIconName() + '@' + (i - match.getDepth() + 1));
+                    state = automaton.getRoot();
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static IconAutomaton automaton(String... mappings)
+    {
+        IconAutomaton automaton = new IconAutomaton();
+        for (int i = 0; i < mappings.length; i += 2) {
+            Assert.assertTrue(automaton.add(blocks(mappings[i]), mappings[i + 1]));
+        }
+        automaton.compile();
+        return automaton;
+    }
+
+    @Test
+    public void getToken()
+    {
+        Assert.assertEquals("word", IconAutomaton.getToken(new WordBlock("word")));
+        Assert.assertEquals(':', IconAutomaton.getToken(new SpecialSymbolBlock(':')));
+        Assert.assertSame(IconAutomaton.getToken(new SpaceBlock()), IconAutomaton.getToken(new SpaceBlock()));
+        Assert.assertSame(IconAutomaton.getToken(new NewLineBlock()), IconAutomaton.getToken(new NewLineBlock()));
+        Assert.assertNotSame(IconAutomaton.getToken(new SpaceBlock()), IconAutomaton.getToken(new NewLineBlock()));
+        Assert.assertNull(IconAutomaton.getToken(new FormatBlock(Collections.<Block>emptyList(), Format.BOLD)));
+    }
+
+    @Test
+    public void addUnsupportedMapping()
+    {
+        IconAutomaton automaton = new IconAutomaton();
+
+        Assert.assertFalse(automaton.add(Arrays.<Block>asList(new SpecialSymbolBlock(':'),
+            new FormatBlock(Collections.<Block>emptyList(), Format.BOLD)), "bold"));
+        Assert.assertTrue(automaton.add(Collections.<Block>emptyList(), "empty"));
+        automaton.compile();
+
+        Assert.assertTrue(automaton.isEmpty());
+        Assert.assertEquals(Collections.emptyList(), match(automaton, blocks(":")));
+    }
+
+    @Test
+    public void matchSeveralMappings()
+    {
+        IconAutomaton automaton = automaton(":)", "smile", ":(", "unhappy", "(y)", "thumb_up");
+
+        Assert.assertEquals(Arrays.asList("smile@0", "unhappy@3", "thumb_up@5"),
+            match(automaton, blocks(":) :((y)")));
+        Assert.assertEquals(Collections.emptyList(), match(automaton, blocks(": ) (y ) y)")));
+    }
+
+    @Test
+    public void matchAfterIncompleteMatch()
+    {
+        IconAutomaton automaton = automaton("(i)", "information", ":-x", "sealed", "-)", "nose");
+
+        // The incomplete match of "(i)" must not prevent the match starting at the second parenthesis
+        Assert.assertEquals(Arrays.asList("information@1"), match(automaton, blocks("((i)")));
+        Assert.assertEquals(Arrays.asList("information@2"), match(automaton, blocks("( (i)")));
+        // Follows the failure link from ":-" to "-"
+        Assert.assertEquals(Arrays.asList("nose@1"), match(automaton, blocks(":-)")));
+    }
+
+    @Test
+    public void matchMappingEndingInsideLongerMapping()
+    {
+        IconAutomaton automaton = automaton("(y)x", "longer", "y)", "shorter");
+
+        // "y)" ends inside the longer mapping and is found through the output link of "(y)"
+        Assert.assertEquals(Arrays.asList("shorter@1"), match(automaton, blocks("(y)x")));
+    }
+
+    @Test
+    public void matchShortestMappingFirst()
+    {
+        IconAutomaton automaton = automaton(":)", "smile", ":))", "laugh");
+
+        // The transformation replaces a mapping as soon as it ends
+        Assert.assertEquals(Arrays.asList("smile@0"), match(automaton, blocks(":))")));
+    }
+
+    @Test
+    public void matchWithSpacesAndNewLines()
+    {
+        IconAutomaton automaton = automaton("( )", "space", "(\n)", "newline");
+
+        Assert.assertEquals(Arrays.asList("space@0", "newline@3"), match(automaton, blocks("( )(\n)")));
+        Assert.assertEquals(Collections.emptyList(), match(automaton, blocks("()( \n)")));
+    }
+
+    @Test
+    public void matchIsInterruptedByBlocksWithoutToken()
+    {
+        IconAutomaton automaton = automaton(":)", "smile");
+
+        List<Block> blocks = blocks(":):)");
+        blocks.add(1, new FormatBlock(Collections.<Block>emptyList(), Format.BOLD));
+
+        Assert.assertEquals(Arrays.asList("smile@3"), match(automaton, blocks));
+    }
+}
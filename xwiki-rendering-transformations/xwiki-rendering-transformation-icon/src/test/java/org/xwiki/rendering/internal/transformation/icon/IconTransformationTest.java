@@ -26,9 +26,11 @@
 import org.junit.Assert;
 import org.junit.Test;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.FormatBlock;
 import org.xwiki.rendering.block.MacroMarkerBlock;
 import org.xwiki.rendering.block.SpecialSymbolBlock;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.parser.Parser;
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
@@ -133,4 +135,27 @@ public void testTransformWhenIncompleteMatchExistsFollowedByMatch() throws Excep
         eventBlockRenderer.render(xdom, printer);
         Assert.assertEquals(expected, printer.toString());
     }
+
+    @Test
+    public void testTransformMatchesConsecutiveSiblingsOnly() throws Exception
+    {
+        String expected = "beginDocument\n"
+            + "onSpecialSymbol [:]\n"
+            + "beginFormat [BOLD]\n"
+            + "onImage [Typed = [true] Type = [icon] Reference = [emoticon_smile]] [true]\n"
+            + "endFormat [BOLD]\n"
+            + "onSpecialSymbol [)]\n"
+            + "endDocument";
+
+        XDOM xdom = new XDOM(Arrays.asList((Block) new SpecialSymbolBlock(':'),
+            new FormatBlock(Arrays.asList((Block) new SpecialSymbolBlock(':'), new SpecialSymbolBlock(')')),
+                Format.BOLD),
+            new SpecialSymbolBlock(')')));
+        getMockedComponent().transform(xdom, new TransformationContext());
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        BlockRenderer eventBlockRenderer = getComponentManager().getInstance(BlockRenderer.class, "event/1.0");
+        eventBlockRenderer.render(xdom, printer);
+        Assert.assertEquals(expected, printer.toString());
+    }
 }
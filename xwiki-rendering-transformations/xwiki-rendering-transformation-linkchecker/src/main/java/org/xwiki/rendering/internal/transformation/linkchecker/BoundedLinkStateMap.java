@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.linkchecker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.xwiki.rendering.transformation.linkchecker.LinkState;
+
+/**
+ * Link state map (link reference as key, content reference to state map as value) whose size and age are bounded.
+ * <p>
+ * Each write checks whether the map has grown over its maximum size or whether some entries may have expired, in
+ * which case the map is purged: entries whose most recent check is older than the configured time to live are
+ * removed, then the least recently checked entries are removed until the map is back to 90% of its maximum size
+ * (so that we don't purge again on the next write). Reads stay lock free and iteration stays weakly consistent, as
+ * with a standard {@link ConcurrentHashMap}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class BoundedLinkStateMap extends ConcurrentHashMap<String, Map<String, LinkState>>
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The map is purged from expired entries every tenth of the time to live.
+     */
+    private static final int PURGE_FREQUENCY = 10;
+
+    private final int maxSize;
+
+    private final long timeToLive;
+
+    private volatile long nextPurgeTime;
+
+    /**
+     * @param maxSize the maximum number of link references to keep
+     * @param timeToLive the amount of time (in ms) after which a link that hasn't been checked again is evicted
+     */
+    public BoundedLinkStateMap(int maxSize, long timeToLive)
+    {
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.nextPurgeTime = System.currentTimeMillis() + timeToLive / PURGE_FREQUENCY;
+    }
+
+    @Override
+    public Map<String, LinkState> put(String key, Map<String, LinkState> value)
+    {
+        Map<String, LinkState> result = super.put(key, value);
+        afterWrite();
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Map<String, LinkState>> map)
+    {
+        super.putAll(map);
+        afterWrite();
+    }
+
+    @Override
+    public Map<String, LinkState> putIfAbsent(String key, Map<String, LinkState> value)
+    {
+        Map<String, LinkState> result = super.putIfAbsent(key, value);
+        afterWrite();
+        return result;
+    }
+
+    @Override
+    public Map<String, LinkState> compute(String key,
+        BiFunction<? super String, ? super Map<String, LinkState>, ? extends Map<String, LinkState>> function)
+    {
+        Map<String, LinkState> result = super.compute(key, function);
+        afterWrite();
+        return result;
+    }
+
+    @Override
+    public Map<String, LinkState> computeIfAbsent(String key,
+        Function<? super String, ? extends Map<String, LinkState>> function)
+    {
+        Map<String, LinkState> result = super.computeIfAbsent(key, function);
+        afterWrite();
+        return result;
+    }
+
+    @Override
+    public Map<String, LinkState> merge(String key, Map<String, LinkState> value,
+        BiFunction<? super Map<String, LinkState>, ? super Map<String, LinkState>,
+            ? extends Map<String, LinkState>> function)
+    {
+        Map<String, LinkState> result = super.merge(key, value, function);
+        afterWrite();
+        return result;
+    }
+
+    private void afterWrite()
+    {
+        long now = System.currentTimeMillis();
+        if (size() > this.maxSize || now >= this.nextPurgeTime) {
+            purge(now);
+        }
+    }
+
+    /**
+     * Remove expired entries and, if the map is still too large, the least recently checked entries.
+     *
+     * @param now the current time
+     */
+    synchronized void purge(long now)
+    {
+        this.nextPurgeTime = now + this.timeToLive / PURGE_FREQUENCY;
+
+        List<Map.Entry<String, Long>> checkTimes = new ArrayList<>(size());
+        for (Map.Entry<String, Map<String, LinkState>> entry : entrySet()) {
+            long lastCheckedTime = getLastCheckedTime(entry.getValue());
+            if (now - lastCheckedTime > this.timeToLive) {
+                remove(entry.getKey(), entry.getValue());
+            } else {
+                checkTimes.add(new SimpleImmutableEntry<>(entry.getKey(), lastCheckedTime));
+            }
+        }
+
+        int lowWaterMark = this.maxSize - this.maxSize / PURGE_FREQUENCY;
+        int toRemove = size() - lowWaterMark;
+        if (toRemove > 0) {
+            checkTimes.sort(Comparator.comparing(Map.Entry::getValue));
+            for (int i = 0; i < toRemove && i < checkTimes.size(); i++) {
+                remove(checkTimes.get(i).getKey());
+            }
+        }
+    }
+
+    private long getLastCheckedTime(Map<String, LinkState> contentReferences)
+    {
+        long result = 0L;
+        for (LinkState state : contentReferences.values()) {
+            result = Math.max(result, state.getLastCheckedTime());
+        }
+        return result;
+    }
+}
@@ -24,7 +24,6 @@
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.inject.Inject;
@@ -93,6 +92,11 @@ public class DefaultLinkCheckerThread extends java.lang.Thread implements LinkCh
      */
     private volatile boolean shouldStop;
 
+    /**
+     * Cached matcher for the excluded references, see {@link #getExcludedReferenceMatcher()}.
+     */
+    private ExcludedReferenceMatcher excludedReferenceMatcher;
+
     @Override
     public void startProcessing(Queue<LinkQueueItem> linkQueue)
     {
@@ -145,7 +149,7 @@ public void stopProcessing()
     protected void processLinkQueue()
     {
         long timeout = this.configuration.getCheckTimeout();
-        List<Pattern> excludedReferencePatterns = this.configuration.getExcludedReferencePatterns();
+        ExcludedReferenceMatcher excludedReferenceMatcher = getExcludedReferenceMatcher();
 
         // Unqueue till we find an item that needs to be processed. We process an item if:
         // - it isn't present in the state map
@@ -157,7 +161,7 @@ protected void processLinkQueue()
             queueItem = this.linkQueue.poll();
 
             // Don't check excluded references
-            shouldBeChecked = isExcluded(queueItem.getContentReference(), excludedReferencePatterns);
+            shouldBeChecked = !excludedReferenceMatcher.isExcluded(queueItem.getContentReference());
             if (!shouldBeChecked) {
                 break;
             }
@@ -177,16 +181,16 @@ protected void processLinkQueue()
         }
     }
 
-    private boolean isExcluded(String contentReference, List<Pattern> excludedReferencePatterns)
+    /**
+     * @return the matcher for the configured excluded references, only rebuilt when the configured patterns change
+     */
+    private ExcludedReferenceMatcher getExcludedReferenceMatcher()
     {
-        for (Pattern pattern : excludedReferencePatterns) {
-            Matcher matcher = pattern.matcher(contentReference);
-            if (matcher.matches()) {
-                return false;
-            }
+        List<Pattern> patterns = this.configuration.getExcludedReferencePatterns();
+        if (this.excludedReferenceMatcher == null || !this.excludedReferenceMatcher.isMatching(patterns)) {
+            this.excludedReferenceMatcher = new ExcludedReferenceMatcher(patterns);
         }
-
-        return true;
+        return this.excludedReferenceMatcher;
     }
 
     /**
@@ -198,14 +202,16 @@ private void checkLink(LinkQueueItem queueItem)
     {
         int responseCode = this.httpChecker.check(queueItem.getLinkReference());
 
-        Map<String, LinkState> contentReferences =
-            this.linkStateManager.getLinkStates().get(queueItem.getLinkReference());
-        if (contentReferences == null) {
-            contentReferences = new ConcurrentHashMap<>();
-        }
         LinkState state = new LinkState(responseCode, System.currentTimeMillis(), queueItem.getContextData());
-        contentReferences.put(queueItem.getContentReference(), state);
-        this.linkStateManager.getLinkStates().put(queueItem.getLinkReference(), contentReferences);
+        // Update the states atomically so that a concurrent update for the same link isn't lost.
+        this.linkStateManager.getLinkStates().compute(queueItem.getLinkReference(), (key, contentReferences) -> {
+            Map<String, LinkState> result = contentReferences;
+            if (result == null) {
+                result = new ConcurrentHashMap<>();
+            }
+            result.put(queueItem.getContentReference(), state);
+            return result;
+        });
 
         // If there's an error, then send an Observation Event so that anyone interested can listen to it.
         if (responseCode < 200 || responseCode > 299) {
@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.transformation.linkchecker;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -27,6 +28,7 @@
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
@@ -57,6 +59,16 @@ public class DefaultLinkCheckerTransformationConfiguration implements LinkChecke
      */
     private static final long TIMEOUT = 3600000L;
 
+    /**
+     * Keep the state of at most 10000 links.
+     */
+    private static final int MAX_LINK_STATES = 10000;
+
+    /**
+     * Forget about links that haven't been checked for 1 day.
+     */
+    private static final long LINK_STATE_TTL = 86400000L;
+
     /**
      * Overridden default timeout to be used if set.
      */
@@ -71,6 +83,11 @@ public class DefaultLinkCheckerTransformationConfiguration implements LinkChecke
 
     private ConfigurationSource configurationSource;
 
+    /**
+     * The last configured excluded reference patterns (as strings) along with their compiled version.
+     */
+    private volatile Pair<List<String>, List<Pattern>> cachedExcludedReferencePatterns;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -124,12 +141,45 @@ public List<Pattern> getExcludedReferencePatterns()
         if (patternsAsString.isEmpty()) {
             patterns = getDefaultExcludedReferencePatterns();
         } else {
-            patterns = new ArrayList<Pattern>();
-            for (String patternAsString : patternsAsString) {
-                patterns.add(Pattern.compile(patternAsString));
+            // Only compile the patterns again when the configuration has changed. Returning the same list instance
+            // also allows callers to cache what they compute from it.
+            Pair<List<String>, List<Pattern>> cached = this.cachedExcludedReferencePatterns;
+            if (cached == null || !cached.getLeft().equals(patternsAsString)) {
+                List<Pattern> compiledPatterns = new ArrayList<>(patternsAsString.size());
+                for (String patternAsString : patternsAsString) {
+                    compiledPatterns.add(Pattern.compile(patternAsString));
+                }
+                cached = Pair.of(new ArrayList<>(patternsAsString), Collections.unmodifiableList(compiledPatterns));
+                this.cachedExcludedReferencePatterns = cached;
             }
+            patterns = cached.getRight();
         }
 
         return patterns;
     }
+
+    @Override
+    public int getMaxLinkStates()
+    {
+        return this.configurationSource.getProperty(PREFIX + "maxLinkStates", MAX_LINK_STATES);
+    }
+
+    @Override
+    public long getLinkStateTimeToLive()
+    {
+        return this.configurationSource.getProperty(PREFIX + "linkStateTimeToLive", LINK_STATE_TTL);
+    }
+
+    @Override
+    public File getLinkStateFile()
+    {
+        File result = null;
+
+        String path = this.configurationSource.getProperty(PREFIX + "linkStateFile", String.class);
+        if (path != null) {
+            result = new File(path);
+        }
+
+        return result;
+    }
 }
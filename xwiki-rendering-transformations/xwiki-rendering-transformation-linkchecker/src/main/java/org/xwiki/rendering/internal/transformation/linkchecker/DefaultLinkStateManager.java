@@ -19,33 +19,245 @@
  */
 package org.xwiki.rendering.internal.transformation.linkchecker;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.transformation.linkchecker.LinkCheckerTransformationConfiguration;
 import org.xwiki.rendering.transformation.linkchecker.LinkState;
 import org.xwiki.rendering.transformation.linkchecker.LinkStateManager;
 
 /**
  * Default implementation of {@link LinkStateManager} which supports multithreaded access to the link states.
+ * <p>
+ * The number of kept link states and their age are bounded (see {@link BoundedLinkStateMap}). When a link state file
+ * is configured the states are saved to it when this component is disposed and loaded back when it's initialized,
+ * so that links don't all need to be checked again after a restart. Only context data values of type {@link String}
+ * are saved.
  *
  * @version $Id$
  * @since 3.3M1
  */
 @Component
 @Singleton
-public class DefaultLinkStateManager implements LinkStateManager
+public class DefaultLinkStateManager implements LinkStateManager, Initializable, Disposable
 {
+    /**
+     * Version of the format used to save the link states, to be increased when the format changes.
+     */
+    private static final int FILE_FORMAT_VERSION = 2;
+
+    @Inject
+    private LinkCheckerTransformationConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
     /**
      * @see #getLinkStates() to understand the map structure
      */
-    private Map<String, Map<String, LinkState>> linkStates = new ConcurrentHashMap<String, Map<String, LinkState>>();
+    private Map<String, Map<String, LinkState>> linkStates;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.linkStates = new BoundedLinkStateMap(this.configuration.getMaxLinkStates(),
+            this.configuration.getLinkStateTimeToLive());
+
+        File file = this.configuration.getLinkStateFile();
+        if (file != null && file.exists()) {
+            try {
+                load(file);
+            } catch (IOException e) {
+                this.logger.warn("Failed to load the link states from [{}]. Root cause: [{}]", file,
+                    e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        File file = this.configuration.getLinkStateFile();
+        if (file != null) {
+            try {
+                save(file);
+            } catch (IOException e) {
+                throw new ComponentLifecycleException(String.format("Failed to save the link states to [%s]", file),
+                    e);
+            }
+        }
+    }
 
     @Override
     public Map<String, Map<String, LinkState>> getLinkStates()
     {
         return this.linkStates;
     }
+
+    private void load(File file) throws IOException
+    {
+        // A corrupted file can't make us allocate more than its size for a string or a collection
+        long maxSize = Files.size(file.toPath());
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(
+            file.toPath())))) {
+            int version = input.readInt();
+            if (version != FILE_FORMAT_VERSION) {
+                throw new IOException(String.format("Unsupported link state file format version [%s]", version));
+            }
+            Map<String, Map<String, LinkState>> loadedStates = new HashMap<>();
+            int linkCount = readSize(input, maxSize);
+            for (int i = 0; i < linkCount; i++) {
+                String linkReference = readString(input, maxSize);
+                int contentCount = readSize(input, maxSize);
+                Map<String, LinkState> contentReferences = new ConcurrentHashMap<>(contentCount);
+                for (int j = 0; j < contentCount; j++) {
+                    String contentReference = readString(input, maxSize);
+                    int responseCode = input.readInt();
+                    long lastCheckedTime = input.readLong();
+                    contentReferences.put(contentReference,
+                        new LinkState(responseCode, lastCheckedTime, readContextData(input, maxSize)));
+                }
+                loadedStates.put(linkReference, contentReferences);
+            }
+            // Note: expired or extra states are purged by the bounded map
+            this.linkStates.putAll(loadedStates);
+        }
+    }
+
+    private Map<String, Object> readContextData(DataInputStream input, long maxSize) throws IOException
+    {
+        Map<String, Object> contextData = null;
+        int size = input.readInt();
+        if (size > maxSize) {
+            throw new IOException(String.format("Invalid context data size [%s]", size));
+        } else if (size >= 0) {
+            contextData = new LinkedHashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                contextData.put(readString(input, maxSize), readString(input, maxSize));
+            }
+        }
+        return contextData;
+    }
+
+    private void save(File file) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        // Write to a temporary file first so that a failure doesn't corrupt the previously saved states.
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+            tmpFile.toPath())))) {
+            // Take a snapshot since the map can be modified while we're saving it.
+            Map<String, Map<String, LinkState>> snapshot = new HashMap<>(this.linkStates);
+            output.writeInt(FILE_FORMAT_VERSION);
+            output.writeInt(snapshot.size());
+            for (Map.Entry<String, Map<String, LinkState>> entry : snapshot.entrySet()) {
+                Map<String, LinkState> contentReferences = new HashMap<>(entry.getValue());
+                writeString(entry.getKey(), output);
+                output.writeInt(contentReferences.size());
+                for (Map.Entry<String, LinkState> contentEntry : contentReferences.entrySet()) {
+                    LinkState state = contentEntry.getValue();
+                    writeString(contentEntry.getKey(), output);
+                    output.writeInt(state.getResponseCode());
+                    output.writeLong(state.getLastCheckedTime());
+                    writeContextData(state.getContextData(), output);
+                }
+            }
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeContextData(Map<String, Object> contextData, DataOutputStream output) throws IOException
+    {
+        if (contextData == null) {
+            output.writeInt(-1);
+        } else {
+            Map<String, String> stringData = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : contextData.entrySet()) {
+                if (entry.getValue() instanceof String) {
+                    stringData.put(entry.getKey(), (String) entry.getValue());
+                }
+            }
+            output.writeInt(stringData.size());
+            for (Map.Entry<String, String> entry : stringData.entrySet()) {
+                writeString(entry.getKey(), output);
+                writeString(entry.getValue(), output);
+            }
+        }
+    }
+
+    /**
+     * Read the number of elements of a collection.
+     *
+     * @param input the stream to read from
+     * @param maxSize the maximum valid size, i.e. the size of the file
+     * @return the read size
+     * @throws IOException if the size cannot be read or is invalid
+     */
+    private int readSize(DataInputStream input, long maxSize) throws IOException
+    {
+        int size = input.readInt();
+        if (size < 0 || size > maxSize) {
+            throw new IOException(String.format("Invalid size [%s]", size));
+        }
+        return size;
+    }
+
+    /**
+     * Read a string written by {@link #writeString(String, DataOutputStream)}.
+     *
+     * @param input the stream to read from
+     * @param maxLength the maximum valid length of the encoded string, i.e. the size of the file
+     * @return the read string
+     * @throws IOException if the string cannot be read or its length is invalid
+     */
+    private String readString(DataInputStream input, long maxLength) throws IOException
+    {
+        int length = input.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException(String.format("Invalid string length [%s]", length));
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the length of the UTF-8 encoded string followed by its bytes. Contrary to
+     * {@link DataOutputStream#writeUTF(String)} the size of the string is not limited to 64KB.
+     *
+     * @param value the string to write
+     * @param output the stream to write to
+     * @throws IOException if the string cannot be written
+     */
+    private void writeString(String value, DataOutputStream output) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
 }
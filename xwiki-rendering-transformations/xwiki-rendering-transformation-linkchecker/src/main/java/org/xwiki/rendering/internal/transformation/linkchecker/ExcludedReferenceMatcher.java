@@ -0,0 +1,152 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.linkchecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches content references against a list of exclusion patterns. The patterns which can safely be combined are
+ * matched using a single regular expression made of their alternation, so that a reference is scanned once whatever
+ * the number of patterns. The other patterns are matched one by one: patterns compiled with flags, patterns with
+ * groups (since combining them would shift the numbered back references and could duplicate named groups), patterns
+ * with quoted sections (an unterminated {@code \Q} would quote the rest of the alternation) and patterns using the
+ * comments mode. Not thread safe since the {@link Matcher} is reused.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class ExcludedReferenceMatcher
+{
+    private static final Pattern COMMENTS_FLAG = Pattern.compile("\\(\\?[a-zA-Z-]*x");
+
+    private final List<Pattern> patterns;
+
+    private final List<Pattern> separatePatterns = new ArrayList<>();
+
+    private final Matcher combinedMatcher;
+
+    /**
+     * @param patterns the exclusion patterns
+     */
+    public ExcludedReferenceMatcher(List<Pattern> patterns)
+    {
+        this.patterns = patterns;
+        this.combinedMatcher = combine(patterns);
+    }
+
+    /**
+     * @return the patterns this matcher was built from
+     */
+    public List<Pattern> getPatterns()
+    {
+        return this.patterns;
+    }
+
+    /**
+     * @param otherPatterns some exclusion patterns
+     * @return true if the passed patterns are the same as the ones this matcher was built from (same expressions and
+     *         flags, in the same order)
+     */
+    public boolean isMatching(List<Pattern> otherPatterns)
+    {
+        if (otherPatterns == this.patterns) {
+            return true;
+        }
+        if (otherPatterns == null || this.patterns == null || otherPatterns.size() != this.patterns.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < otherPatterns.size(); ++i) {
+            Pattern pattern = this.patterns.get(i);
+            Pattern otherPattern = otherPatterns.get(i);
+            if (pattern.flags() != otherPattern.flags() || !pattern.pattern().equals(otherPattern.pattern())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param contentReference the content reference to check
+     * @return true if the whole content reference matches one of the exclusion patterns
+     */
+    public boolean isExcluded(String contentReference)
+    {
+        if (this.combinedMatcher != null && this.combinedMatcher.reset(contentReference).matches()) {
+            return true;
+        }
+
+        for (Pattern pattern : this.separatePatterns) {
+            if (pattern.matcher(contentReference).matches()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param patternsToCombine the patterns to combine
+     * @return a matcher for the alternation of the patterns which can be combined or null if there's none (in which
+     *         case all the patterns are matched separately)
+     */
+    private Matcher combine(List<Pattern> patternsToCombine)
+    {
+        List<Pattern> combinedPatterns = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        for (Pattern pattern : patternsToCombine) {
+            if (isCombinable(pattern)) {
+                if (builder.length() > 0) {
+                    builder.append('|');
+                }
+                builder.append("(?:").append(pattern.pattern()).append(')');
+                combinedPatterns.add(pattern);
+            } else {
+                this.separatePatterns.add(pattern);
+            }
+        }
+
+        if (combinedPatterns.size() > 1) {
+            try {
+                return Pattern.compile(builder.toString()).matcher("");
+            } catch (PatternSyntaxException e) {
+                // Should not happen for the patterns considered combinable but never fail because of the combination
+            }
+        }
+
+        // Nothing to gain from a combination
+        this.separatePatterns.addAll(0, combinedPatterns);
+
+        return null;
+    }
+
+    private boolean isCombinable(Pattern pattern)
+    {
+        String expression = pattern.pattern();
+
+        return pattern.flags() == 0 && pattern.matcher("").groupCount() == 0 && !expression.contains("\\Q")
+            && !COMMENTS_FLAG.matcher(expression).find();
+    }
+}
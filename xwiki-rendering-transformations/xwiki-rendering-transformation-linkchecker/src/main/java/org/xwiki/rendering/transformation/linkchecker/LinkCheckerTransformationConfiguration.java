@@ -19,10 +19,12 @@
  */
 package org.xwiki.rendering.transformation.linkchecker;
 
+import java.io.File;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration options for the Link Checker Transformation.
@@ -48,4 +50,37 @@
      *         ensure that the page listing all link statuses is itself excluded ;))
      */
     List<Pattern> getExcludedReferencePatterns();
+
+    /**
+     * @return the maximum number of link references for which a state is kept in memory; when this limit is reached
+     *         the least recently checked links are evicted first
+     * @since 10.0RC1
+     */
+    @Unstable
+    default int getMaxLinkStates()
+    {
+        return 10000;
+    }
+
+    /**
+     * @return the amount of time (in ms) after which a link state that hasn't been checked again is evicted from the
+     *         link state cache
+     * @since 10.0RC1
+     */
+    @Unstable
+    default long getLinkStateTimeToLive()
+    {
+        return 86400000L;
+    }
+
+    /**
+     * @return the file in which link states are saved when the application is stopped and from which they are loaded
+     *         when it starts again, or {@code null} if link states should only be kept in memory
+     * @since 10.0RC1
+     */
+    @Unstable
+    default File getLinkStateFile()
+    {
+        return null;
+    }
 }
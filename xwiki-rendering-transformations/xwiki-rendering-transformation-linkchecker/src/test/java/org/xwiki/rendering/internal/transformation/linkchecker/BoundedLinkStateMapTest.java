@@ -0,0 +1,74 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.linkchecker;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.xwiki.rendering.transformation.linkchecker.LinkState;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BoundedLinkStateMap}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class BoundedLinkStateMapTest
+{
+    @Test
+    public void putEvictsLeastRecentlyCheckedLinksWhenFull()
+    {
+        long now = System.currentTimeMillis();
+        BoundedLinkStateMap map = new BoundedLinkStateMap(10, 3600000L);
+        for (int i = 0; i < 11; i++) {
+            map.put("link" + i, states(now - 1000L + i));
+        }
+
+        // The map is purged down to 90% of its maximum size, oldest checks first.
+        assertEquals(9, map.size());
+        assertFalse(map.containsKey("link0"));
+        assertFalse(map.containsKey("link1"));
+        assertTrue(map.containsKey("link10"));
+    }
+
+    @Test
+    public void purgeRemovesExpiredLinks()
+    {
+        long now = System.currentTimeMillis();
+        BoundedLinkStateMap map = new BoundedLinkStateMap(10, 1000L);
+        map.put("expired", states(now - 5000L));
+        map.put("valid", states(now));
+
+        map.purge(now);
+
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey("valid"));
+    }
+
+    private Map<String, LinkState> states(long lastCheckedTime)
+    {
+        return Collections.singletonMap("default", new LinkState(200, lastCheckedTime));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.linkchecker;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.rendering.transformation.linkchecker.LinkCheckerTransformationConfiguration;
+import org.xwiki.rendering.transformation.linkchecker.LinkState;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultLinkStateManager}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class DefaultLinkStateManagerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LinkCheckerTransformationConfiguration configuration;
+
+    private File file;
+
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.file = new File(this.folder.getRoot(), "linkchecker/states.bin");
+
+        this.configuration = mock(LinkCheckerTransformationConfiguration.class);
+        when(this.configuration.getMaxLinkStates()).thenReturn(100);
+        when(this.configuration.getLinkStateTimeToLive()).thenReturn(3600000L);
+        when(this.configuration.getLinkStateFile()).thenReturn(this.file);
+
+        this.logger = mock(Logger.class);
+    }
+
+    private DefaultLinkStateManager createManager() throws Exception
+    {
+        DefaultLinkStateManager manager = new DefaultLinkStateManager();
+        ReflectionUtils.setFieldValue(manager, "configuration", this.configuration);
+        ReflectionUtils.setFieldValue(manager, "logger", this.logger);
+        manager.initialize();
+        return manager;
+    }
+
+    @Test
+    public void saveAndLoadLinkStates() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        // Longer than the 64KB supported by DataOutputStream#writeUTF, with non ASCII characters
+        String longString = StringUtils.repeat("lé€", 30000);
+
+        Map<String, Object> contextData = new LinkedHashMap<>();
+        contextData.put("key", "value");
+        contextData.put("long", longString);
+        contextData.put("notString", 42);
+
+        Map<String, LinkState> states = new ConcurrentHashMap<>();
+        states.put("content1", new LinkState(200, now, contextData));
+        states.put("content2", new LinkState(404, now - 1000L));
+        states.put(longString, new LinkState(500, now, Collections.<String, Object>emptyMap()));
+
+        DefaultLinkStateManager manager = createManager();
+        manager.getLinkStates().put("http://xwiki.org", states);
+        manager.getLinkStates().put("http://xwiki.org/" + longString,
+            Collections.singletonMap("content", new LinkState(200, now)));
+        manager.dispose();
+
+        assertTrue(this.file.exists());
+
+        Map<String, Map<String, LinkState>> loadedStates = createManager().getLinkStates();
+
+        assertEquals(2, loadedStates.size());
+        Map<String, LinkState> loaded = loadedStates.get("http://xwiki.org");
+        assertEquals(3, loaded.size());
+        // Only the context data values of type String are saved
+        Map<String, Object> expectedContextData = new HashMap<>(contextData);
+        expectedContextData.remove("notString");
+        assertEquals(new LinkState(200, now, expectedContextData), loaded.get("content1"));
+        assertEquals(new LinkState(404, now - 1000L), loaded.get("content2"));
+        assertEquals(new LinkState(500, now, Collections.<String, Object>emptyMap()), loaded.get(longString));
+        assertEquals(Collections.singletonMap("content", new LinkState(200, now)),
+            loadedStates.get("http://xwiki.org/" + longString));
+    }
+
+    @Test
+    public void loadWhenNoFile() throws Exception
+    {
+        assertTrue(createManager().getLinkStates().isEmpty());
+    }
+
+    @Test
+    public void loadWhenStringLengthIsCorrupted() throws Exception
+    {
+        this.file.getParentFile().mkdirs();
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(this.file.toPath()))) {
+            // Format version
+            output.writeInt(2);
+            // Number of links
+            output.writeInt(1);
+            // Length of the link reference, much larger than the file
+            output.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertTrue(createManager().getLinkStates().isEmpty());
+        verify(this.logger).warn("Failed to load the link states from [{}]. Root cause: [{}]", this.file,
+            "Invalid string length [2147483647]");
+    }
+}
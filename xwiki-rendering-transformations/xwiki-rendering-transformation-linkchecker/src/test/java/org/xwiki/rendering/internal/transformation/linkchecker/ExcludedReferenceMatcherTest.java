@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.linkchecker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ExcludedReferenceMatcher}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class ExcludedReferenceMatcherTest
+{
+    @Test
+    public void isExcluded()
+    {
+        ExcludedReferenceMatcher matcher = new ExcludedReferenceMatcher(
+            Arrays.asList(Pattern.compile(".*:Space1\\..*"), Pattern.compile("wiki:Space2\\.Page|other")));
+
+        assertTrue(matcher.isExcluded("wiki:Space1.Page"));
+        assertTrue(matcher.isExcluded("wiki:Space2.Page"));
+        assertTrue(matcher.isExcluded("other"));
+        assertFalse(matcher.isExcluded("wiki:Space2.Page2"));
+        assertFalse(matcher.isExcluded("wiki:Space3.Page"));
+    }
+
+    @Test
+    public void isExcludedWhenPatternsHaveFlags()
+    {
+        ExcludedReferenceMatcher matcher = new ExcludedReferenceMatcher(
+            Arrays.asList(Pattern.compile("page"), Pattern.compile("other", Pattern.CASE_INSENSITIVE)));
+
+        assertTrue(matcher.isExcluded("page"));
+        assertTrue(matcher.isExcluded("OTHER"));
+        assertFalse(matcher.isExcluded("PAGE"));
+    }
+
+    @Test
+    public void isExcludedWhenPatternsHaveBackReferences()
+    {
+        ExcludedReferenceMatcher matcher = new ExcludedReferenceMatcher(
+            Arrays.asList(Pattern.compile("page"), Pattern.compile("(x)\\1"), Pattern.compile("(y)\\1")));
+
+        assertTrue(matcher.isExcluded("page"));
+        assertTrue(matcher.isExcluded("xx"));
+        assertTrue(matcher.isExcluded("yy"));
+        assertFalse(matcher.isExcluded("xy"));
+    }
+
+    @Test
+    public void isExcludedWhenPatternsHaveSameNamedGroups()
+    {
+        ExcludedReferenceMatcher matcher = new ExcludedReferenceMatcher(Arrays.asList(
+            Pattern.compile("(?<space>\\w+)\\.Page"), Pattern.compile("wiki:(?<space>\\w+)\\.WebHome")));
+
+        assertTrue(matcher.isExcluded("Space.Page"));
+        assertTrue(matcher.isExcluded("wiki:Space.WebHome"));
+        assertFalse(matcher.isExcluded("wiki:Space.Page"));
+    }
+
+    @Test
+    public void isExcludedWhenPatternsHaveQuotedSections()
+    {
+        ExcludedReferenceMatcher matcher = new ExcludedReferenceMatcher(
+            Arrays.asList(Pattern.compile("wiki:\\Qa.b"), Pattern.compile("\\Q(x)\\E|other"), Pattern.compile("page")));
+
+        assertTrue(matcher.isExcluded("wiki:a.b"));
+        assertFalse(matcher.isExcluded("wiki:axb"));
+        assertTrue(matcher.isExcluded("(x)"));
+        assertTrue(matcher.isExcluded("other"));
+        assertTrue(matcher.isExcluded("page"));
+    }
+
+    @Test
+    public void isMatching()
+    {
+        ExcludedReferenceMatcher matcher =
+            new ExcludedReferenceMatcher(Arrays.asList(Pattern.compile("page"), Pattern.compile("other")));
+
+        assertTrue(matcher.isMatching(matcher.getPatterns()));
+        assertTrue(matcher.isMatching(Arrays.asList(Pattern.compile("page"), Pattern.compile("other"))));
+        assertFalse(matcher.isMatching(Arrays.asList(Pattern.compile("page"))));
+        assertFalse(matcher.isMatching(Arrays.asList(Pattern.compile("other"), Pattern.compile("page"))));
+        assertFalse(matcher.isMatching(
+            Arrays.asList(Pattern.compile("page"), Pattern.compile("other", Pattern.CASE_INSENSITIVE))));
+    }
+
+    @Test
+    public void isExcludedWhenNoPatterns()
+    {
+        assertFalse(new ExcludedReferenceMatcher(Collections.emptyList()).isExcluded("page"));
+    }
+}
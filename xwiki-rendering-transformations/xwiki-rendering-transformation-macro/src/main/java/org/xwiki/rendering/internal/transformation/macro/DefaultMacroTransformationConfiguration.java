@@ -42,6 +42,16 @@ public class DefaultMacroTransformationConfiguration implements MacroTransformat
      */
     private Properties macroCategories = new Properties();
 
+    /**
+     * @see #getMacroResultCacheSize()
+     */
+    private int macroResultCacheSize = 1000;
+
+    /**
+     * @see #getMacroResultCacheMaxBlocks()
+     */
+    private long macroResultCacheMaxBlocks = 100000;
+
     @Override
     public Properties getCategories()
     {
@@ -58,4 +68,36 @@ public void addCategory(MacroId macroId, String category)
         // to work even without a configuration store.
         this.macroCategories.setProperty(macroId.toString(), category);
     }
+
+    @Override
+    public int getMacroResultCacheSize()
+    {
+        return this.macroResultCacheSize;
+    }
+
+    /**
+     * @param macroResultCacheSize the maximum number of results of cacheable macros kept in memory, 0 to disable the
+     *            cache
+     * @since 10.0RC1
+     */
+    public void setMacroResultCacheSize(int macroResultCacheSize)
+    {
+        this.macroResultCacheSize = macroResultCacheSize;
+    }
+
+    @Override
+    public long getMacroResultCacheMaxBlocks()
+    {
+        return this.macroResultCacheMaxBlocks;
+    }
+
+    /**
+     * @param macroResultCacheMaxBlocks the maximum total number of blocks of the results of cacheable macros kept in
+     *            memory, 0 to disable the cache
+     * @since 10.0RC1
+     */
+    public void setMacroResultCacheMaxBlocks(long macroResultCacheMaxBlocks)
+    {
+        this.macroResultCacheMaxBlocks = macroResultCacheMaxBlocks;
+    }
 }
@@ -56,12 +56,16 @@ public MacroErrorManager(ErrorBlockGenerator errorBlockGenerator)
      *        showing to the user that macro has failed
      * @param message the message to display to the user in place of the macro result
      * @param description the long description of the error to display to the user in place of the macro result
+     * @return the block which replaced the macro
      */
-    public void generateError(MacroBlock macroToReplace, String message, String description)
+    public Block generateError(MacroBlock macroToReplace, String message, String description)
     {
         List<Block> errorBlocks =
             this.errorBlockGenerator.generateErrorBlocks(message, description, macroToReplace.isInline());
-        macroToReplace.getParent().replaceChild(wrapInMacroMarker(macroToReplace, errorBlocks), macroToReplace);
+        Block errorBlock = wrapInMacroMarker(macroToReplace, errorBlocks);
+        macroToReplace.getParent().replaceChild(errorBlock, macroToReplace);
+
+        return errorBlock;
     }
 
     /**
@@ -71,12 +75,16 @@ public void generateError(MacroBlock macroToReplace, String message, String desc
      *        showing to the user that macro has failed
      * @param message the message to display to the user in place of the macro result
      * @param throwable the exception for the failed macro execution to display to the user in place of the macro result
+     * @return the block which replaced the macro
      */
-    public void generateError(MacroBlock macroToReplace, String message, Throwable throwable)
+    public Block generateError(MacroBlock macroToReplace, String message, Throwable throwable)
     {
         List<Block> errorBlocks =
             this.errorBlockGenerator.generateErrorBlocks(message, throwable, macroToReplace.isInline());
-        macroToReplace.getParent().replaceChild(wrapInMacroMarker(macroToReplace, errorBlocks), macroToReplace);
+        Block errorBlock = wrapInMacroMarker(macroToReplace, errorBlocks);
+        macroToReplace.getParent().replaceChild(errorBlock, macroToReplace);
+
+        return errorBlock;
     }
 
     /**
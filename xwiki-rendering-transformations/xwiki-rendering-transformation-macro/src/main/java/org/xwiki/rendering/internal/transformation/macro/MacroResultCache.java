@@ -0,0 +1,303 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.CompositeBlock;
+import org.xwiki.rendering.macro.Macro;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Bounded cache of the blocks produced by cacheable macros (see
+ * {@link org.xwiki.rendering.macro.descriptor.MacroDescriptor#isCacheable()}), the least recently used results being
+ * evicted first.
+ * <p>
+ * Both the number of results and their total number of blocks (including the descendants of the blocks returned by the
+ * macros) are bounded, so that a few very large results can't fill the memory. A result which has more blocks than the
+ * whole cache can hold is not cached.
+ * <p>
+ * The cache keeps its own copy of the results and returns a new copy for each hit since the blocks inserted in a
+ * document are modified by the following transformations.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class MacroResultCache
+{
+    /**
+     * Identify a macro call: everything the result of a cacheable macro depends on.
+     */
+    public static final class Key
+    {
+        /**
+         * Weak reference since the cache must not prevent an unregistered macro from being garbage collected.
+         */
+        private final Reference<Macro<?>> macro;
+
+        /**
+         * Weak reference since the cache must not prevent a component manager (of a wiki, a user, etc.) from being
+         * garbage collected.
+         */
+        private final Reference<ComponentManager> componentManager;
+
+        private final String id;
+
+        private final Syntax syntax;
+
+        private final Map<String, String> parameters;
+
+        private final String content;
+
+        private final boolean inline;
+
+        private final boolean restricted;
+
+        private final int hashCode;
+
+        /**
+         * @param macro the macro component executed for the macro call, which identifies the macro implementation and
+         *            the component manager in which it is registered (a macro registered again is a new instance)
+         * @param componentManager the component manager in which the macro has been looked up, since the same macro
+         *            can produce different results depending on the components available to it
+         * @param id the id of the macro
+         * @param syntax the syntax in which the macro content is written
+         * @param parameters the parameters of the macro
+         * @param content the content of the macro
+         * @param inline true if the macro is executed in inline mode
+         * @param restricted true if the macro is executed in a restricted transformation
+         */
+        public Key(Macro<?> macro, ComponentManager componentManager, String id, Syntax syntax,
+            Map<String, String> parameters, String content, boolean inline, boolean restricted)
+        {
+            this.macro = new WeakReference<Macro<?>>(macro);
+            this.componentManager = new WeakReference<>(componentManager);
+            this.id = id;
+            this.syntax = syntax;
+            // Copy the parameters since the ones of the macro block can be modified
+            this.parameters = new HashMap<>(parameters);
+            this.content = content;
+            this.inline = inline;
+            this.restricted = restricted;
+            // The macro and the component manager are compared by identity
+            this.hashCode = Objects.hash(System.identityHashCode(macro), System.identityHashCode(componentManager),
+                this.id, this.syntax, this.parameters, this.content, this.inline, this.restricted);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == this) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+
+            return this.hashCode == other.hashCode && this.inline == other.inline
+                && this.restricted == other.restricted && isSame(this.macro, other.macro)
+                && isSame(this.componentManager, other.componentManager) && Objects.equals(this.id, other.id)
+                && Objects.equals(this.syntax, other.syntax) && Objects.equals(this.content, other.content)
+                && this.parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+
+        /**
+         * @param reference the first reference
+         * @param otherReference the second reference
+         * @return true if both references point to the same object, which has not been garbage collected
+         */
+        private static boolean isSame(Reference<?> reference, Reference<?> otherReference)
+        {
+            Object referent = reference.get();
+
+            return referent != null && referent == otherReference.get();
+        }
+    }
+
+    /**
+     * A cached result and its number of blocks.
+     */
+    private static final class CachedResult
+    {
+        /**
+         * The result, wrapped in a {@link CompositeBlock} so that the cached blocks don't keep a reference to the
+         * document in which they've been produced.
+         */
+        private final Block result;
+
+        private final long blockCount;
+
+        CachedResult(Block result, long blockCount)
+        {
+            this.result = result;
+            this.blockCount = blockCount;
+        }
+    }
+
+    private final int maxSize;
+
+    private final long maxBlocks;
+
+    /**
+     * The results, in access order so that the least recently used ones come first.
+     */
+    private final Map<Key, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The total number of blocks of the cached results.
+     */
+    private long blockCount;
+
+    /**
+     * @param maxSize the maximum number of results to keep, 0 to not keep anything
+     * @param maxBlocks the maximum total number of blocks of the results to keep, including the descendants of the
+     *            blocks returned by the macros, 0 to not keep anything
+     */
+    public MacroResultCache(int maxSize, long maxBlocks)
+    {
+        this.maxSize = maxSize;
+        this.maxBlocks = maxBlocks;
+    }
+
+    /**
+     * @return true if results are kept
+     */
+    public boolean isEnabled()
+    {
+        return this.maxSize > 0 && this.maxBlocks > 0;
+    }
+
+    /**
+     * @param key the macro call
+     * @return a copy of the result of the macro call or {@code null} if it's not in the cache
+     */
+    public List<Block> get(Key key)
+    {
+        CachedResult cachedResult;
+        synchronized (this.results) {
+            cachedResult = this.results.get(key);
+        }
+
+        return cachedResult != null ? cachedResult.result.clone().getChildren() : null;
+    }
+
+    /**
+     * @param key the macro call
+     * @param blocks the result of the macro call, copied before being stored; it's not stored if it has more blocks
+     *            than the cache can hold
+     */
+    public void put(Key key, List<Block> blocks)
+    {
+        if (isEnabled()) {
+            long resultBlockCount = countBlocks(blocks);
+            if (resultBlockCount > this.maxBlocks) {
+                return;
+            }
+
+            List<Block> clonedBlocks = new ArrayList<>(blocks.size());
+            for (Block block : blocks) {
+                clonedBlocks.add(block.clone());
+            }
+            CachedResult cachedResult = new CachedResult(new CompositeBlock(clonedBlocks), resultBlockCount);
+
+            synchronized (this.results) {
+                CachedResult previousResult = this.results.put(key, cachedResult);
+                if (previousResult != null) {
+                    this.blockCount -= previousResult.blockCount;
+                }
+                this.blockCount += resultBlockCount;
+
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Remove the least recently used results until the cache fits in its bounds.
+     */
+    private void evict()
+    {
+        Iterator<CachedResult> iterator = this.results.values().iterator();
+        while (this.results.size() > this.maxSize || this.blockCount > this.maxBlocks) {
+            this.blockCount -= iterator.next().blockCount;
+            iterator.remove();
+        }
+    }
+
+    private static long countBlocks(List<Block> blocks)
+    {
+        long count = blocks.size();
+        for (Block block : blocks) {
+            count += countBlocks(block.getChildren());
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the total number of blocks of the results in the cache
+     */
+    public long getBlockCount()
+    {
+        synchronized (this.results) {
+            return this.blockCount;
+        }
+    }
+
+    /**
+     * @return the number of results in the cache
+     */
+    public int size()
+    {
+        synchronized (this.results) {
+            return this.results.size();
+        }
+    }
+
+    /**
+     * Remove all the results from the cache.
+     */
+    public void clear()
+    {
+        synchronized (this.results) {
+            this.results.clear();
+            this.blockCount = 0;
+        }
+    }
+}
@@ -19,36 +19,52 @@
  */
 package org.xwiki.rendering.internal.transformation.macro;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
+import javax.validation.Validation;
+import javax.validation.ValidationException;
+import javax.validation.Validator;
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.properties.BeanManager;
+import org.xwiki.properties.ConverterManager;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MacroBlock;
 import org.xwiki.rendering.block.MacroMarkerBlock;
 import org.xwiki.rendering.block.match.BlockMatcher;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
 import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
 import org.xwiki.rendering.macro.Macro;
+import org.xwiki.rendering.macro.MacroContentParser;
+import org.xwiki.rendering.macro.MacroExecutionException;
 import org.xwiki.rendering.macro.MacroId;
 import org.xwiki.rendering.macro.MacroLookupException;
 import org.xwiki.rendering.macro.MacroManager;
 import org.xwiki.rendering.macro.MacroNotFoundException;
+import org.xwiki.rendering.macro.descriptor.MacroDescriptor;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.AbstractTransformation;
+import org.xwiki.rendering.transformation.DocumentOutline;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.TransformationBudget;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
+import org.xwiki.rendering.transformation.macro.MacroTransformationConfiguration;
 import org.xwiki.rendering.util.ErrorBlockGenerator;
 
 /**
@@ -179,6 +195,12 @@ public boolean match(Block block)
     @Inject
     private BeanManager beanManager;
 
+    /**
+     * Used to convert macro parameters values to the type of the macros parameters classes properties.
+     */
+    @Inject
+    private ConverterManager converterManager;
+
     /**
      * Used to updated the rendering context.
      */
@@ -194,15 +216,65 @@ public boolean match(Block block)
     @Inject
     private ErrorBlockGenerator errorBlockGenerator;
 
+    /**
+     * Used to report the duration of macro executions.
+     */
+    @Inject
+    private RenderingMetrics metrics;
+
+    /**
+     * Used to get the size of the macro result cache.
+     */
+    @Inject
+    private MacroTransformationConfiguration configuration;
+
+    /**
+     * Used to find the syntax of the content of cacheable macros.
+     */
+    @Inject
+    private MacroContentParser macroContentParser;
+
+    /**
+     * Used to identify the component manager in which the cacheable macros are looked up.
+     */
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
     /**
      * Used to generate Macro error blocks when a Macro fails to execute.
      */
     private MacroErrorManager macroErrorManager;
 
+    /**
+     * Cache the parameters binder of each macro descriptor so that introspecting the macro parameters class is done only
+     * once and not for each macro execution. Weak keys since macros can be unregistered.
+     */
+    private final Map<MacroDescriptor, MacroParametersBinder> parametersBinders =
+        Collections.synchronizedMap(new WeakHashMap<MacroDescriptor, MacroParametersBinder>());
+
+    /**
+     * Used to validate macros parameters beans, {@code null} when no validation provider is available.
+     */
+    private Validator validator;
+
+    /**
+     * The results of the cacheable macros.
+     */
+    private MacroResultCache resultCache;
+
     @Override
     public void initialize() throws InitializationException
     {
         this.macroErrorManager = new MacroErrorManager(this.errorBlockGenerator);
+        this.resultCache = new MacroResultCache(this.configuration.getMacroResultCacheSize(),
+            this.configuration.getMacroResultCacheMaxBlocks());
+
+        try {
+            this.validator = Validation.buildDefaultValidatorFactory().getValidator();
+        } catch (ValidationException e) {
+            this.logger.debug("No validation provider available, macros parameters won't be validated", e);
+        }
     }
 
     @Override
@@ -220,8 +292,16 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
         MacroTransformationContext macroContext = new MacroTransformationContext(context);
         macroContext.setTransformation(this);
 
+        TransformationBudget budget = context.getBudget();
+
         // Counter to prevent infinite recursion if a macro generates the same macro for example.
         for (int recursions = 0; recursions < this.maxRecursions;) {
+            // 0) Stop executing macros when the budget of the transformation is exhausted
+            if (budget != null && budget.isExceeded()) {
+                cancelMacros(rootBlock, budget.getExceededMessage(), context);
+                return;
+            }
+
             // 1) Get highest priority macro
             PriorityMacroBlockMatcher priorityMacroBlockMatcher = new PriorityMacroBlockMatcher(context.getSyntax());
             rootBlock.getFirstBlock(priorityMacroBlockMatcher, Block.Axes.DESCENDANT);
@@ -232,14 +312,15 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
                     if (error.getException() instanceof MacroNotFoundException) {
                         // Macro cannot be found. Generate an error message instead of the macro execution result.
                         // TODO: make it internationalized
-                        this.macroErrorManager.generateError(error.getMacroBlock(),
+                        generateError(error.getMacroBlock(),
                             String.format("Unknown macro: %s.", error.getMacroBlock().getId()), String.format(
                                 "The \"%s\" macro is not in the list of registered macros. Verify the spelling or "
-                                    + "contact your administrator.", error.getMacroBlock().getId()));
+                                    + "contact your administrator.", error.getMacroBlock().getId()), context);
                     } else {
                         // TODO: make it internationalized
-                        this.macroErrorManager.generateError(error.getMacroBlock(),
-                            String.format("Invalid macro: %s", error.getMacroBlock().getId()), error.getException());
+                        generateError(error.getMacroBlock(),
+                            String.format("Invalid macro: %s", error.getMacroBlock().getId()), error.getException(),
+                            context);
                     }
                 }
             }
@@ -264,13 +345,14 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
                         // The macro doesn't support inline mode, raise a warning but continue.
                         // The macro will not be executed and we generate an error message instead of the macro
                         // execution result.
-                        this.macroErrorManager.generateError(macroBlock, String.format(
+                        generateError(macroBlock, String.format(
                             "The [%s] macro is a standalone macro and it cannot be used inline",
                             macroBlock.getId()),
                             "This macro generates standalone content. As a consequence you need to make sure to use a "
                             + "syntax that separates your macro from the content before and after it so that it's on a "
                             + "line by itself. For example in XWiki Syntax 2.0+ this means having 2 newline characters "
-                            + "(a.k.a line breaks) separating your macro from the content before and after it.");
+                            + "(a.k.a line breaks) separating your macro from the content before and after it.",
+                            context);
                        continue;
                     }
                 } else {
@@ -281,27 +363,39 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
                 macroContext.setCurrentMacroBlock(macroBlock);
                 ((MutableRenderingContext) this.renderingContext).setCurrentBlock(macroBlock);
 
-                // Populate and validate macro parameters.
-                Object macroParameters = macro.getDescriptor().getParametersBeanClass().newInstance();
-                try {
-                    this.beanManager.populate(macroParameters, macroBlock.getParameters());
-                } catch (Throwable e) {
-                    // One macro parameter was invalid.
-                    // The macro will not be executed and we generate an error message instead of the macro
-                    // execution result.
-                    this.macroErrorManager.generateError(macroBlock,
-                        String.format("Invalid macro parameters used for the \"%s\" macro", macroBlock.getId()), e);
-                    continue;
-                }
+                // Reuse the result of a previous execution of cacheable macros
+                MacroResultCache.Key cacheKey = getCacheKey(macro, macroBlock, macroContext);
+                newBlocks = cacheKey != null ? getCachedResult(cacheKey, macroContext) : null;
+
+                if (newBlocks == null) {
+                    // Populate and validate macro parameters.
+                    MacroParametersBinder parametersBinder = getParametersBinder(macro.getDescriptor());
+                    Object macroParameters;
+                    try {
+                        macroParameters = parametersBinder.bind(macroBlock.getParameters());
+                    } catch (Throwable e) {
+                        // One macro parameter was invalid.
+                        // The macro will not be executed and we generate an error message instead of the macro
+                        // execution result.
+                        generateError(macroBlock, String.format(
+                            "Invalid macro parameters used for the \"%s\" macro", macroBlock.getId()), e, context);
+                        continue;
+                    }
+
+                    newBlocks = execute(macro, macroParameters, macroBlock, macroContext);
 
-                newBlocks = ((Macro) macro).execute(macroParameters, macroBlock.getContent(), macroContext);
+                    // The macro can decide during its execution that its result should not be reused
+                    if (cacheKey != null && newBlocks != null && macroContext.isCacheable()) {
+                        this.resultCache.put(cacheKey, newBlocks);
+                    }
+                }
             } catch (Throwable e) {
                 // The Macro failed to execute.
                 // The macro will not be executed and we generate an error message instead of the macro
                 // execution result.
                 // Note: We catch any Exception because we want to never break the whole rendering.
-                this.macroErrorManager.generateError(macroBlock,
-                    String.format("Failed to execute the [%s] macro", macroBlock.getId()), e);
+                generateError(macroBlock, String.format("Failed to execute the [%s] macro", macroBlock.getId()), e,
+                    context);
                 continue;
             } finally {
                 ((MutableRenderingContext) this.renderingContext).setCurrentBlock(null);
@@ -315,12 +409,170 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
             // 5) Replace the MacroBlock by the Blocks generated by the execution of the Macro
             macroBlock.getParent().replaceChild(resultBlock, macroBlock);
 
+            // 6) Keep the outline of the document up to date without traversing it again
+            updateOutline(macroBlock, resultBlock, context);
+
             if (incrementRecursions) {
                 ++recursions;
             }
         }
     }
 
+    private List<Block> execute(Macro<?> macro, Object macroParameters, MacroBlock macroBlock,
+        MacroTransformationContext macroContext) throws MacroExecutionException
+    {
+        long start = this.metrics != null && this.metrics.isEnabled() ? System.nanoTime() : 0;
+        List<Block> newBlocks = null;
+        Throwable error = null;
+
+        try {
+            newBlocks = ((Macro) macro).execute(macroParameters, macroBlock.getContent(), macroContext);
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            if (start != 0) {
+                this.metrics.onMacroExecution(macroBlock.getId(), macroContext.getTransformationContext(),
+                    System.nanoTime() - start, error);
+            }
+
+            TransformationBudget budget = macroContext.getTransformationContext().getBudget();
+            if (budget != null) {
+                budget.addMacroExecution(
+                    newBlocks != null && budget.isCountingGeneratedBlocks() ? countBlocks(newBlocks) : 0);
+            }
+        }
+
+        return newBlocks;
+    }
+
+    /**
+     * @param macro the macro to execute
+     * @param macroBlock the macro block to execute
+     * @param macroContext the macro execution context
+     * @return the key of the macro result in the cache or {@code null} if the macro result should not be cached
+     */
+    private MacroResultCache.Key getCacheKey(Macro<?> macro, MacroBlock macroBlock,
+        MacroTransformationContext macroContext)
+    {
+        MacroResultCache.Key key = null;
+
+        if (this.resultCache.isEnabled() && macro.getDescriptor().isCacheable()) {
+            key = new MacroResultCache.Key(macro, this.componentManagerProvider.get(), macroBlock.getId(),
+                this.macroContentParser.getCurrentSyntax(macroContext), macroBlock.getParameters(),
+                macroBlock.getContent(), macroContext.isInline(),
+                macroContext.getTransformationContext().isRestricted());
+        }
+
+        macroContext.setCacheable(key != null);
+
+        return key;
+    }
+
+    private List<Block> getCachedResult(MacroResultCache.Key key, MacroTransformationContext macroContext)
+    {
+        List<Block> blocks = this.resultCache.get(key);
+
+        // Count the reused result as a macro execution so that the budget doesn't depend on the content of the cache
+        TransformationBudget budget = macroContext.getTransformationContext().getBudget();
+        if (blocks != null && budget != null) {
+            budget.addMacroExecution(budget.isCountingGeneratedBlocks() ? countBlocks(blocks) : 0);
+        }
+
+        return blocks;
+    }
+
+    private long countBlocks(List<Block> blocks)
+    {
+        long count = blocks.size();
+        for (Block block : blocks) {
+            count += countBlocks(block.getChildren());
+        }
+
+        return count;
+    }
+
+    /**
+     * Replace all the macros which have not been executed yet by an error.
+     *
+     * @param rootBlock the block in which to look for the macros
+     * @param reason the reason why the macros are not executed
+     * @param context the context of the transformation
+     */
+    private void cancelMacros(Block rootBlock, String reason, TransformationContext context)
+    {
+        List<MacroBlock> macroBlocks =
+            rootBlock.getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT);
+        for (MacroBlock macroBlock : macroBlocks) {
+            // TODO: make it internationalized
+            generateError(macroBlock, String.format("The [%s] macro has not been executed", macroBlock.getId()),
+                reason + " The resources allocated to the transformation of this content have been exhausted.",
+                context);
+        }
+    }
+
+    /**
+     * Replace a macro by an error and take the error into account in the outline of the document.
+     *
+     * @param macroBlock the macro which failed to execute
+     * @param message the message to display to the user in place of the macro result
+     * @param description the long description of the error to display to the user in place of the macro result
+     * @param context the context of the transformation
+     */
+    private void generateError(MacroBlock macroBlock, String message, String description,
+        TransformationContext context)
+    {
+        updateOutline(macroBlock, this.macroErrorManager.generateError(macroBlock, message, description), context);
+    }
+
+    /**
+     * Replace a macro by an error and take the error into account in the outline of the document.
+     *
+     * @param macroBlock the macro which failed to execute
+     * @param message the message to display to the user in place of the macro result
+     * @param throwable the exception for the failed macro execution to display to the user in place of the macro
+     *        result
+     * @param context the context of the transformation
+     */
+    private void generateError(MacroBlock macroBlock, String message, Throwable throwable,
+        TransformationContext context)
+    {
+        updateOutline(macroBlock, this.macroErrorManager.generateError(macroBlock, message, throwable), context);
+    }
+
+    /**
+     * @param macroBlock the macro which has been replaced
+     * @param resultBlock the block which replaced the macro
+     * @param context the context of the transformation, holding the outline of the document
+     */
+    private void updateOutline(MacroBlock macroBlock, Block resultBlock, TransformationContext context)
+    {
+        DocumentOutline outline = context.getOutline();
+        if (outline != null) {
+            outline.update(macroBlock, resultBlock);
+        }
+    }
+
+    /**
+     * @param descriptor the descriptor of the macro
+     * @return the binder to use to create the macro parameters bean
+     * @throws ReflectiveOperationException when the macro parameters class cannot be instantiated or populated
+     */
+    private MacroParametersBinder getParametersBinder(MacroDescriptor descriptor) throws ReflectiveOperationException
+    {
+        MacroParametersBinder binder = this.parametersBinders.get(descriptor);
+
+        // Also make sure the descriptor did not start to return another parameters class
+        if (binder == null || binder.getBeanClass() != descriptor.getParametersBeanClass()) {
+            binder = new MacroParametersBinder(
+                this.beanManager.getBeanDescriptor(descriptor.getParametersBeanClass()), this.converterManager,
+                this.validator);
+            this.parametersBinders.put(descriptor, binder);
+        }
+
+        return binder;
+    }
+
     /**
      * Wrap the output of a macro block with a {@link MacroMarkerBlock}.
      *
@@ -29,6 +29,7 @@
 import org.xwiki.rendering.macro.descriptor.ContentDescriptor;
 import org.xwiki.rendering.macro.descriptor.DefaultMacroDescriptor;
 import org.xwiki.rendering.macro.descriptor.MacroDescriptor;
+import org.xwiki.stability.Unstable;
 
 /**
  * Helper to implement Macro, providing some default implementation. We recommend Macro writers to extend this class.
@@ -113,6 +114,11 @@
      */
     private String defaultCategory;
 
+    /**
+     * Whether the result of the macro execution can be cached.
+     */
+    private boolean cacheable;
+
     /**
      * Creates a new {@link Macro} instance.
      *
@@ -188,6 +194,7 @@ public void initialize() throws InitializationException
         DefaultMacroDescriptor descriptor = new DefaultMacroDescriptor(macroId, this.name, this.description,
             this.contentDescriptor, this.beanManager.getBeanDescriptor(this.parametersBeanClass));
         descriptor.setDefaultCategory(this.defaultCategory);
+        descriptor.setCacheable(this.cacheable);
         setDescriptor(descriptor);
     }
 
@@ -245,4 +252,22 @@ protected void setDefaultCategory(String defaultCategory)
             ((AbstractMacroDescriptor) getDescriptor()).setDefaultCategory(defaultCategory);
         }
     }
+
+    /**
+     * Allows sub classes to indicate that the result of the macro execution can be cached (see
+     * {@link MacroDescriptor#isCacheable()}). This method only has an effect if the internal {@link MacroDescriptor} is
+     * of type {@link AbstractMacroDescriptor}.
+     *
+     * @param cacheable true if the result of the macro execution can be cached
+     * @since 10.0RC1
+     */
+    @Unstable
+    protected void setCacheable(boolean cacheable)
+    {
+        this.cacheable = cacheable;
+
+        if (getDescriptor() instanceof AbstractMacroDescriptor) {
+            ((AbstractMacroDescriptor) getDescriptor()).setCacheable(cacheable);
+        }
+    }
 }
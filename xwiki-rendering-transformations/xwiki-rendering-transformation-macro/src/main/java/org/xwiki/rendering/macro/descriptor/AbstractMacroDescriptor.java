@@ -26,6 +26,7 @@
 import org.xwiki.properties.BeanDescriptor;
 import org.xwiki.properties.PropertyDescriptor;
 import org.xwiki.rendering.macro.MacroId;
+import org.xwiki.stability.Unstable;
 
 /**
  * Describe a macro.
@@ -65,6 +66,11 @@ public abstract class AbstractMacroDescriptor implements MacroDescriptor
      */
     private String defaultCategory;
 
+    /**
+     * @see #isCacheable()
+     */
+    private boolean cacheable;
+
     /**
      * A map containing the {@link ParameterDescriptor} for each parameters supported for this macro.
      * <p>
@@ -187,4 +193,27 @@ public void setDefaultCategory(String defaultCategory)
     {
         this.defaultCategory = defaultCategory;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.0RC1
+     */
+    @Override
+    @Unstable
+    public boolean isCacheable()
+    {
+        return this.cacheable;
+    }
+
+    /**
+     * @param cacheable true if the result of the macro execution can be cached
+     * @see MacroDescriptor#isCacheable()
+     * @since 10.0RC1
+     */
+    @Unstable
+    public void setCacheable(boolean cacheable)
+    {
+        this.cacheable = cacheable;
+    }
 }
@@ -22,6 +22,7 @@
 import java.util.Map;
 
 import org.xwiki.rendering.macro.MacroId;
+import org.xwiki.stability.Unstable;
 
 /**
  * Describe a Macro (macro description and macro parameters description).
@@ -81,4 +82,19 @@
      * @since 2.0M3
      */
     String getDefaultCategory();
+
+    /**
+     * A macro is cacheable when the blocks it produces only depend on its id, parameters and content, on the syntax
+     * and inline mode in which it's executed and on whether the transformation is restricted, and not on the rest of
+     * the document or of the environment (current user, date, stored data, etc.). The result of the execution of such
+     * a macro can be reused for all the other calls of the macro with the same id, parameters and content.
+     *
+     * @return true if the result of the macro execution can be cached
+     * @since 10.0RC1
+     */
+    @Unstable
+    default boolean isCacheable()
+    {
+        return false;
+    }
 }
@@ -22,6 +22,7 @@
 import org.xwiki.rendering.block.MacroBlock;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * The context of the macro transformation process. Contains information such as the current XWiki DOM for the parsed
@@ -51,6 +52,11 @@ public class MacroTransformationContext implements Cloneable
      */
     private Transformation transformation;
 
+    /**
+     * See {@link #isCacheable()}.
+     */
+    private boolean cacheable;
+
     /**
      * Constructor.
      */
@@ -111,6 +117,17 @@ public XDOM getXDOM()
         return this.transformationContext.getXDOM();
     }
 
+    /**
+     * @return the outline of the {@link XDOM} of the page currently being transformed
+     * @see TransformationContext#getOutline()
+     * @since 10.0RC1
+     */
+    @Unstable
+    public DocumentOutline getOutline()
+    {
+        return this.transformationContext.getOutline();
+    }
+
     /**
      * @param inline if true then the macro is called in inline mode
      */
@@ -182,6 +199,31 @@ public void setId(String id)
         this.transformationContext.setId(id);
     }
 
+    /**
+     * @param cacheable see {@link #isCacheable()}
+     * @since 10.0RC1
+     */
+    @Unstable
+    public void setCacheable(boolean cacheable)
+    {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Set by the transformation before executing a macro, from
+     * {@link org.xwiki.rendering.macro.descriptor.MacroDescriptor#isCacheable()}. A cacheable macro calls
+     * {@code setCacheable(false)} during its execution when this execution depends on more than its parameters and
+     * content (for example when it executes other macros), so that its result is not reused.
+     *
+     * @return true if the result of the current macro execution can be cached
+     * @since 10.0RC1
+     */
+    @Unstable
+    public boolean isCacheable()
+    {
+        return this.cacheable;
+    }
+
     @Override
     public MacroTransformationContext clone()
     {
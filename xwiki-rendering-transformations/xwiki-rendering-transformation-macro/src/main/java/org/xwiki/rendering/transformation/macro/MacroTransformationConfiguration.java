@@ -22,6 +22,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration properties for the Macro Transformation module.
@@ -42,4 +43,28 @@
      *         descriptor (ie defined by the macro author) will be used
      */
     Properties getCategories();
+
+    /**
+     * @return the maximum number of results of cacheable macros (see
+     *         {@link org.xwiki.rendering.macro.descriptor.MacroDescriptor#isCacheable()}) kept in memory, the least
+     *         recently used results being evicted first; 0 disables the cache
+     * @since 10.0RC1
+     */
+    @Unstable
+    default int getMacroResultCacheSize()
+    {
+        return 1000;
+    }
+
+    /**
+     * @return the maximum total number of blocks of the results of cacheable macros kept in memory, counting the
+     *         descendants of the blocks returned by the macros; the least recently used results are evicted when it's
+     *         reached and a result with more blocks is not cached at all; 0 disables the cache
+     * @since 10.0RC1
+     */
+    @Unstable
+    default long getMacroResultCacheMaxBlocks()
+    {
+        return 100000;
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.properties.BeanManager;
+import org.xwiki.properties.ConverterManager;
+import org.xwiki.properties.PropertyException;
+import org.xwiki.properties.PropertyMandatoryException;
+import org.xwiki.properties.RawProperties;
+import org.xwiki.properties.annotation.PropertyMandatory;
+import org.xwiki.test.ComponentManagerRule;
+import org.xwiki.test.annotation.AllComponents;
+
+/**
+ * Unit tests for {@link MacroParametersBinder}.
+ *
+ * @version $Id$
+ */
+@AllComponents
+public class MacroParametersBinderTest
+{
+    public enum Level
+    {
+        INFO,
+        WARNING
+    }
+
+    public static class TestParameters
+    {
+        private String title;
+
+        private int size;
+
+        private Level level;
+
+        private String name;
+
+        public String getTitle()
+        {
+            return this.title;
+        }
+
+        public void setTitle(String title)
+        {
+            this.title = title;
+        }
+
+        public int getSize()
+        {
+            return this.size;
+        }
+
+        public void setSize(int size)
+        {
+            this.size = size;
+        }
+
+        public Level getLevel()
+        {
+            return this.level;
+        }
+
+        public void setLevel(Level level)
+        {
+            this.level = level;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        @PropertyMandatory
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    public static class TestRawParameters extends TestParameters implements RawProperties
+    {
+        private final Map<String, Object> rawProperties = new HashMap<>();
+
+        @Override
+        public void set(String propertyName, Object value)
+        {
+            this.rawProperties.put(propertyName, value);
+        }
+
+        public Map<String, Object> getRawProperties()
+        {
+            return this.rawProperties;
+        }
+    }
+
+    @Rule
+    public final ComponentManagerRule componentManager = new ComponentManagerRule();
+
+    private BeanManager beanManager;
+
+    private ConverterManager converterManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.beanManager = this.componentManager.getInstance(BeanManager.class);
+        this.converterManager = this.componentManager.getInstance(ConverterManager.class);
+    }
+
+    private MacroParametersBinder createBinder(Class<?> beanClass) throws Exception
+    {
+        return new MacroParametersBinder(this.beanManager.getBeanDescriptor(beanClass), this.converterManager, null);
+    }
+
+    @Test
+    public void bind() throws Exception
+    {
+        MacroParametersBinder binder = createBinder(TestParameters.class);
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("TITLE", "title");
+        parameters.put("size", "42");
+        parameters.put("level", "warning");
+        parameters.put("name", "name");
+        parameters.put("unknown", "value");
+
+        // Bind twice to go through the converted values cache
+        for (int i = 0; i < 2; ++i) {
+            TestParameters bean = (TestParameters) binder.bind(parameters);
+
+            Assert.assertEquals("title", bean.getTitle());
+            Assert.assertEquals(42, bean.getSize());
+            Assert.assertEquals(Level.WARNING, bean.getLevel());
+            Assert.assertEquals("name", bean.getName());
+        }
+    }
+
+    @Test
+    public void bindWithExactNameFirst() throws Exception
+    {
+        MacroParametersBinder binder = createBinder(TestParameters.class);
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("name", "name");
+        parameters.put("title", "exact");
+        parameters.put("Title", "other");
+
+        Assert.assertEquals("exact", ((TestParameters) binder.bind(parameters)).getTitle());
+    }
+
+    @Test
+    public void bindRawProperties() throws Exception
+    {
+        MacroParametersBinder binder = createBinder(TestRawParameters.class);
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("name", "name");
+        parameters.put("Unknown", "value");
+
+        TestRawParameters bean = (TestRawParameters) binder.bind(parameters);
+
+        Assert.assertEquals("name", bean.getName());
+        Assert.assertEquals("value", bean.getRawProperties().get("Unknown"));
+        Assert.assertEquals(1, bean.getRawProperties().size());
+    }
+
+    @Test(expected = PropertyMandatoryException.class)
+    public void bindWithMissingMandatoryParameter() throws Exception
+    {
+        createBinder(TestParameters.class).bind(new HashMap<String, String>());
+    }
+
+    @Test
+    public void bindWithInvalidValue() throws Exception
+    {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("name", "name");
+        parameters.put("size", "notanumber");
+
+        try {
+            createBinder(TestParameters.class).bind(parameters);
+            Assert.fail("Should have thrown a PropertyException");
+        } catch (PropertyException expected) {
+            Assert.assertEquals("Failed to populate property [size]", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SpaceBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.macro.Macro;
+import org.xwiki.rendering.syntax.Syntax;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link MacroResultCache}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class MacroResultCacheTest
+{
+    private final Macro<?> macro = mock(Macro.class);
+
+    private final ComponentManager componentManager = mock(ComponentManager.class);
+
+    private final Map<String, String> parameters = Collections.singletonMap("param", "value");
+
+    private MacroResultCache.Key key(Macro<?> macro, ComponentManager componentManager, String content)
+    {
+        return new MacroResultCache.Key(macro, componentManager, "macro", Syntax.XWIKI_2_1, this.parameters, content,
+            false, false);
+    }
+
+    @Test
+    public void keyEquality()
+    {
+        MacroResultCache.Key key = key(this.macro, this.componentManager, "content");
+
+        Assert.assertEquals(key, key(this.macro, this.componentManager, "content"));
+        Assert.assertEquals(key.hashCode(), key(this.macro, this.componentManager, "content").hashCode());
+        Assert.assertNotEquals(key, key(this.macro, this.componentManager, "other content"));
+        // Same macro id but a different macro component (registered again or for another wiki)
+        Assert.assertNotEquals(key, key(mock(Macro.class), this.componentManager, "content"));
+        // Same macro looked up in another component manager
+        Assert.assertNotEquals(key, key(this.macro, mock(ComponentManager.class), "content"));
+        Assert.assertNotEquals(key, new MacroResultCache.Key(this.macro, this.componentManager, "macro",
+            Syntax.XWIKI_2_1, this.parameters, "content", true, false));
+        Assert.assertNotEquals(key, new MacroResultCache.Key(this.macro, this.componentManager, "macro",
+            Syntax.XWIKI_2_1, this.parameters, "content", false, true));
+    }
+
+    @Test
+    public void getReturnsCopies()
+    {
+        MacroResultCache cache = new MacroResultCache(10, 100);
+        WordBlock word = new WordBlock("word");
+        cache.put(key(this.macro, this.componentManager, "content"), Arrays.<Block>asList(word));
+
+        List<Block> result = cache.get(key(this.macro, this.componentManager, "content"));
+        Assert.assertEquals(Arrays.<Block>asList(word), result);
+        Assert.assertNotSame(word, result.get(0));
+        Assert.assertNotSame(result.get(0), cache.get(key(this.macro, this.componentManager, "content")).get(0));
+        Assert.assertNull(cache.get(key(mock(Macro.class), this.componentManager, "content")));
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyUsedResults()
+    {
+        MacroResultCache cache = new MacroResultCache(2, 100);
+        cache.put(key(this.macro, this.componentManager, "1"), Arrays.<Block>asList(new WordBlock("1")));
+        cache.put(key(this.macro, this.componentManager, "2"), Arrays.<Block>asList(new WordBlock("2")));
+        cache.get(key(this.macro, this.componentManager, "1"));
+        cache.put(key(this.macro, this.componentManager, "3"), Arrays.<Block>asList(new WordBlock("3")));
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(key(this.macro, this.componentManager, "1")));
+        Assert.assertNull(cache.get(key(this.macro, this.componentManager, "2")));
+        Assert.assertNotNull(cache.get(key(this.macro, this.componentManager, "3")));
+    }
+
+    @Test
+    public void disabledCache()
+    {
+        MacroResultCache cache = new MacroResultCache(0, 100);
+        cache.put(key(this.macro, this.componentManager, "content"), Arrays.<Block>asList(new WordBlock("word")));
+
+        Assert.assertFalse(cache.isEnabled());
+        Assert.assertEquals(0, cache.size());
+
+        Assert.assertFalse(new MacroResultCache(10, 0).isEnabled());
+    }
+
+    @Test
+    public void putEvictsResultsToBoundBlocks()
+    {
+        MacroResultCache cache = new MacroResultCache(10, 5);
+        cache.put(key(this.macro, this.componentManager, "1"), Arrays.<Block>asList(new WordBlock("1")));
+        cache.put(key(this.macro, this.componentManager, "2"),
+            Arrays.<Block>asList(new ParagraphBlock(Arrays.<Block>asList(new WordBlock("2")))));
+        Assert.assertEquals(3, cache.getBlockCount());
+
+        // Replacing a result doesn't count its previous blocks
+        cache.put(key(this.macro, this.componentManager, "1"), Arrays.<Block>asList(new WordBlock("1")));
+        Assert.assertEquals(3, cache.getBlockCount());
+
+        cache.put(key(this.macro, this.componentManager, "3"),
+            Arrays.<Block>asList(new WordBlock("3"), new SpaceBlock(), new WordBlock("3")));
+
+        // The least recently used result has been evicted to make room for the new one
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(4, cache.getBlockCount());
+        Assert.assertNull(cache.get(key(this.macro, this.componentManager, "2")));
+        Assert.assertNotNull(cache.get(key(this.macro, this.componentManager, "1")));
+        Assert.assertNotNull(cache.get(key(this.macro, this.componentManager, "3")));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getBlockCount());
+    }
+
+    @Test
+    public void putSkipsResultsLargerThanCache()
+    {
+        MacroResultCache cache = new MacroResultCache(10, 2);
+        cache.put(key(this.macro, this.componentManager, "1"), Arrays.<Block>asList(new WordBlock("1")));
+        cache.put(key(this.macro, this.componentManager, "2"),
+            Arrays.<Block>asList(new WordBlock("2"), new SpaceBlock(), new WordBlock("2")));
+
+        // The large result is not cached and didn't evict the other results
+        Assert.assertNull(cache.get(key(this.macro, this.componentManager, "2")));
+        Assert.assertNotNull(cache.get(key(this.macro, this.componentManager, "1")));
+        Assert.assertEquals(1, cache.getBlockCount());
+    }
+}
@@ -29,18 +29,39 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
+import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
+import org.xwiki.rendering.internal.configuration.DefaultRenderingConfiguration;
+import org.xwiki.rendering.macro.Macro;
+import org.xwiki.rendering.metrics.RenderingMetrics;
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.DocumentOutline;
 import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationBudget;
 import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationManager;
 import org.xwiki.test.ComponentManagerRule;
 import org.xwiki.test.annotation.AllComponents;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 /**
  * Unit tests for {@link MacroTransformation}.
  *
@@ -296,4 +317,147 @@ public void transformNotExistingMacro() throws Exception
         eventBlockRenderer.render(dom, printer);
         Assert.assertEquals(expected, printer.toString());
     }
+
+    /**
+     * Test that the outline of the document is updated with the executed macros.
+     */
+    @Test
+    public void transformUpdatesOutline() throws Exception
+    {
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testnestedmacro", Collections.<String, String>emptyMap(), false),
+            new MacroBlock("notexisting", Collections.<String, String>emptyMap(), false),
+            new MacroBlock("testsimplemacro", Collections.<String, String>emptyMap(), false)));
+
+        TransformationContext context = new TransformationContext(dom, Syntax.XWIKI_2_0);
+        DocumentOutline outline = context.getOutline();
+        Assert.assertEquals(Collections.emptyList(), outline.getBlocks(MacroMarkerBlock.class, dom));
+
+        this.transformation.transform(dom, context);
+
+        Assert.assertEquals(dom.getBlocks(new ClassBlockMatcher(MacroMarkerBlock.class), Block.Axes.DESCENDANT),
+            outline.getBlocks(MacroMarkerBlock.class, dom));
+        Assert.assertEquals(1, outline.getMacroMarkers("notexisting").size());
+    }
+
+    /**
+     * Test that the execution of each macro is reported to the rendering metrics.
+     */
+    @Test
+    public void transformReportsMacroExecutions() throws Exception
+    {
+        RenderingMetrics metrics = mock(RenderingMetrics.class);
+        when(metrics.isEnabled()).thenReturn(true);
+        ReflectionUtils.setFieldValue(this.transformation, "metrics", metrics);
+
+        XDOM dom = new XDOM(Arrays.asList((Block) new MacroBlock("testnestedmacro",
+            Collections.<String, String>emptyMap(), false)));
+
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        verify(metrics).onMacroExecution(eq("testnestedmacro"), any(), anyLong(), isNull());
+        verify(metrics, times(1)).onMacroExecution(eq("testsimplemacro"), any(), anyLong(), isNull());
+    }
+
+    /**
+     * Test that the macros are not executed anymore once the transformation budget is exhausted.
+     */
+    @Test
+    public void transformWithExhaustedBudget() throws Exception
+    {
+        XDOM dom = new XDOM(Arrays.asList((Block) new MacroBlock("testnestedmacro",
+            Collections.<String, String>emptyMap(), false)));
+
+        TransformationBudget budget = new TransformationBudget();
+        budget.setMaxMacroExecutions(1);
+        TransformationContext context = new TransformationContext(dom, Syntax.XWIKI_2_0);
+        context.setBudget(budget);
+
+        this.transformation.transform(dom, context);
+
+        Assert.assertEquals(1, budget.getMacroExecutions());
+        Assert.assertTrue(new MacroErrorManager(null).containsError(dom));
+        Assert.assertTrue(dom.getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT).isEmpty());
+    }
+
+    /**
+     * Test that the macros are replaced by errors when the transformations start with an exhausted budget.
+     */
+    @Test
+    public void performTransformationsWithExhaustedBudget() throws Exception
+    {
+        DefaultRenderingConfiguration configuration =
+            this.componentManager.getInstance(RenderingConfiguration.class);
+        configuration.setTransformationNames(Arrays.asList("macro"));
+
+        XDOM dom = new XDOM(Arrays.asList((Block) new MacroBlock("testsimplemacro",
+            Collections.<String, String>emptyMap(), false)));
+
+        TransformationBudget budget = new TransformationBudget();
+        budget.setMaxMacroExecutions(0);
+        TransformationContext context = new TransformationContext(dom, Syntax.XWIKI_2_0);
+        context.setBudget(budget);
+
+        TransformationManager manager = this.componentManager.getInstance(TransformationManager.class);
+        manager.performTransformations(dom, context);
+
+        Assert.assertEquals(0, budget.getMacroExecutions());
+        Assert.assertTrue(new MacroErrorManager(null).containsError(dom));
+        Assert.assertTrue(dom.getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT).isEmpty());
+    }
+
+    /**
+     * Test that the result of cacheable macros is reused for the macros with the same content.
+     */
+    @Test
+    public void transformCacheableMacros() throws Exception
+    {
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "a", false),
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "b", false),
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "a", false),
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "uncached", false),
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "uncached", false)));
+
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        List<WordBlock> words = dom.getBlocks(new ClassBlockMatcher(WordBlock.class), Block.Axes.DESCENDANT);
+        Assert.assertEquals(5, words.size());
+        Assert.assertEquals("a1", words.get(0).getWord());
+        Assert.assertEquals("b2", words.get(1).getWord());
+        Assert.assertEquals("a1", words.get(2).getWord());
+        Assert.assertEquals("uncached3", words.get(3).getWord());
+        Assert.assertEquals("uncached4", words.get(4).getWord());
+
+        // Each use of the result has its own blocks
+        Assert.assertNotSame(words.get(0), words.get(2));
+        Assert.assertSame(dom.getChildren().get(2), words.get(2).getParent());
+    }
+
+    /**
+     * Test that the cached results of a macro are not reused once the macro has been registered again.
+     */
+    @Test
+    public void transformCacheableMacroRegisteredAgain() throws Exception
+    {
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "b", false),
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "a", false)));
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        DefaultComponentDescriptor<Macro> descriptor = new DefaultComponentDescriptor<Macro>();
+        descriptor.setRoleType(Macro.class);
+        descriptor.setRoleHint("testcacheablemacro");
+        descriptor.setImplementation(TestCacheableMacro.class);
+        this.componentManager.registerComponent(descriptor);
+
+        dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testcacheablemacro", Collections.<String, String>emptyMap(), "a", false)));
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        // Executed by the new macro instance instead of reusing the "a2" result of the previous one
+        List<WordBlock> words = dom.getBlocks(new ClassBlockMatcher(WordBlock.class), Block.Axes.DESCENDANT);
+        Assert.assertEquals(1, words.size());
+        Assert.assertEquals("a1", words.get(0).getWord());
+    }
 }
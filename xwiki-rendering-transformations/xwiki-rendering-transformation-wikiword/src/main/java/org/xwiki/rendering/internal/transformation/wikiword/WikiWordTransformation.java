@@ -19,9 +19,6 @@
  */
 package org.xwiki.rendering.internal.transformation.wikiword;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -47,12 +44,6 @@
 @Singleton
 public class WikiWordTransformation extends AbstractTransformation
 {
-    /**
-     * Regex Pattern to recognize a WikiWord.
-     */
-    private static final Pattern WIKIWORD_PATTERN = Pattern.compile(
-        "\\p{javaUpperCase}+\\p{javaLowerCase}+(\\p{javaUpperCase}\\p{javaLowerCase}*)+");
-
     /**
      * Used to filter protected blocks (code macro marker block, etc).
      */
@@ -62,13 +53,74 @@ public class WikiWordTransformation extends AbstractTransformation
     public void transform(Block block, TransformationContext transformationContext) throws TransformationException
     {
         // Find all Word blocks and for each of them check if they're a wiki word or not
-        for (WordBlock wordBlock : this.filter.getChildrenByType(block, WordBlock.class, true)) {
-            Matcher matcher = WIKIWORD_PATTERN.matcher(wordBlock.getWord());
-            if (matcher.matches()) {
-                ResourceReference linkReference = new DocumentResourceReference(wordBlock.getWord());
-                wordBlock.getParent().replaceChild(new LinkBlock(wordBlock.getChildren(), linkReference, false),
-                    wordBlock);
+        Block child = block.getChildren().isEmpty() ? null : block.getChildren().get(0);
+        while (child != null) {
+            // Get the next sibling before the child is possibly replaced
+            Block nextSibling = child.getNextSibling();
+            if (!this.filter.isProtectedBlock(child)) {
+                if (child instanceof WordBlock) {
+                    WordBlock wordBlock = (WordBlock) child;
+                    if (isWikiWord(wordBlock.getWord())) {
+                        ResourceReference linkReference = new DocumentResourceReference(wordBlock.getWord());
+                        block.replaceChild(new LinkBlock(wordBlock.getChildren(), linkReference, false), wordBlock);
+                    }
+                } else if (!child.getChildren().isEmpty()) {
+                    transform(child, transformationContext);
+                }
+            }
+            child = nextSibling;
+        }
+    }
+
+    /**
+     * Checks if the passed word is a wiki word, i.e. if it matches
+     * {@code \p{javaUpperCase}+\p{javaLowerCase}+(\p{javaUpperCase}\p{javaLowerCase}*)+}. Since the first two
+     * character classes are greedy the match is unambiguous: a run of upper case characters, a run of lower case
+     * characters and then a non empty suite of upper or lower case characters.
+     *
+     * @param word the word to check
+     * @return true if the word is a wiki word
+     */
+    static boolean isWikiWord(String word)
+    {
+        int length = word.length();
+        // Most words are rejected here
+        if (length < 3 || !Character.isUpperCase(word.codePointAt(0))) {
+            return false;
+        }
+
+        int lowerCaseStart = skip(word, 0, true);
+        int index = skip(word, lowerCaseStart, false);
+        if (index == lowerCaseStart || index == length) {
+            return false;
+        }
+        while (index < length) {
+            int codePoint = word.codePointAt(index);
+            if (!Character.isUpperCase(codePoint) && !Character.isLowerCase(codePoint)) {
+                return false;
+            }
+            index += Character.charCount(codePoint);
+        }
+
+        return true;
+    }
+
+    /**
+     * @param word the word to scan
+     * @param start the index where to start
+     * @param upperCase true to skip upper case characters, false to skip lower case characters
+     * @return the index of the first character not in the skipped case
+     */
+    private static int skip(String word, int start, boolean upperCase)
+    {
+        int index = start;
+        while (index < word.length()) {
+            int codePoint = word.codePointAt(index);
+            if (upperCase ? !Character.isUpperCase(codePoint) : !Character.isLowerCase(codePoint)) {
+                break;
             }
+            index += Character.charCount(codePoint);
         }
+        return index;
     }
 }
@@ -102,4 +102,17 @@ public void testWikiWordTransformationIgnoresProtectedContent() throws Exception
         eventBlockRenderer.render(xdom, printer);
         Assert.assertEquals(expected, printer.toString());
     }
+
+    @Test
+    public void isWikiWord()
+    {
+        Assert.assertTrue(WikiWordTransformation.isWikiWord("WikiWord"));
+        Assert.assertTrue(WikiWordTransformation.isWikiWord("XWikiEnterprise"));
+        Assert.assertTrue(WikiWordTransformation.isWikiWord("WikiWORD"));
+        Assert.assertFalse(WikiWordTransformation.isWikiWord("XWiki"));
+        Assert.assertFalse(WikiWordTransformation.isWikiWord("Wiki"));
+        Assert.assertFalse(WikiWordTransformation.isWikiWord("wikiWord"));
+        Assert.assertFalse(WikiWordTransformation.isWikiWord("WikiWord2"));
+        Assert.assertFalse(WikiWordTransformation.isWikiWord("XWIKI"));
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel;
+
+/**
+ * Implemented by the wiki parsers able to split a document into top level blocks which can be parsed independently:
+ * the content starting at a block boundary is parsed exactly as if it was the beginning of a new document.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public interface IWikiBlockSplitter
+{
+    /**
+     * @param text the content of the document
+     * @return the offsets, in increasing order, at which the top level blocks following the first one start
+     * @throws WikiParserException if the content could not be scanned
+     */
+    int[] getBlockBoundaries(String text) throws WikiParserException;
+}
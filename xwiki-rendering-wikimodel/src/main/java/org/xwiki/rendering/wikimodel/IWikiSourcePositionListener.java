@@ -0,0 +1,53 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel;
+
+/**
+ * Receives the position in the parsed content of the top level blocks and of the macros, from the parsers
+ * implementing {@link IWikiSourcePositionParser}. Positions are offsets of characters in the parsed content and are
+ * reported while the events of the {@link IWemListener} are sent, so that they can be associated with them.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public interface IWikiSourcePositionListener
+{
+    /**
+     * Called before the events of a top level block are sent.
+     *
+     * @param offset the offset of the first character of the block, not counting the new lines preceding it
+     */
+    void beginBlock(int offset);
+
+    /**
+     * Called after the events of a top level block have been sent (some events closing the block can be sent later).
+     *
+     * @param offset the offset following the last character of the block, not counting the new lines ending it
+     */
+    void endBlock(int offset);
+
+    /**
+     * Called before the event of a macro is sent, whatever its depth.
+     *
+     * @param beginOffset the offset of the first character of the macro
+     * @param endOffset the offset following the last character of the macro
+     */
+    void onMacro(int beginOffset, int endOffset);
+}
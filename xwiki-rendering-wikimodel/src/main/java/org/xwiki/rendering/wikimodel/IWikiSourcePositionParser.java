@@ -0,0 +1,40 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel;
+
+import java.io.Reader;
+
+/**
+ * Implemented by the wiki parsers able to report the position in the parsed content of the elements they produce.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public interface IWikiSourcePositionParser extends IWikiParser
+{
+    /**
+     * @param reader the content to parse
+     * @param listener the listener receiving the parsing events
+     * @param positionListener the listener receiving the positions of the parsed elements
+     * @throws WikiParserException if the content could not be parsed
+     */
+    void parse(Reader reader, IWemListener listener, IWikiSourcePositionListener positionListener)
+        throws WikiParserException;
+}
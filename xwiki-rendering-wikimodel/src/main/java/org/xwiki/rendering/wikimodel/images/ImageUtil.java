@@ -25,9 +25,12 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 /**
  * Contains utility methods dealing with images like image size definition or
@@ -121,18 +124,36 @@ public static void createThumb(
 
     /**
      * Returns the size (width and height) of an image from the given input
-     * stream. This method closes the given stream.
+     * stream. Only the header of the image is read, the pixels are not
+     * decoded. This method closes the given stream.
      *
      * @param input the input stream with an image
      * @return the size (width and height) of an image from the given input
      *         stream
+     * @throws IOException if the stream does not contain an image in a
+     *         supported format
      */
     public static int[] getImageSize(InputStream input) throws IOException
     {
         try {
-            ImageInputStream imageInput = ImageIO.createImageInputStream(input);
-            BufferedImage image = ImageIO.read(imageInput);
-            return new int[]{image.getWidth(), image.getHeight()};
+            // Only the header is read so there's no need for a file cache
+            ImageInputStream imageInput = new MemoryCacheImageInputStream(input);
+            try {
+                Iterator<ImageReader> readers = ImageIO
+                    .getImageReaders(imageInput);
+                if (!readers.hasNext()) {
+                    throw new IOException("Unsupported image format");
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(imageInput, true, true);
+                    return new int[]{reader.getWidth(0), reader.getHeight(0)};
+                } finally {
+                    reader.dispose();
+                }
+            } finally {
+                imageInput.close();
+            }
         } finally {
             input.close();
         }
@@ -474,4 +474,41 @@ public static String unescape(String str, char escape)
         }
         return buf.toString();
     }
+
+    /**
+     * Checks if the given position starts a new line right after an empty
+     * line, i.e. if it is preceded by two new lines ("\r\n", "\r" or "\n")
+     * and is not itself a new line.
+     *
+     * @param text the text to check
+     * @param offset the position in the text
+     * @return <code>true</code> if the given position follows an empty line
+     *         and does not start another one
+     */
+    public static boolean isAfterEmptyLine(CharSequence text, int offset)
+    {
+        if (offset <= 0 || offset >= text.length()) {
+            return false;
+        }
+        char ch = text.charAt(offset);
+        if (ch == '\n' || ch == '\r') {
+            return false;
+        }
+        int pos = skipNewLineBackward(text, offset);
+        return pos >= 0 && skipNewLineBackward(text, pos) >= 0;
+    }
+
+    private static int skipNewLineBackward(CharSequence text, int offset)
+    {
+        if (offset <= 0) {
+            return -1;
+        }
+        char ch = text.charAt(offset - 1);
+        if (ch == '\n') {
+            return offset >= 2 && text.charAt(offset - 2) == '\r'
+                ? offset - 2
+                : offset - 1;
+        }
+        return ch == '\r' ? offset - 1 : -1;
+    }
 }
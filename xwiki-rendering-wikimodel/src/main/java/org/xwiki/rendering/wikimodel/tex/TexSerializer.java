@@ -33,9 +33,14 @@
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import org.xwiki.rendering.wikimodel.IWikiPrinter;
 import org.xwiki.rendering.wikimodel.PrintTextListener;
@@ -249,6 +254,10 @@ public static String processString(String g, boolean flag)
 
     private int listDepth = 0;
 
+    private final Map<String, int[]> imageSizes;
+
+    private final Map<String, Future<int[]>> pendingImageSizes = new HashMap<String, Future<int[]>>();
+
     /**
      * @param printer
      */
@@ -257,11 +266,41 @@ public TexSerializer(
         String documentName,
         String wikiFileDownloadBaseUrl,
         String imageTargetFolderPath)
+    {
+        this(
+            printer,
+            documentName,
+            wikiFileDownloadBaseUrl,
+            imageTargetFolderPath,
+            new HashMap<String, int[]>());
+    }
+
+    /**
+     * @param printer the printer receiving the TeX content
+     * @param documentName the name of the serialized document
+     * @param wikiFileDownloadBaseUrl the base URL used to download the images
+     *        missing from the image target folder
+     * @param imageTargetFolderPath the folder containing the images
+     * @param imageSizes the cache of the image sizes (as stored in the images,
+     *        before being limited by the maximal image width and height),
+     *        keyed by document name and image reference; it can be shared
+     *        between serializers so that each image is probed only once, in
+     *        which case it has to be thread safe if the serializers are used
+     *        from different threads
+     * @since 10.0RC1
+     */
+    public TexSerializer(
+        IWikiPrinter printer,
+        String documentName,
+        String wikiFileDownloadBaseUrl,
+        String imageTargetFolderPath,
+        Map<String, int[]> imageSizes)
     {
         super(printer);
         this.documentName = documentName;
         this.imageTargetFolder = imageTargetFolderPath;
         this.wikiFileDownloadBaseUrl = wikiFileDownloadBaseUrl;
+        this.imageSizes = imageSizes;
     }
 
     @Override
@@ -449,6 +488,11 @@ public void endTableRow(WikiParameters params)
      * reference. If there is no image was found then this method should return
      * null. This method is used to define dimensions of images used in the
      * output. Sould be overloaded in sublcasses.
+     * <p>
+     * When {@link #prefetchImageSizes(Collection, Executor)} is used this
+     * method is called from the threads of the passed executor, concurrently
+     * for different references, so overriding implementations have to be
+     * thread safe.
      *
      * @param ref the image reference
      * @return the input stream with an image
@@ -480,26 +524,131 @@ protected InputStream getImageInput(String ref) throws IOException
 
     /**
      * Returns a two-value array with the size of the image defined by the given
-     * url
+     * url, limited by the maximal image width and height. The size is probed
+     * with {@link #getRawImageSize(String)}, which is the method to override in
+     * order to change how the size of the images is determined.
      *
      * @param ref the reference to the image
      * @return a size of an image with the specified url;
      */
     protected int[] getImageSize(String ref)
+    {
+        return scaleImageSize(getRawImageSize(ref));
+    }
+
+    /**
+     * Returns the size of the image defined by the given reference, as stored
+     * in the image (not limited by the maximal image width and height). This
+     * method can be overloaded in subclasses: it is used for the images of the
+     * document, both when they are prefetched and when their size is not
+     * cached yet, and its result is cached. Since it's called from the threads
+     * of the executor passed to {@link #prefetchImageSizes(Collection, Executor)}
+     * it has to be thread safe when it's overridden.
+     *
+     * @param ref the reference to the image
+     * @return the size of the image with the specified reference or
+     *         <code>null</code> if it can't be determined
+     * @since 10.0RC1
+     */
+    protected int[] getRawImageSize(String ref)
     {
         int[] result = null;
         try {
             InputStream input = getImageInput(ref);
             if (input != null) {
-                int maxWidth = getMaxImageWidth();
-                int maxHeight = getMaxImageHeight();
-                return ImageUtil.getImageSize(input, maxWidth, maxHeight);
+                result = ImageUtil.getImageSize(input);
             }
         } catch (Exception e) {
         }
         return result;
     }
 
+    /**
+     * @param size the size of the image as stored in the image
+     * @return the size limited by the maximal image width and height, or
+     *         <code>null</code> if the passed size is <code>null</code>
+     */
+    private int[] scaleImageSize(int[] size)
+    {
+        return size != null ? ImageUtil.getNewSize(
+            size[0],
+            size[1],
+            getMaxImageWidth(),
+            getMaxImageHeight()) : null;
+    }
+
+    /**
+     * Starts fetching and probing the size of the specified images in the
+     * background so that they are ready when the serializer reaches them.
+     * Images whose size is already cached are skipped.
+     * <p>
+     * The sizes are probed with {@link #getRawImageSize(String)}, which reads
+     * the images with {@link #getImageInput(String)} by default, from the
+     * threads of the passed executor, concurrently for different images, so
+     * both have to be thread safe when they're overridden. The serializer itself is not thread
+     * safe and this method has to be called from the thread serializing the
+     * document.
+     *
+     * @param refs the references of the images used in the document
+     * @param executor the executor used to fetch and probe the images
+     * @since 10.0RC1
+     */
+    public void prefetchImageSizes(Collection<String> refs, Executor executor)
+    {
+        for (final String ref : refs) {
+            String key = getImageKey(ref);
+            if (!this.imageSizes.containsKey(key)
+                && !this.pendingImageSizes.containsKey(key))
+            {
+                this.pendingImageSizes.put(
+                    key,
+                    CompletableFuture.supplyAsync(() -> getRawImageSize(ref), executor));
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the image defined by the given reference, from the
+     * cache, from a pending prefetch or by probing the image with
+     * {@link #getRawImageSize(String)}, limited by the maximal image width and
+     * height.
+     *
+     * @param ref the reference to the image
+     * @return a size of an image with the specified reference or
+     *         <code>null</code> if it can't be determined
+     * @since 10.0RC1
+     */
+    protected int[] getCachedImageSize(String ref)
+    {
+        String key = getImageKey(ref);
+        int[] size = this.imageSizes.get(key);
+        if (size == null) {
+            Future<int[]> pending = this.pendingImageSizes.remove(key);
+            if (pending != null) {
+                try {
+                    size = pending.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    LOGGER.error("Failed to get the size of image [{}]", ref, e);
+                }
+            } else {
+                size = getRawImageSize(ref);
+            }
+            if (size != null) {
+                this.imageSizes.put(key, size);
+            }
+        }
+        // The cache keeps the real sizes since it can be shared between
+        // serializers with different maximal image sizes
+        return scaleImageSize(size);
+    }
+
+    private String getImageKey(String ref)
+    {
+        return documentName + "/" + ref;
+    }
+
     /**
      * Returns maximal possible image height. This method can be overloaded in
      * subclasses.
@@ -527,8 +676,6 @@ protected ReferenceHandler newReferenceHandler()
     {
         return new ReferenceHandler(true, true)
         {
-            Map<String, int[]> fImageSizes = new HashMap<String, int[]>();
-
             @Override
             protected void handleImage(
                 String ref,
@@ -547,13 +694,13 @@ protected void handleImage(
                     label = ref.substring(0, ref.length() - 4);
                 }
 
-                int[] size = getImageSize(ref);
+                int[] size = getCachedImageSize(ref);
 
                 println();
                 println("\\begin{figure}");
                 println("\\centering");
 
-                if (size[0] > 400) {
+                if (size != null && size[0] > 400) {
                     println("\\includegraphics[width=0.95\\textwidth]{images/"
                         + ref
                         + "}");
@@ -565,13 +712,6 @@ protected void handleImage(
                 println("\\end{figure}");
                 println();
 
-                if (fImageSizes.containsKey(ref)) {
-                    size = fImageSizes.get(ref);
-                } else {
-                    size = getImageSize(ref);
-                    fImageSizes.put(ref, size);
-                }
-
                 // if (size != null) {
                 // // print("\\begin{figure}[htpb]\n");
                 // String dim = "[bb=0 0 " + size[0] + " " + size[1] + "]";
@@ -19,21 +19,113 @@
  */
 package org.xwiki.rendering.wikimodel.xwiki.xwiki20;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
 
 import org.xwiki.rendering.wikimodel.IWemListener;
-import org.xwiki.rendering.wikimodel.IWikiParser;
+import org.xwiki.rendering.wikimodel.IWikiBlockSplitter;
+import org.xwiki.rendering.wikimodel.IWikiSourcePositionListener;
+import org.xwiki.rendering.wikimodel.IWikiSourcePositionParser;
 import org.xwiki.rendering.wikimodel.WikiParserException;
 import org.xwiki.rendering.wikimodel.impl.WikiScannerContext;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerUtil;
 import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.ParseException;
+import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.SimpleCharStream;
+import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.Token;
+import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.TokenMgrError;
 import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.XWikiScanner;
+import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.XWikiScannerConstants;
+import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki20.javacc.XWikiScannerTokenManager;
 
 /**
  * @version $Id$
  * @since 4.0M1
  */
-public class XWikiParser implements IWikiParser
+public class XWikiParser implements IWikiSourcePositionParser, IWikiBlockSplitter
 {
+    /**
+     * Keeps track of the position in the source since some tokens put back characters on the stream (and thus don't
+     * match the length of their image), and of the offsets of the lines to convert the positions of the tokens.
+     */
+    private static final class PositionCharStream extends SimpleCharStream
+    {
+        private int position;
+
+        private int readLength;
+
+        private char lastChar;
+
+        private int[] lineOffsets = new int[16];
+
+        private int lineCount = 1;
+
+        PositionCharStream(Reader reader)
+        {
+            super(reader);
+
+            // Count a tabulation as a single column so that the column of a token is its offset in the line
+            setTabSize(1);
+        }
+
+        @Override
+        public char readChar() throws IOException
+        {
+            char c = super.readChar();
+            if (this.position == this.readLength) {
+                // Same line breaks as the ones used to compute the line of the tokens
+                if (this.lastChar == '\n' || (this.lastChar == '\r' && c != '\n')) {
+                    if (this.lineCount == this.lineOffsets.length) {
+                        this.lineOffsets = Arrays.copyOf(this.lineOffsets, this.lineCount * 2);
+                    }
+                    this.lineOffsets[this.lineCount++] = this.position;
+                }
+                this.lastChar = c;
+                ++this.readLength;
+            }
+            ++this.position;
+            return c;
+        }
+
+        int getBeginOffset(Token token)
+        {
+            return this.lineOffsets[token.beginLine - 1] + token.beginColumn - 1;
+        }
+
+        int getEndOffset(Token token)
+        {
+            return this.lineOffsets[token.endLine - 1] + token.endColumn;
+        }
+
+        int getContentBeginOffset(Token token)
+        {
+            // Ignore the new lines (and spaces) starting the token (e.g. a header following a paragraph)
+            int offset = getBeginOffset(token);
+            for (int i = 0; i < token.image.length() && Character.isWhitespace(token.image.charAt(i)); ++i) {
+                ++offset;
+            }
+            return offset;
+        }
+
+        int getContentEndOffset(Token token)
+        {
+            // Ignore the new lines (and spaces) ending the token
+            int offset = getEndOffset(token);
+            for (int i = token.image.length() - 1; i >= 0 && Character.isWhitespace(token.image.charAt(i)); --i) {
+                --offset;
+            }
+            return offset;
+        }
+
+        @Override
+        public void backup(int amount)
+        {
+            super.backup(amount);
+            this.position -= amount;
+        }
+    }
+
     public XWikiParser()
     {
         super();
@@ -54,4 +146,65 @@ public void parse(Reader reader, IWemListener listener)
             throw new WikiParserException(e);
         }
     }
+
+    @Override
+    public void parse(Reader reader, IWemListener listener, final IWikiSourcePositionListener positionListener)
+        throws WikiParserException
+    {
+        final PositionCharStream stream = new PositionCharStream(reader);
+        XWikiScanner scanner = new XWikiScanner(new XWikiScannerTokenManager(stream))
+        {
+            @Override
+            protected void beginTopLevelBlock(Token first)
+            {
+                positionListener.beginBlock(stream.getContentBeginOffset(first));
+            }
+
+            @Override
+            protected void endTopLevelBlock(Token last)
+            {
+                positionListener.endBlock(stream.getContentEndOffset(last));
+            }
+
+            @Override
+            protected void onMacroTokens(Token first, Token last)
+            {
+                positionListener.onMacro(stream.getBeginOffset(first), stream.getEndOffset(last));
+            }
+        };
+
+        try {
+            scanner.parse(new WikiScannerContext(listener));
+        } catch (ParseException e) {
+            throw new WikiParserException(e);
+        }
+    }
+
+    @Override
+    public int[] getBlockBoundaries(String text) throws WikiParserException
+    {
+        // Only the scanner is needed: a top level block can be parsed on its own when it starts after an empty line
+        // and the scanner is back to the state it has at the beginning of a document
+        PositionCharStream stream = new PositionCharStream(new StringReader(text));
+        XWikiScannerTokenManager tokenManager = new XWikiScannerTokenManager(stream);
+
+        int[] boundaries = new int[16];
+        int count = 0;
+        try {
+            for (Token token = tokenManager.getNextToken(); token.kind != XWikiScannerConstants.EOF;
+                token = tokenManager.getNextToken()) {
+                if (tokenManager.isAtTopLevelLineStart()
+                    && WikiScannerUtil.isAfterEmptyLine(text, stream.position)) {
+                    if (count == boundaries.length) {
+                        boundaries = Arrays.copyOf(boundaries, count * 2);
+                    }
+                    boundaries[count++] = stream.position;
+                }
+            }
+        } catch (TokenMgrError e) {
+            throw new WikiParserException(e);
+        }
+
+        return Arrays.copyOf(boundaries, count);
+    }
 }
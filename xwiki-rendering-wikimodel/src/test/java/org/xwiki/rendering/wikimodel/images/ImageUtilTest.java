@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel.images;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validate {@link ImageUtil}.
+ *
+ * @version $Id$
+ */
+public class ImageUtilTest
+{
+    private ByteArrayInputStream createImage(String format, int width, int height) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, output);
+
+        return new ByteArrayInputStream(output.toByteArray());
+    }
+
+    @Test
+    public void getImageSize() throws IOException
+    {
+        Assert.assertArrayEquals(new int[] { 30, 20 }, ImageUtil.getImageSize(createImage("png", 30, 20)));
+        Assert.assertArrayEquals(new int[] { 12, 40 }, ImageUtil.getImageSize(createImage("jpg", 12, 40)));
+        Assert.assertArrayEquals(new int[] { 7, 9 }, ImageUtil.getImageSize(createImage("gif", 7, 9)));
+    }
+
+    @Test
+    public void getImageSizeWithMaximumSize() throws IOException
+    {
+        Assert.assertArrayEquals(new int[] { 100, 50 }, ImageUtil.getImageSize(createImage("png", 400, 200), 100, 100));
+    }
+
+    @Test(expected = IOException.class)
+    public void getImageSizeWithUnsupportedFormat() throws IOException
+    {
+        ImageUtil.getImageSize(new ByteArrayInputStream("not an image".getBytes()));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel.tex;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.rendering.wikimodel.WikiPrinter;
+
+/**
+ * Validate the image size cache of {@link TexSerializer}.
+ *
+ * @version $Id$
+ * @since 10.0RC1
+ */
+public class TexSerializerTest
+{
+    /**
+     * Serializer reading images generated in memory and counting the reads.
+     */
+    private static class TestTexSerializer extends TexSerializer
+    {
+        private final Map<String, AtomicInteger> reads = new ConcurrentHashMap<String, AtomicInteger>();
+
+        private final int maxImageSize;
+
+        TestTexSerializer(Map<String, int[]> imageSizes, int maxImageSize)
+        {
+            super(new WikiPrinter(), "Document", null, null, imageSizes);
+
+            this.maxImageSize = maxImageSize;
+        }
+
+        @Override
+        protected InputStream getImageInput(String ref) throws IOException
+        {
+            this.reads.computeIfAbsent(ref, key -> new AtomicInteger()).incrementAndGet();
+            if (ref.startsWith("missing")) {
+                return null;
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", output);
+            return new ByteArrayInputStream(output.toByteArray());
+        }
+
+        @Override
+        protected int getMaxImageWidth()
+        {
+            return this.maxImageSize;
+        }
+
+        @Override
+        protected int getMaxImageHeight()
+        {
+            return this.maxImageSize;
+        }
+
+        int getReads(String ref)
+        {
+            AtomicInteger count = this.reads.get(ref);
+            return count != null ? count.get() : 0;
+        }
+    }
+
+    @Test
+    public void getCachedImageSizeReadsImageOnce()
+    {
+        TestTexSerializer serializer = new TestTexSerializer(new HashMap<String, int[]>(), 2000);
+
+        Assert.assertArrayEquals(new int[] { 400, 200 }, serializer.getCachedImageSize("image.png"));
+        Assert.assertArrayEquals(new int[] { 400, 200 }, serializer.getCachedImageSize("image.png"));
+        Assert.assertEquals(1, serializer.getReads("image.png"));
+    }
+
+    @Test
+    public void getCachedImageSizeWhenImageIsMissing()
+    {
+        TestTexSerializer serializer = new TestTexSerializer(new HashMap<String, int[]>(), 2000);
+
+        Assert.assertNull(serializer.getCachedImageSize("missing.png"));
+    }
+
+    @Test
+    public void getCachedImageSizeScalesSharedSizes()
+    {
+        Map<String, int[]> imageSizes = new HashMap<String, int[]>();
+        TestTexSerializer serializer = new TestTexSerializer(imageSizes, 2000);
+        TestTexSerializer smallSerializer = new TestTexSerializer(imageSizes, 100);
+
+        Assert.assertArrayEquals(new int[] { 400, 200 }, serializer.getCachedImageSize("image.png"));
+        // The cached size is limited by the maximal size of each serializer
+        Assert.assertArrayEquals(new int[] { 100, 50 }, smallSerializer.getCachedImageSize("image.png"));
+        Assert.assertEquals(0, smallSerializer.getReads("image.png"));
+
+        Assert.assertArrayEquals(new int[] { 100, 50 }, new TestTexSerializer(new HashMap<String, int[]>(), 100)
+            .getCachedImageSize("image.png"));
+    }
+
+    @Test
+    public void prefetchImageSizes()
+    {
+        TestTexSerializer serializer = new TestTexSerializer(new HashMap<String, int[]>(), 100);
+        serializer.getCachedImageSize("cached.png");
+
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        serializer.prefetchImageSizes(Arrays.asList("cached.png", "image1.png", "image2.png", "image1.png"),
+            tasks::add);
+
+        // Cached and duplicate images are not fetched again
+        Assert.assertEquals(2, tasks.size());
+        Assert.assertEquals(0, serializer.getReads("image1.png"));
+
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        Assert.assertEquals(1, serializer.getReads("image1.png"));
+        Assert.assertEquals(1, serializer.getReads("image2.png"));
+
+        Assert.assertArrayEquals(new int[] { 100, 50 }, serializer.getCachedImageSize("image1.png"));
+        Assert.assertArrayEquals(new int[] { 100, 50 }, serializer.getCachedImageSize("image2.png"));
+        Assert.assertEquals(1, serializer.getReads("image1.png"));
+        Assert.assertEquals(1, serializer.getReads("image2.png"));
+        Assert.assertEquals(1, serializer.getReads("cached.png"));
+    }
+
+    @Test
+    public void getRawImageSizeOverride()
+    {
+        TestTexSerializer serializer = new TestTexSerializer(new HashMap<String, int[]>(), 100)
+        {
+            @Override
+            protected int[] getRawImageSize(String ref)
+            {
+                return new int[] { 1000, 200 };
+            }
+        };
+
+        Assert.assertArrayEquals(new int[] { 100, 20 }, serializer.getImageSize("image.png"));
+        Assert.assertArrayEquals(new int[] { 100, 20 }, serializer.getCachedImageSize("image.png"));
+
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        serializer.prefetchImageSizes(Arrays.asList("other.png"), tasks::add);
+        tasks.get(0).run();
+        Assert.assertArrayEquals(new int[] { 100, 20 }, serializer.getCachedImageSize("other.png"));
+
+        Assert.assertEquals(0, serializer.getReads("image.png"));
+        Assert.assertEquals(0, serializer.getReads("other.png"));
+    }
+}
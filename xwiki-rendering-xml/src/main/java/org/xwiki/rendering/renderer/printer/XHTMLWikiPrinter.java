@@ -131,6 +131,20 @@ public void printXMLComment(String content, boolean escape)
         this.elementEnded = true;
     }
 
+    @Override
+    public void printXMLStartComment()
+    {
+        handleSpaceWhenStartElement();
+        super.printXMLStartComment();
+    }
+
+    @Override
+    public void printXMLEndComment()
+    {
+        super.printXMLEndComment();
+        this.elementEnded = true;
+    }
+
     @Override
     public void printXMLStartCData()
     {
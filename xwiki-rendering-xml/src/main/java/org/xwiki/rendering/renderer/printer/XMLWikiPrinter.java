@@ -42,10 +42,21 @@
  */
 public class XMLWikiPrinter
 {
+    private static final String COMMENT_START = "<!--";
+
+    private static final String COMMENT_END = "-->";
+
+    private static final String COMMENT_ESCAPE = "\\";
+
     protected WikiWriter wikiWriter;
 
     protected XMLWriter xmlWriter;
 
+    /**
+     * The last character of the content of the comment being printed, used to escape it.
+     */
+    private char commentLastChar;
+
     /**
      * @param printer the object to which to write the XHTML output to
      */
@@ -225,6 +236,72 @@ public void printXMLComment(String content, boolean escape)
         }
     }
 
+    /**
+     * Start a XML comment whose content is printed in several parts with {@link #printXMLCommentContent(String)} and
+     * which is ended with {@link #printXMLEndComment()}. The content is escaped as a whole the same way as
+     * {@link #printXMLComment(String, boolean)} does, without building it in memory first.
+     *
+     * @since 10.0RC1
+     */
+    public void printXMLStartComment()
+    {
+        this.commentLastChar = 0;
+
+        try {
+            this.wikiWriter.write(COMMENT_START);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
+    /**
+     * Print and escape a part of the content of the XML comment started with {@link #printXMLStartComment()}.
+     *
+     * @param content the part of the comment content
+     * @since 10.0RC1
+     */
+    public void printXMLCommentContent(String content)
+    {
+        try {
+            int start = 0;
+            for (int i = 0; i < content.length(); ++i) {
+                char c = content.charAt(i);
+                if (c == '\\' || (c == '-' && this.commentLastChar == '-')) {
+                    if (i > start) {
+                        this.wikiWriter.write(content.substring(start, i));
+                    }
+                    this.wikiWriter.write(COMMENT_ESCAPE);
+                    start = i;
+                }
+                this.commentLastChar = c;
+            }
+            if (start < content.length()) {
+                // substring() does not copy anything when the whole content is printed
+                this.wikiWriter.write(content.substring(start));
+            }
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
+    /**
+     * End the XML comment started with {@link #printXMLStartComment()}.
+     *
+     * @since 10.0RC1
+     */
+    public void printXMLEndComment()
+    {
+        try {
+            // A comment cannot end with "-"
+            if (this.commentLastChar == '-') {
+                this.wikiWriter.write(COMMENT_ESCAPE);
+            }
+            this.wikiWriter.write(COMMENT_END);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
     /**
      * Start a CDATA section.
      */